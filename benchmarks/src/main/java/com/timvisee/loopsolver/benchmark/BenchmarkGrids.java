@@ -0,0 +1,36 @@
+package com.timvisee.loopsolver.benchmark;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+
+public final class BenchmarkGrids {
+
+    /**
+     * Constructor, not used.
+     */
+    private BenchmarkGrids() { }
+
+    /**
+     * Copy the tile masks of a grid.
+     *
+     * @param grid The grid.
+     *
+     * @return The masks, in row order.
+     */
+    public static byte[] copyMasks(LoopGrid grid) {
+        byte[] masks = new byte[grid.getTotal()];
+        for(int i = 0; i < masks.length; i++)
+            masks[i] = (byte) grid.getMask(i);
+        return masks;
+    }
+
+    /**
+     * Reset a grid to the given tile masks, and mark all tiles as unsolved.
+     *
+     * @param grid The grid.
+     * @param masks The masks, in row order.
+     */
+    public static void reset(LoopGrid grid, byte[] masks) {
+        for(int i = 0; i < masks.length; i++)
+            grid.setMask(i, masks[i]);
+    }
+}
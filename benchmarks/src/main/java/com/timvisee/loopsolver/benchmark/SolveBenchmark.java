@@ -0,0 +1,83 @@
+package com.timvisee.loopsolver.benchmark;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.grid.LoopGridGenerator;
+import com.timvisee.loopsolver.solver.Solver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SolveBenchmark {
+
+    /** Seed of the benchmark grids. */
+    private static final long SEED = 1;
+
+    /** Width and height of the grid. */
+    @Param({"7", "32", "128", "512"})
+    private int size;
+
+    /** Number of threads the solver searches with. */
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    /** The grid to solve. */
+    private LoopGrid grid;
+    /** Scrambled masks of the grid, restored before every solve. */
+    private byte[] masks;
+
+    @Setup(Level.Trial)
+    public void createGrid() {
+        this.grid = LoopGridGenerator.generate(this.size, this.size, SEED);
+        this.masks = BenchmarkGrids.copyMasks(this.grid);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetGrid() {
+        BenchmarkGrids.reset(this.grid, this.masks);
+    }
+
+    @Benchmark
+    public long solve() {
+        Solver solver = new Solver(this.grid);
+        solver.setParallelism(this.threads);
+        solver.run();
+        return solver.getNodes();
+    }
+
+    /**
+     * Run the solve benchmarks with the GC allocation profiler.
+     *
+     * @param args Startup arguments, not used.
+     *
+     * @throws RunnerException If the benchmarks failed.
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SolveBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
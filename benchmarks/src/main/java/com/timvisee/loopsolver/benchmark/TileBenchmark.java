@@ -0,0 +1,103 @@
+package com.timvisee.loopsolver.benchmark;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.grid.LoopGridGenerator;
+import com.timvisee.loopsolver.solver.Solver;
+import com.timvisee.loopsolver.tile.LoopTile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileBenchmark {
+
+    /** Size of the benchmark grid. */
+    private static final int GRID_SIZE = 32;
+
+    /** Seed of the benchmark grid. */
+    private static final long SEED = 1;
+
+    /** Scrambled grid, the tiles are visited in turn. */
+    private LoopGrid scrambled;
+    /** Masks of the scrambled grid, to reset tiles after solving them. */
+    private byte[] scrambledMasks;
+    /** Solved grid. */
+    private LoopGrid solved;
+    /** Solver for the scrambled grid. */
+    private Solver scrambledSolver;
+    /** Solver for the solved grid. */
+    private Solver solvedSolver;
+
+    /** Position of the next tile to visit. */
+    private int position = 0;
+
+    @Setup
+    public void setup() {
+        this.scrambled = LoopGridGenerator.generate(GRID_SIZE, GRID_SIZE, SEED);
+        this.scrambledMasks = BenchmarkGrids.copyMasks(this.scrambled);
+        this.solved = LoopGridGenerator.generateSolved(GRID_SIZE, GRID_SIZE, SEED, LoopGridGenerator.DEFAULT_DENSITY);
+        this.scrambledSolver = new Solver(this.scrambled);
+        this.solvedSolver = new Solver(this.solved);
+    }
+
+    /**
+     * Get the next tile of a grid to visit.
+     *
+     * @param grid The grid.
+     *
+     * @return The tile.
+     */
+    private LoopTile nextTile(LoopGrid grid) {
+        this.position = (this.position + 1) % grid.getTotal();
+        return grid.getTile(this.position);
+    }
+
+    @Benchmark
+    public LoopTile rotate() {
+        LoopTile tile = nextTile(this.scrambled);
+        tile.rotate(1);
+        return tile;
+    }
+
+    @Benchmark
+    public boolean isCorrect() {
+        return nextTile(this.solved).isCorrect();
+    }
+
+    @Benchmark
+    public boolean fitInCurrentState() {
+        return nextTile(this.scrambled).fitInCurrentState();
+    }
+
+    @Benchmark
+    public boolean fitInSolvedCurrentState() {
+        return nextTile(this.scrambled).fitInSolvedCurrentState();
+    }
+
+    @Benchmark
+    public boolean rotateIfOnePossible() {
+        // Restore the tile first, so every call does the full check
+        LoopTile tile = nextTile(this.scrambled);
+        this.scrambled.setMask(this.position, this.scrambledMasks[this.position]);
+        return this.scrambledSolver.rotateIfOnePossible(tile);
+    }
+
+    @Benchmark
+    public boolean doesAllFit() {
+        return this.solvedSolver.doesAllFit();
+    }
+}
@@ -1,26 +1,48 @@
 package com.timvisee.loopsolver;
 
+import com.timvisee.loopsolver.frame.GridCanvas;
 import com.timvisee.loopsolver.frame.GridFrame;
 import com.timvisee.loopsolver.grid.LoopGrid;
-import com.timvisee.loopsolver.solver.Solver;
-import com.timvisee.loopsolver.tile.LoopTile;
+import com.timvisee.loopsolver.grid.LoopGridGenerator;
+import com.timvisee.loopsolver.io.TraceWriter;
+import com.timvisee.loopsolver.solver.CancellationToken;
+import com.timvisee.loopsolver.solver.FrontierSolver;
+import com.timvisee.loopsolver.solver.IncrementalSolver;
+import com.timvisee.loopsolver.solver.SolverStatus;
+import com.timvisee.loopsolver.solver.UniquenessCheck;
 import com.timvisee.loopsolver.util.WindowUtils;
 
 import javax.swing.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Random;
 
 public class App {
 
+    /** Interval between two progress updates of a running solver, in milliseconds. */
+    private static final int PROGRESS_INTERVAL = 250;
+
     /** App instance. */
     public static App instance;
 
     /** Current grid. */
     private LoopGrid grid;
     /** Current drawable grid. */
-    private JPanel drawableGrid;
+    private GridCanvas drawableGrid;
     /** Grid frame instance. */
     private GridFrame gridFrame;
 
+    /** Solver for the current grid, which keeps its solution to quickly solve the grid again after edits. */
+    private IncrementalSolver solver;
+    /**
+     * Token to cancel the running solver, uniqueness check or solution count, or null if none is running.
+     * Only one of them runs at a time, so a single thread publishes events to the grid canvas.
+     */
+    private CancellationToken solverToken;
+    /** Number of threads the solver searches with, see {@link IncrementalSolver#setParallelism(int)}. */
+    private int searchThreads = Runtime.getRuntime().availableProcessors();
+
     /**
      * Constructor.
      *
@@ -61,21 +83,214 @@ public class App {
 
     /**
      * Solve the current grid.
-     * This method starts the solver runnable in a new thread.
+     * This method starts the solver runnable in a new thread. After the grid was solved once, only the tiles around
+     * the tiles that were edited since are solved again.
      */
     public void solve() {
-        Thread t = new Thread(new Solver(this.grid));
+        solve(null);
+    }
+
+    /**
+     * Solve the current grid, and optionally record a trace of the solve.
+     * While recording, the solver runs at full speed without showing its progress. The trace can be replayed in the
+     * grid frame afterwards.
+     *
+     * @param traceFile The file to record the trace to, or null to show the progress in the grid frame instead.
+     */
+    public void solve(File traceFile) {
+        // Make sure no solver is running already
+        if(isBusy())
+            return;
+
+        // Record the solve instead of showing it
+        final TraceWriter trace;
+        if(traceFile != null) {
+            try {
+                trace = new TraceWriter(new FileOutputStream(traceFile), this.grid);
+            } catch(IOException e) {
+                JOptionPane.showMessageDialog(this.gridFrame, "Failed to record the trace:\n" + e.getMessage(),
+                        LoopSolver.APP_NAME, JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            this.grid.setObserver(trace);
+        } else
+            trace = null;
+
+        // Get the solver for the current grid, with a new token to cancel it
+        if(this.solver == null || this.solver.getGrid() != this.grid)
+            this.solver = new IncrementalSolver(this.grid);
+        final IncrementalSolver solver = this.solver;
+        solver.setParallelism(this.searchThreads);
+        solver.setCancellationToken(startRunning());
+
+        // Show the progress of the solver in the frame title
+        final Timer progressTimer = new Timer(PROGRESS_INTERVAL, e -> this.gridFrame.setTitle(LoopSolver.APP_NAME
+                + " - Solving " + Math.round(solver.getProgress() * 100) + "%"));
+        progressTimer.start();
+
+        Thread t = new Thread(() -> {
+            // Solve the grid, and report the result
+            solver.run();
+            System.out.println("Solver finished (" + solver.getStatus() + "), solved " + solver.getResolvedTiles()
+                    + " tiles, visited " + solver.getNodes() + " search nodes in total.");
+
+            // Finish the trace, and show the solved grid
+            String traceError = null;
+            if(trace != null) {
+                this.grid.setObserver(this.drawableGrid.getEventBuffer());
+                this.drawableGrid.refresh();
+                try {
+                    trace.close();
+                    System.out.println("Recorded " + trace.getCount() + " solver events to " + traceFile + ".");
+                } catch(IOException e) {
+                    traceError = e.getMessage();
+                }
+            }
+            final String error = traceError;
+
+            // Stop showing the progress
+            SwingUtilities.invokeLater(() -> {
+                progressTimer.stop();
+                this.gridFrame.setTitle(LoopSolver.APP_NAME);
+                stopRunning();
+                if(error != null)
+                    JOptionPane.showMessageDialog(this.gridFrame, "Failed to record the trace:\n" + error,
+                            LoopSolver.APP_NAME, JOptionPane.ERROR_MESSAGE);
+                if(solver.getStatus() == SolverStatus.CANCELLED)
+                    JOptionPane.showMessageDialog(this.gridFrame, "Solving cancelled, the grid shows the tiles that were solved.",
+                            LoopSolver.APP_NAME, JOptionPane.PLAIN_MESSAGE);
+            });
+        });
+        t.start();
+    }
+
+    /**
+     * Get the number of threads the solver searches with.
+     *
+     * @return Number of threads.
+     */
+    public int getSearchThreads() {
+        return this.searchThreads;
+    }
+
+    /**
+     * Set the number of threads the solver searches with.
+     * This applies from the next solve. Defaults to the number of available processors.
+     *
+     * @param searchThreads Number of threads, 1 to search on the solver thread.
+     */
+    public void setSearchThreads(int searchThreads) {
+        if(searchThreads < 1)
+            throw new IllegalArgumentException("Search threads must be at least 1, got " + searchThreads);
+        this.searchThreads = searchThreads;
+    }
+
+    /**
+     * Check whether a solver, uniqueness check or solution count is running on the current grid.
+     * While one is running, the grid must not be changed by anything else.
+     *
+     * @return True if one is running, false if not.
+     */
+    public boolean isBusy() {
+        return this.solverToken != null;
+    }
+
+    /**
+     * Mark a solver as running, and block everything else that changes the grid until it stops.
+     * Must be called on the event dispatch thread.
+     *
+     * @return The token to cancel the solver with.
+     */
+    private CancellationToken startRunning() {
+        this.solverToken = new CancellationToken();
+        this.gridFrame.setBusy(true);
+        return this.solverToken;
+    }
+
+    /**
+     * Mark the running solver as stopped, and allow changing the grid again.
+     * Must be called on the event dispatch thread.
+     */
+    private void stopRunning() {
+        this.solverToken = null;
+        this.gridFrame.setBusy(false);
+    }
+
+    /**
+     * Cancel the running solver, uniqueness check or solution count.
+     * The solver stops soon after, and leaves the tiles that were solved so far in the grid.
+     */
+    public void cancelSolve() {
+        if(this.solverToken != null)
+            this.solverToken.cancel();
+    }
+
+    /**
+     * Check whether the current grid has a unique solution.
+     * This method starts the check in a new thread, and reports the result in a dialog. The grid is left in the first
+     * solution that was found.
+     */
+    public void checkUniqueness() {
+        // Make sure no solver is running already
+        if(isBusy())
+            return;
+
+        final UniquenessCheck check = new UniquenessCheck(this.grid);
+        check.setCancellationToken(startRunning());
+        Thread t = new Thread(() -> {
+            // Check the grid, and show the result on the event dispatch thread
+            check.run();
+            System.out.println("Uniqueness check finished, visited " + check.getNodes() + " search nodes.");
+            final String result = check.getResult() != null ? check.getResult().toString() : "Cancelled";
+            SwingUtilities.invokeLater(() -> {
+                stopRunning();
+                JOptionPane.showMessageDialog(this.gridFrame, "Result: " + result,
+                        LoopSolver.APP_NAME + " - Uniqueness", JOptionPane.PLAIN_MESSAGE);
+            });
+        });
         t.start();
     }
 
     /**
-     * Create a new random grid.
-     * The size of the grid is random, between 8 and 12 units width and/or height.
+     * Count the solutions of the current grid.
+     * This method starts counting in a new thread, and reports the result in a dialog. The grid is left in one of the
+     * solutions. Counting is fast for grids that are narrow in one direction, see {@link FrontierSolver#run()}.
+     */
+    public void countSolutions() {
+        // Make sure no solver is running already
+        if(isBusy())
+            return;
+
+        final FrontierSolver solver = new FrontierSolver(this.grid);
+        solver.setCancellationToken(startRunning());
+        Thread t = new Thread(() -> {
+            // Count the solutions, and show the result on the event dispatch thread
+            solver.run();
+            System.out.println("Counting solutions finished, kept up to " + solver.getPeakStates()
+                    + " frontier states.");
+            final String result;
+            if(solver.getSolutionCount() != null)
+                result = solver.getSolutionCount().toString();
+            else if(solver.getStatus() == SolverStatus.UNKNOWN)
+                result = "Unknown, the grid is too wide to count its solutions";
+            else
+                result = "Cancelled";
+            SwingUtilities.invokeLater(() -> {
+                stopRunning();
+                JOptionPane.showMessageDialog(this.gridFrame, "Solutions: " + result,
+                        LoopSolver.APP_NAME + " - Solutions", JOptionPane.PLAIN_MESSAGE);
+            });
+        });
+        t.start();
+    }
+
+    /**
+     * Create a new random grid, that is guaranteed to be solvable.
+     * The size of the grid is random, between 5 and 12 units width and/or height.
      */
     public void createRandomGrid() {
         Random rand = new Random();
-        this.grid = new LoopGrid(5 + rand.nextInt(8), 5 + rand.nextInt(8));
-        this.grid.fillWithRandom();
+        this.grid = LoopGridGenerator.generate(5 + rand.nextInt(8), 5 + rand.nextInt(8), rand.nextLong());
     }
 
     /**
@@ -89,68 +304,40 @@ public class App {
     /**
      * Create a grid for one of the Loop puzzles.
      */
-    @SuppressWarnings("PointlessArithmeticExpression")
     public void createPossibleGrid() {
         // Puzzle 80
 
         this.grid = new LoopGrid(7, 7);
-        this.grid.getTiles().clear();
-
-        this.grid.getTiles().add(new LoopTile(grid, 0, 0, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 0 + 1, 0, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 1 + 1, 0, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 2 + 1, 0, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 3 + 1, 0, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 4 + 1, 0, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 5 + 1, 0, false, false, false, false));
-
-        this.grid.getTiles().add(new LoopTile(grid, 0, 0 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 0 + 1, 0 + 1, true, true, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 1 + 1, 0 + 1, true, true, true, false));
-        this.grid.getTiles().add(new LoopTile(grid, 2 + 1, 0 + 1, false, true, false, true));
-        this.grid.getTiles().add(new LoopTile(grid, 3 + 1, 0 + 1, false, true, true, true));
-        this.grid.getTiles().add(new LoopTile(grid, 4 + 1, 0 + 1, false, false, true, true));
-        this.grid.getTiles().add(new LoopTile(grid, 5 + 1, 0 + 1, false, false, false, false));
-
-        this.grid.getTiles().add(new LoopTile(grid, 0, 1 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 0 + 1, 1 + 1, false, true, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 1 + 1, 1 + 1, true, false, true, false));
-        this.grid.getTiles().add(new LoopTile(grid, 2 + 1, 1 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 3 + 1, 1 + 1, true, false, true, false));
-        this.grid.getTiles().add(new LoopTile(grid, 4 + 1, 1 + 1, false, false, true, false));
-        this.grid.getTiles().add(new LoopTile(grid, 5 + 1, 1 + 1, false, false, false, false));
-
-        this.grid.getTiles().add(new LoopTile(grid, 0, 2 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 0 + 1, 2 + 1, true, false, false, true));
-        this.grid.getTiles().add(new LoopTile(grid, 1 + 1, 2 + 1, true, true, true, true));
-        this.grid.getTiles().add(new LoopTile(grid, 2 + 1, 2 + 1, true, false, true, false));
-        this.grid.getTiles().add(new LoopTile(grid, 3 + 1, 2 + 1, true, true, true, true));
-        this.grid.getTiles().add(new LoopTile(grid, 4 + 1, 2 + 1, true, true, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 5 + 1, 2 + 1, false, false, false, false));
-
-        this.grid.getTiles().add(new LoopTile(grid, 0, 3 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 0 + 1, 3 + 1, false, true, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 1 + 1, 3 + 1, true, false, true, true));
-        this.grid.getTiles().add(new LoopTile(grid, 2 + 1, 3 + 1, false, true, false, true));
-        this.grid.getTiles().add(new LoopTile(grid, 3 + 1, 3 + 1, true, true, false, true));
-        this.grid.getTiles().add(new LoopTile(grid, 4 + 1, 3 + 1, false, false, false, true));
-        this.grid.getTiles().add(new LoopTile(grid, 5 + 1, 3 + 1, false, false, false, false));
-
-        this.grid.getTiles().add(new LoopTile(grid, 0, 4 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 0 + 1, 4 + 1, true, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 1 + 1, 4 + 1, true, false, true, true));
-        this.grid.getTiles().add(new LoopTile(grid, 2 + 1, 4 + 1, false, true, false, true));
-        this.grid.getTiles().add(new LoopTile(grid, 3 + 1, 4 + 1, true, true, true, false));
-        this.grid.getTiles().add(new LoopTile(grid, 4 + 1, 4 + 1, false, true, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 5 + 1, 4 + 1, false, false, false, false));
-
-        this.grid.getTiles().add(new LoopTile(grid, 0, 5 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 0 + 1, 5 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 1 + 1, 5 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 2 + 1, 5 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 3 + 1, 5 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 4 + 1, 5 + 1, false, false, false, false));
-        this.grid.getTiles().add(new LoopTile(grid, 5 + 1, 5 + 1, false, false, false, false));
+
+        // Set the sides of all non-empty tiles
+        this.grid.getTile(1, 1).setSides(true, true, false, false);
+        this.grid.getTile(2, 1).setSides(true, true, true, false);
+        this.grid.getTile(3, 1).setSides(false, true, false, true);
+        this.grid.getTile(4, 1).setSides(false, true, true, true);
+        this.grid.getTile(5, 1).setSides(false, false, true, true);
+
+        this.grid.getTile(1, 2).setSides(false, true, false, false);
+        this.grid.getTile(2, 2).setSides(true, false, true, false);
+        this.grid.getTile(4, 2).setSides(true, false, true, false);
+        this.grid.getTile(5, 2).setSides(false, false, true, false);
+
+        this.grid.getTile(1, 3).setSides(true, false, false, true);
+        this.grid.getTile(2, 3).setSides(true, true, true, true);
+        this.grid.getTile(3, 3).setSides(true, false, true, false);
+        this.grid.getTile(4, 3).setSides(true, true, true, true);
+        this.grid.getTile(5, 3).setSides(true, true, false, false);
+
+        this.grid.getTile(1, 4).setSides(false, true, false, false);
+        this.grid.getTile(2, 4).setSides(true, false, true, true);
+        this.grid.getTile(3, 4).setSides(false, true, false, true);
+        this.grid.getTile(4, 4).setSides(true, true, false, true);
+        this.grid.getTile(5, 4).setSides(false, false, false, true);
+
+        this.grid.getTile(1, 5).setSides(true, false, false, false);
+        this.grid.getTile(2, 5).setSides(true, false, true, true);
+        this.grid.getTile(3, 5).setSides(false, true, false, true);
+        this.grid.getTile(4, 5).setSides(true, true, true, false);
+        this.grid.getTile(5, 5).setSides(false, true, false, false);
     }
 
     /**
@@ -158,7 +345,7 @@ public class App {
      *
      * @return Drawable grid.
      */
-    public JPanel getDrawableGrid() {
+    public GridCanvas getDrawableGrid() {
         return drawableGrid;
     }
 
@@ -167,7 +354,7 @@ public class App {
      *
      * @param drawableGrid Drawable grid.
      */
-    public void setDrawableGrid(JPanel drawableGrid) {
+    public void setDrawableGrid(GridCanvas drawableGrid) {
         this.drawableGrid = drawableGrid;
     }
 
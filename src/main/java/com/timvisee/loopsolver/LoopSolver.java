@@ -1,5 +1,12 @@
 package com.timvisee.loopsolver;
 
+import com.timvisee.loopsolver.batch.BatchCommand;
+import com.timvisee.loopsolver.batch.GenerateCommand;
+import com.timvisee.loopsolver.batch.StreamCommand;
+import com.timvisee.loopsolver.solver.SolverMetrics;
+
+import javax.management.JMException;
+
 public class LoopSolver {
 
     /** App name. */
@@ -15,6 +22,25 @@ public class LoopSolver {
      * @param args Startup arguments.
      */
     public static void main(String[] args) {
+        // Publish the solver metrics through JMX, solving works without them
+        try {
+            SolverMetrics.register();
+        } catch(JMException e) {
+            System.err.println("Failed to publish the solver metrics: " + e.getMessage());
+        }
+
+        // Solve puzzles without user interface in batch mode, the results go to the standard output
+        if(args.length > 0 && args[0].equals(BatchCommand.ARGUMENT))
+            System.exit(BatchCommand.run(args));
+
+        // Generate solvable puzzles without user interface
+        if(args.length > 0 && args[0].equals(GenerateCommand.ARGUMENT))
+            System.exit(GenerateCommand.run(args));
+
+        // Solve a single puzzle that may not fit in memory row by row, without user interface
+        if(args.length > 0 && args[0].equals(StreamCommand.ARGUMENT))
+            System.exit(StreamCommand.run(args));
+
         // Print the app name
         System.out.println(APP_NAME + " v" + APP_VERSION_NAME + " (" + APP_VERSION_CODE + ")");
 
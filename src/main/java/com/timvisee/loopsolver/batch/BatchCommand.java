@@ -0,0 +1,157 @@
+package com.timvisee.loopsolver.batch;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.solver.FrontierSolver;
+import com.timvisee.loopsolver.solver.SatSolver;
+import com.timvisee.loopsolver.solver.Solver;
+import com.timvisee.loopsolver.solver.SolverEngine;
+import com.timvisee.loopsolver.solver.UniquenessCheck;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+public final class BatchCommand {
+
+    /** Argument that selects the batch mode. */
+    public static final String ARGUMENT = "--batch";
+
+    /** Input name that reads from the standard input. */
+    private static final String STDIN = "-";
+
+    /** Exit code for invalid arguments. */
+    private static final int EXIT_USAGE = 2;
+    /** Exit code if the input couldn't be read. */
+    private static final int EXIT_IO = 1;
+
+    /**
+     * Constructor, not used.
+     */
+    private BatchCommand() { }
+
+    /**
+     * Run the batch mode.
+     *
+     * Usage: {@code --batch [file|-] [--threads <count>] [--engine search|sat|frontier|unique]
+     * [--search-threads <count>] [--timeout <ms>]}.
+     * Puzzles are read from the given file, or from the standard input if no file or {@code -} is given. The results
+     * are written to the standard output. With a timeout, puzzles that take longer are reported as timed out. The
+     * {@code unique} engine also checks whether each puzzle has a single solution, and reports puzzles with more than
+     * one as {@link BatchStatus#MULTIPLE}.
+     *
+     * {@code --threads} sets the number of puzzles that are solved at once. {@code --search-threads} sets the number of
+     * threads the {@code search} engine splits the search of a single puzzle over, see
+     * {@link Solver#setParallelism(int)}. It defaults to 1, as the puzzles of a batch already keep the cores busy.
+     *
+     * @param args The startup arguments, starting with {@link #ARGUMENT}.
+     *
+     * @return The exit code.
+     */
+    public static int run(String[] args) {
+        // Parse the arguments
+        String input = STDIN;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String engineName = "search";
+        int searchThreads = 1;
+        Function<LoopGrid, SolverEngine> engine;
+        long timeout = 0;
+        try {
+            for(int i = 1; i < args.length; i++) {
+                switch(args[i]) {
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i));
+                        if(threads < 1)
+                            throw new IllegalArgumentException("Threads must be at least 1, got " + threads);
+                        break;
+                    case "--engine":
+                        engineName = value(args, ++i);
+                        break;
+                    case "--search-threads":
+                        searchThreads = Integer.parseInt(value(args, ++i));
+                        if(searchThreads < 1)
+                            throw new IllegalArgumentException("Search threads must be at least 1, got "
+                                    + searchThreads);
+                        break;
+                    case "--timeout":
+                        timeout = Long.parseLong(value(args, ++i));
+                        if(timeout < 0)
+                            throw new IllegalArgumentException("Timeout must not be negative, got " + timeout);
+                        break;
+                    default:
+                        input = args[i];
+                }
+            }
+            engine = engine(engineName, searchThreads);
+        } catch(IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: " + ARGUMENT
+                    + " [file|-] [--threads <count>] [--engine search|sat|frontier|unique] [--search-threads <count>]"
+                    + " [--timeout <ms>]");
+            return EXIT_USAGE;
+        }
+
+        // Solve the puzzles
+        try(InputStream stream = input.equals(STDIN) ? System.in : new FileInputStream(input)) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            BatchSolver solver = new BatchSolver(threads, engine, System.out);
+            solver.setTimeout(timeout);
+            solver.run(reader);
+            return 0;
+        } catch(IOException e) {
+            System.err.println("Failed to read puzzles: " + e.getMessage());
+            return EXIT_IO;
+        }
+    }
+
+    /**
+     * Get the value of an option.
+     *
+     * @param args The arguments.
+     * @param index The index of the value.
+     *
+     * @return The value.
+     *
+     * @throws IllegalArgumentException If the value is missing.
+     */
+    private static String value(String[] args, int index) {
+        if(index >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        return args[index];
+    }
+
+    /**
+     * Get the engine factory for an engine name.
+     *
+     * @param name The engine name.
+     * @param searchThreads Number of threads the search engine searches a puzzle with.
+     *
+     * @return The engine factory.
+     *
+     * @throws IllegalArgumentException If the engine is unknown, or if search threads are given for another engine.
+     */
+    private static Function<LoopGrid, SolverEngine> engine(String name, int searchThreads) {
+        if(searchThreads > 1 && !name.equals("search"))
+            throw new IllegalArgumentException("Search threads only apply to the search engine, not to " + name);
+
+        switch(name) {
+            case "search":
+                return grid -> {
+                    Solver solver = new Solver(grid);
+                    solver.setParallelism(searchThreads);
+                    return solver;
+                };
+            case "sat":
+                return SatSolver::new;
+            case "frontier":
+                return FrontierSolver::new;
+            case "unique":
+                return UniquenessCheck::new;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+}
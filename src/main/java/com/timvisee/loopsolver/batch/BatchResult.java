@@ -0,0 +1,109 @@
+package com.timvisee.loopsolver.batch;
+
+import java.util.Locale;
+
+public class BatchResult {
+
+    /** Placeholder for the rotations of a puzzle that wasn't solved. */
+    private static final String NO_ROTATIONS = "-";
+
+    /** Index of the puzzle in the input, starting at 0. */
+    private final long index;
+    /** The status. */
+    private final BatchStatus status;
+    /** The rotations of the solution, or null. */
+    private final String rotations;
+    /** Number of search nodes that were visited. */
+    private final long nodes;
+    /** Time spent on the puzzle in nanoseconds. */
+    private final long nanos;
+    /** Message explaining why the puzzle is invalid or wasn't solved, or null. */
+    private final String message;
+
+    /**
+     * Constructor.
+     *
+     * @param index Index of the puzzle in the input, starting at 0.
+     * @param status The status.
+     * @param rotations The rotations of the solution, or null.
+     * @param nodes Number of search nodes that were visited.
+     * @param nanos Time spent on the puzzle in nanoseconds.
+     * @param message Message explaining why the puzzle is invalid or wasn't solved, or null.
+     */
+    public BatchResult(long index, BatchStatus status, String rotations, long nodes, long nanos, String message) {
+        this.index = index;
+        this.status = status;
+        this.rotations = rotations;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.message = message;
+    }
+
+    /**
+     * Get the index of the puzzle in the input.
+     *
+     * @return Puzzle index, starting at 0.
+     */
+    public long getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Get the status.
+     *
+     * @return The status.
+     */
+    public BatchStatus getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Get the rotations of the solution.
+     * One hexadecimal digit per tile in row order, each the number of clockwise quarter turns.
+     *
+     * @return The rotations, or null if the puzzle wasn't solved.
+     */
+    public String getRotations() {
+        return this.rotations;
+    }
+
+    /**
+     * Get the number of search nodes that were visited.
+     *
+     * @return Number of search nodes.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Get the time spent on the puzzle.
+     *
+     * @return Time in nanoseconds.
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    /**
+     * Get the message explaining why the puzzle is invalid or wasn't solved.
+     *
+     * @return The message, or null.
+     */
+    public String getMessage() {
+        return this.message;
+    }
+
+    /**
+     * Format the result as output line.
+     * The line holds the puzzle index, the status, the rotations, the number of nodes and the time in milliseconds,
+     * separated by a tab. The message is appended if there is one.
+     *
+     * @return The line.
+     */
+    public String toLine() {
+        String line = String.format(Locale.ROOT, "%d\t%s\t%s\t%d\t%.3f", this.index, this.status,
+                this.rotations != null ? this.rotations : NO_ROTATIONS, this.nodes, this.nanos / 1e6);
+        return this.message != null ? line + "\t" + this.message : line;
+    }
+}
@@ -0,0 +1,247 @@
+package com.timvisee.loopsolver.batch;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.io.HexGridFormat;
+import com.timvisee.loopsolver.solver.CancellationToken;
+import com.timvisee.loopsolver.solver.Solver;
+import com.timvisee.loopsolver.solver.SolverEngine;
+import com.timvisee.loopsolver.solver.SolverStatus;
+import com.timvisee.loopsolver.solver.Uniqueness;
+import com.timvisee.loopsolver.solver.UniquenessCheck;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+public class BatchSolver {
+
+    /** Number of puzzles that may be queued for every worker, to bound the memory used by large inputs. */
+    private static final int QUEUED_PER_WORKER = 4;
+
+    /** Prefix of comment lines in the input. */
+    private static final String COMMENT_PREFIX = "#";
+
+    /** Number of worker threads. */
+    private final int workers;
+    /** Factory creating the solver engine for a grid. */
+    private final Function<LoopGrid, SolverEngine> engine;
+    /** Stream to write the result lines to. */
+    private final PrintStream out;
+
+    /** Time budget for every puzzle in milliseconds, 0 for no budget. */
+    private long timeout = 0;
+
+    /**
+     * Constructor, solving with the default {@link Solver}.
+     *
+     * @param workers Number of worker threads.
+     * @param out Stream to write the result lines to.
+     */
+    public BatchSolver(int workers, PrintStream out) {
+        this(workers, Solver::new, out);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param workers Number of worker threads.
+     * @param engine Factory creating the solver engine for a grid.
+     * @param out Stream to write the result lines to.
+     */
+    public BatchSolver(int workers, Function<LoopGrid, SolverEngine> engine, PrintStream out) {
+        if(workers < 1)
+            throw new IllegalArgumentException("Workers must be at least 1, got " + workers);
+        this.workers = workers;
+        this.engine = engine;
+        this.out = out;
+    }
+
+    /**
+     * Get the number of worker threads.
+     *
+     * @return Number of worker threads.
+     */
+    public int getWorkers() {
+        return this.workers;
+    }
+
+    /**
+     * Get the time budget for every puzzle.
+     *
+     * @return Time budget in milliseconds, 0 for no budget.
+     */
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Set the time budget for every puzzle.
+     * Puzzles that aren't solved within the budget are reported as timed out, so a single hard puzzle can't keep a
+     * worker busy forever.
+     *
+     * @param timeout Time budget in milliseconds, 0 for no budget.
+     */
+    public void setTimeout(long timeout) {
+        if(timeout < 0)
+            throw new IllegalArgumentException("Timeout must not be negative, got " + timeout);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Solve all puzzles from the input, one puzzle per line in the {@link HexGridFormat}.
+     * Empty lines and lines starting with {@code #} are skipped.
+     *
+     * Every puzzle is solved on its own grid by one of the workers. A result line is written as soon as a puzzle is
+     * finished, so the results are in completion order rather than input order. The summary line is written last.
+     *
+     * @param in The input.
+     *
+     * @return The summary.
+     *
+     * @throws IOException If reading the input failed.
+     */
+    public BatchSummary run(BufferedReader in) throws IOException {
+        final long start = System.nanoTime();
+        final int maxPending = this.workers * QUEUED_PER_WORKER;
+        BatchSummary summary = new BatchSummary();
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.workers);
+        try {
+            CompletionService<BatchResult> completion = new ExecutorCompletionService<>(executor);
+
+            // Submit every puzzle, writing results as they finish and waiting when too many are pending
+            long index = 0;
+            int pending = 0;
+            String line;
+            while((line = in.readLine()) != null) {
+                if(line.trim().isEmpty() || line.startsWith(COMMENT_PREFIX))
+                    continue;
+
+                final long puzzle = index++;
+                final String input = line;
+                completion.submit(() -> solve(puzzle, input));
+                pending++;
+                while(pending > 0 && report(completion, summary, pending >= maxPending))
+                    pending--;
+            }
+
+            // Write the remaining results
+            for(; pending > 0; pending--)
+                report(completion, summary, true);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Write the summary
+        summary.setNanos(System.nanoTime() - start);
+        this.out.println(summary.toLine());
+        this.out.flush();
+        return summary;
+    }
+
+    /**
+     * Write the result of the next finished puzzle.
+     *
+     * @param completion The completion service.
+     * @param summary The summary to count the result in.
+     * @param wait True to wait for a puzzle to finish, false to return right away if none is finished.
+     *
+     * @return True if a result was written, false if no puzzle was finished.
+     *
+     * @throws IOException If the batch was interrupted.
+     */
+    private boolean report(CompletionService<BatchResult> completion, BatchSummary summary, boolean wait) throws IOException {
+        BatchResult result;
+        try {
+            Future<BatchResult> future = wait ? completion.take() : completion.poll();
+            if(future == null)
+                return false;
+            result = future.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted", e);
+        } catch(ExecutionException e) {
+            // Failures of the engines are reported per puzzle, so this is an error that isn't caused by a puzzle
+            throw new IllegalStateException("Solving a puzzle failed", e.getCause());
+        }
+
+        summary.add(result);
+        this.out.println(result.toLine());
+        return true;
+    }
+
+    /**
+     * Solve a single puzzle.
+     *
+     * @param index Index of the puzzle in the input.
+     * @param line The puzzle line.
+     *
+     * @return The result.
+     */
+    private BatchResult solve(long index, String line) {
+        final long start = System.nanoTime();
+
+        // Parse the puzzle
+        LoopGrid grid;
+        try {
+            grid = HexGridFormat.parse(line);
+        } catch(IllegalArgumentException e) {
+            return new BatchResult(index, BatchStatus.INVALID, null, 0, System.nanoTime() - start, e.getMessage());
+        }
+
+        // Solve the puzzle, an engine that fails only fails this puzzle and the batch goes on
+        try {
+            return solve(index, grid, start);
+        } catch(RuntimeException e) {
+            return new BatchResult(index, BatchStatus.ERROR, null, 0, System.nanoTime() - start,
+                    "The engine failed: " + e);
+        }
+    }
+
+    /**
+     * Solve a single parsed puzzle.
+     *
+     * @param index Index of the puzzle in the input.
+     * @param grid The puzzle.
+     * @param start The time the puzzle was started at, from {@link System#nanoTime()}.
+     *
+     * @return The result.
+     */
+    private BatchResult solve(long index, LoopGrid grid, long start) {
+        // Remember the original masks to determine the rotations
+        final int total = grid.getTotal();
+        byte[] original = new byte[total];
+        for(int i = 0; i < total; i++)
+            original[i] = (byte) grid.getMask(i);
+
+        // Solve the puzzle within the time budget
+        SolverEngine solver = this.engine.apply(grid);
+        if(this.timeout > 0)
+            solver.setCancellationToken(CancellationToken.withTimeout(this.timeout, TimeUnit.MILLISECONDS));
+        solver.run();
+        if(solver.getStatus() == SolverStatus.TIMED_OUT)
+            return new BatchResult(index, BatchStatus.TIMED_OUT, null, solver.getNodes(), System.nanoTime() - start,
+                    "No solution within " + this.timeout + " ms");
+        if(solver.getStatus() == SolverStatus.UNKNOWN)
+            return new BatchResult(index, BatchStatus.GAVE_UP, null, solver.getNodes(), System.nanoTime() - start,
+                    "The engine gave up on this puzzle");
+
+        // Verify the result, and report puzzles the uniqueness check found more solutions for
+        boolean solved = new Solver(grid).doesAllFit();
+        BatchStatus status = solved ? BatchStatus.SOLVED : BatchStatus.UNSOLVABLE;
+        if(solved && solver instanceof UniquenessCheck && ((UniquenessCheck) solver).getResult() == Uniqueness.MULTIPLE)
+            status = BatchStatus.MULTIPLE;
+
+        return new BatchResult(index, status,
+                solved ? HexGridFormat.formatRotations(original, grid) : null, solver.getNodes(),
+                System.nanoTime() - start, null);
+    }
+}
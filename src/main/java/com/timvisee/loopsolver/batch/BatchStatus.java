@@ -0,0 +1,25 @@
+package com.timvisee.loopsolver.batch;
+
+public enum BatchStatus {
+
+    /** The puzzle was solved, the result holds the rotations of the solution. */
+    SOLVED,
+
+    /** The puzzle was solved, and the uniqueness check found more than one solution. */
+    MULTIPLE,
+
+    /** The puzzle has no solution. */
+    UNSOLVABLE,
+
+    /** The time budget ran out before the engine finished, whether the puzzle has a solution is unknown. */
+    TIMED_OUT,
+
+    /** The engine stopped within the time budget without knowing whether the puzzle has a solution. */
+    GAVE_UP,
+
+    /** The puzzle line couldn't be parsed, so the puzzle wasn't solved. */
+    INVALID,
+
+    /** The engine failed with an unexpected exception, the message of the result describes it. */
+    ERROR
+}
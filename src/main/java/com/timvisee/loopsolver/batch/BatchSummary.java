@@ -0,0 +1,96 @@
+package com.timvisee.loopsolver.batch;
+
+import java.util.Locale;
+
+public class BatchSummary {
+
+    /** Number of puzzles for each status. */
+    private final long[] counts = new long[BatchStatus.values().length];
+    /** Number of search nodes visited for all puzzles. */
+    private long nodes = 0;
+    /** Wall clock time of the batch in nanoseconds. */
+    private long nanos = 0;
+
+    /**
+     * Count a result.
+     *
+     * @param result The result.
+     */
+    void add(BatchResult result) {
+        this.counts[result.getStatus().ordinal()]++;
+        this.nodes += result.getNodes();
+    }
+
+    /**
+     * Set the wall clock time of the batch.
+     *
+     * @param nanos Time in nanoseconds.
+     */
+    void setNanos(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * Get the number of puzzles.
+     *
+     * @return Number of puzzles.
+     */
+    public long getCount() {
+        long count = 0;
+        for(long c : this.counts)
+            count += c;
+        return count;
+    }
+
+    /**
+     * Get the number of puzzles with a status.
+     *
+     * @param status The status.
+     *
+     * @return Number of puzzles.
+     */
+    public long getCount(BatchStatus status) {
+        return this.counts[status.ordinal()];
+    }
+
+    /**
+     * Get the number of search nodes visited for all puzzles.
+     *
+     * @return Number of search nodes.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Get the wall clock time of the batch.
+     *
+     * @return Time in nanoseconds.
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    /**
+     * Get the throughput of the batch.
+     *
+     * @return Number of puzzles per second.
+     */
+    public double getThroughput() {
+        return this.nanos > 0 ? getCount() / (this.nanos / 1e9) : 0;
+    }
+
+    /**
+     * Format the summary as output line.
+     *
+     * @return The line.
+     */
+    public String toLine() {
+        return String.format(Locale.ROOT, "# %d puzzles, %d solved, %d multiple, %d unsolvable, %d timed out, "
+                        + "%d gave up, %d invalid, %d errors, %d nodes in %.3f s, %.1f puzzles/s",
+                getCount(), getCount(BatchStatus.SOLVED), getCount(BatchStatus.MULTIPLE), getCount(BatchStatus.UNSOLVABLE),
+                getCount(BatchStatus.TIMED_OUT), getCount(BatchStatus.GAVE_UP), getCount(BatchStatus.INVALID),
+                getCount(BatchStatus.ERROR),
+                this.nodes, this.nanos / 1e9, getThroughput());
+    }
+}
@@ -0,0 +1,132 @@
+package com.timvisee.loopsolver.batch;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.grid.LoopGridGenerator;
+import com.timvisee.loopsolver.io.BoxGridWriter;
+import com.timvisee.loopsolver.io.CorpusWriter;
+import com.timvisee.loopsolver.io.HexGridFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+public final class GenerateCommand {
+
+    /** Argument that selects the generate mode. */
+    public static final String ARGUMENT = "--generate";
+
+    /** Exit code for invalid arguments. */
+    private static final int EXIT_USAGE = 2;
+    /** Exit code if the output couldn't be written. */
+    private static final int EXIT_IO = 1;
+
+    /** Usage of the generate mode. */
+    private static final String USAGE = ARGUMENT + " <count> <width> <height> [--seed <seed>] [--density <density>]"
+            + " [--box | --corpus <file>]";
+
+    /**
+     * Constructor, not used.
+     */
+    private GenerateCommand() { }
+
+    /**
+     * Run the generate mode.
+     *
+     * Generates solvable puzzles. Puzzle {@code i} uses seed {@code seed + i}, so the output is reproducible. The puzzles
+     * are written to the standard output in the {@link HexGridFormat}, which the batch mode reads, or in the box drawing
+     * format with {@code --box}, or to a binary corpus with {@code --corpus}.
+     *
+     * @param args The startup arguments, starting with {@link #ARGUMENT}.
+     *
+     * @return The exit code.
+     */
+    public static int run(String[] args) {
+        // Parse the arguments
+        int count, width, height;
+        long seed = 0;
+        double density = LoopGridGenerator.DEFAULT_DENSITY;
+        boolean box = false;
+        String corpus = null;
+        try {
+            if(args.length < 4)
+                throw new IllegalArgumentException("Missing puzzle count or size");
+            count = Integer.parseInt(args[1]);
+            width = Integer.parseInt(args[2]);
+            height = Integer.parseInt(args[3]);
+            if(count < 0 || width < 1 || height < 1)
+                throw new IllegalArgumentException("Invalid puzzle count or size");
+            for(int i = 4; i < args.length; i++) {
+                switch(args[i]) {
+                    case "--seed":
+                        seed = Long.parseLong(value(args, ++i));
+                        break;
+                    case "--density":
+                        density = Double.parseDouble(value(args, ++i));
+                        if(density < 0 || density > 1)
+                            throw new IllegalArgumentException("Density must be between 0 and 1, got " + density);
+                        break;
+                    case "--box":
+                        box = true;
+                        break;
+                    case "--corpus":
+                        corpus = value(args, ++i);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        } catch(IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: " + USAGE);
+            return EXIT_USAGE;
+        }
+
+        try {
+            // Write a binary corpus
+            if(corpus != null) {
+                try(CorpusWriter writer = new CorpusWriter(Paths.get(corpus))) {
+                    for(int i = 0; i < count; i++)
+                        writer.write(LoopGridGenerator.generate(width, height, seed + i, density));
+                }
+                return 0;
+            }
+
+            // Write text to the standard output
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            BoxGridWriter boxWriter = new BoxGridWriter(out);
+            for(int i = 0; i < count; i++) {
+                LoopGrid grid = LoopGridGenerator.generate(width, height, seed + i, density);
+                if(box)
+                    boxWriter.write(grid);
+                else {
+                    out.write(HexGridFormat.format(grid));
+                    out.write('\n');
+                }
+            }
+            out.flush();
+            return 0;
+        } catch(IOException e) {
+            System.err.println("Failed to write puzzles: " + e.getMessage());
+            return EXIT_IO;
+        }
+    }
+
+    /**
+     * Get the value of an option.
+     *
+     * @param args The arguments.
+     * @param index The index of the value.
+     *
+     * @return The value.
+     *
+     * @throws IllegalArgumentException If the value is missing.
+     */
+    private static String value(String[] args, int index) {
+        if(index >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        return args[index];
+    }
+}
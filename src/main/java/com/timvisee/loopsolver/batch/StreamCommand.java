@@ -0,0 +1,125 @@
+package com.timvisee.loopsolver.batch;
+
+import com.timvisee.loopsolver.io.BoxGridReader;
+import com.timvisee.loopsolver.io.BoxGridWriter;
+import com.timvisee.loopsolver.solver.SolverStatus;
+import com.timvisee.loopsolver.solver.StreamingSolver;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+public final class StreamCommand {
+
+    /** Argument that selects the streaming mode. */
+    public static final String ARGUMENT = "--stream";
+
+    /** Input name that reads from the standard input. */
+    private static final String STDIN = "-";
+
+    /** Exit code if the puzzle has no solution or wasn't solved. */
+    private static final int EXIT_UNSOLVED = 3;
+    /** Exit code for invalid arguments. */
+    private static final int EXIT_USAGE = 2;
+    /** Exit code if the input couldn't be read or the output couldn't be written. */
+    private static final int EXIT_IO = 1;
+
+    /** Usage of the streaming mode. */
+    private static final String USAGE = ARGUMENT + " [file|-] [--band <rows>] [--max-band <rows>]";
+
+    /**
+     * Constructor, not used.
+     */
+    private StreamCommand() { }
+
+    /**
+     * Run the streaming mode.
+     *
+     * Solves a single puzzle in the box drawing format, read from the given file or from the standard input, with the
+     * {@link StreamingSolver}. Only a band of rows is kept in memory, so the puzzle may be far larger than the heap. The
+     * solved rows are written to the standard output in the box drawing format as soon as they are final. A summary is
+     * written to the standard error.
+     *
+     * @param args The startup arguments, starting with {@link #ARGUMENT}.
+     *
+     * @return The exit code.
+     */
+    public static int run(String[] args) {
+        // Parse the arguments
+        String input = STDIN;
+        int band = StreamingSolver.DEFAULT_BAND_HEIGHT;
+        int maxBand = StreamingSolver.DEFAULT_MAX_BAND_HEIGHT;
+        try {
+            for(int i = 1; i < args.length; i++) {
+                switch(args[i]) {
+                    case "--band":
+                        band = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--max-band":
+                        maxBand = Integer.parseInt(value(args, ++i));
+                        break;
+                    default:
+                        input = args[i];
+                }
+            }
+            if(band < 1 || maxBand < band)
+                throw new IllegalArgumentException("Band must be at least 1 and at most the maximum band, got " + band
+                        + " and " + maxBand);
+        } catch(IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: " + USAGE);
+            return EXIT_USAGE;
+        }
+
+        // Solve the puzzle, writing the rows as they are solved
+        long start = System.nanoTime();
+        try(InputStream stream = input.equals(STDIN) ? System.in : new FileInputStream(input)) {
+            BoxGridReader reader = new BoxGridReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            if(!reader.readHeader()) {
+                System.err.println("The input doesn't contain a puzzle");
+                return EXIT_IO;
+            }
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            BoxGridWriter writer = new BoxGridWriter(out);
+            writer.writeHeader(reader.getWidth(), reader.getHeight());
+
+            StreamingSolver solver = new StreamingSolver(reader.getWidth(), reader.getHeight(), reader::readRow,
+                    writer::writeRow);
+            solver.setBandHeight(band);
+            solver.setMaxBandHeight(maxBand);
+            SolverStatus status = solver.solve();
+            writer.flush();
+
+            // Report the result
+            System.err.println(status + ": wrote " + solver.getWrittenRows() + " of " + reader.getHeight()
+                    + " rows in " + (System.nanoTime() - start) / 1000000 + " ms, peak band "
+                    + solver.getPeakBandHeight() + " rows, " + solver.getGuessedRows() + " guessed rows, "
+                    + solver.getNodes() + " search nodes");
+            return status == SolverStatus.SOLVED ? 0 : EXIT_UNSOLVED;
+        } catch(IOException e) {
+            System.err.println("Failed to solve the puzzle: " + e.getMessage());
+            return EXIT_IO;
+        }
+    }
+
+    /**
+     * Get the value of an option.
+     *
+     * @param args The arguments.
+     * @param index The index of the value.
+     *
+     * @return The value.
+     *
+     * @throws IllegalArgumentException If the value is missing.
+     */
+    private static String value(String[] args, int index) {
+        if(index >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        return args[index];
+    }
+}
@@ -0,0 +1,427 @@
+package com.timvisee.loopsolver.frame;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.solver.SolverEventBuffer;
+import com.timvisee.loopsolver.solver.SolverPhase;
+import com.timvisee.loopsolver.tile.LoopTile;
+import com.timvisee.loopsolver.tile.LoopTileMask;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+public class GridCanvas extends JComponent implements Scrollable {
+
+    /** Serial version UID, instances are never serialized. */
+    private static final long serialVersionUID = 1L;
+
+    /** Largest width and height of a tile in pixels. */
+    public static final int MAX_TILE_SIZE = 50;
+
+    /** Largest number of pixels in the back buffer, tiles are drawn smaller for grids that would exceed it. */
+    private static final int MAX_BUFFER_PIXELS = 1 << 22;
+
+    /** Largest size of the visible part of the canvas when the frame is packed. */
+    private static final Dimension MAX_VIEWPORT_SIZE = new Dimension(1000, 800);
+
+    /** Value in the drawn states of a tile that wasn't drawn yet, which doesn't match any mask and state. */
+    private static final int NOT_DRAWN = TileAtlas.STATE_COUNT * LoopTileMask.MASK_COUNT;
+
+    /** Delay in milliseconds between two frames, to draw at 60 frames per second. */
+    public static final int FRAME_DELAY = 1000 / 60;
+
+    /** Number of events that are drained from the event buffer at once. */
+    private static final int DRAIN_SIZE = 4096;
+
+    /** The grid to draw. */
+    private final LoopGrid grid;
+
+    /** Grid width the buffers were created for. */
+    private int width;
+    /** Grid height the buffers were created for. */
+    private int height;
+
+    /** Pre-rendered tile sprites. */
+    private TileAtlas atlas;
+    /** Image holding the drawn grid, only tiles that changed are drawn into it again. */
+    private BufferedImage buffer;
+    /** For each tile, the mask and state it was last drawn with, or {@link #NOT_DRAWN}. */
+    private int[] drawn = new int[0];
+
+    /**
+     * The state of each tile as published by the solver, holding the mask and the solved bit like the grid does.
+     * This is only accessed on the event dispatch thread, so the solver can change the grid while it's drawn.
+     */
+    private byte[] cells = new byte[0];
+    /** Position of the tile the solver is working on, or -1. */
+    private int working = -1;
+    /** Position of the tile the solver is checking, or -1. */
+    private int checking = -1;
+
+    /** Positions of the tiles that may have to be drawn again. */
+    private int[] dirty = new int[0];
+    /** Number of positions in {@link #dirty}. */
+    private int dirtyCount = 0;
+    /** True if the state of all tiles should be read from the grid on the next frame. */
+    private volatile boolean resync = true;
+
+    /** Buffer the solver publishes its events to. */
+    private final SolverEventBuffer events = new SolverEventBuffer();
+    /** Array the events are drained into. */
+    private final long[] drained = new long[DRAIN_SIZE];
+
+    /** Timer drawing the frames. */
+    private final Timer frameTimer = new Timer(FRAME_DELAY, e -> drawFrame());
+
+    /** True if the tiles may be edited with the mouse, false while a solver is running. */
+    private boolean editable = true;
+
+    /**
+     * Constructor.
+     *
+     * @param grid The grid to draw.
+     */
+    public GridCanvas(LoopGrid grid) {
+        this.grid = grid;
+        setOpaque(true);
+
+        // Rotate tiles with the left mouse button, and change their shape with the right mouse button. The grid is
+        // changed without notifying the observer, so the solver stays the only thread publishing events
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                LoopTile tile = getTileAt(e.getX(), e.getY());
+                if(tile == null || !GridCanvas.this.editable)
+                    return;
+
+                final int position = tile.getPosition();
+                final int mask = tile.getMask();
+                if(e.getButton() == MouseEvent.BUTTON1)
+                    GridCanvas.this.grid.setMask(position, LoopTileMask.rotate(mask, LoopTile.TILE_ROTATE_CLOCKWISE));
+                else if(e.getButton() == MouseEvent.BUTTON3)
+                    GridCanvas.this.grid.setMask(position, nextShape(mask));
+                refresh();
+            }
+        });
+
+        // Create the buffers
+        rebuild();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        this.frameTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        this.frameTimer.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Get the grid.
+     *
+     * @return The grid.
+     */
+    public LoopGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Check whether the tiles may be edited with the mouse.
+     *
+     * @return True if editable, false if not.
+     */
+    public boolean isEditable() {
+        return this.editable;
+    }
+
+    /**
+     * Set whether the tiles may be edited with the mouse.
+     * Editing must be disabled while a solver is running, as the solver reads and writes the grid on its own thread.
+     * Must be called on the event dispatch thread.
+     *
+     * @param editable True if editable, false if not.
+     */
+    public void setEditable(boolean editable) {
+        this.editable = editable;
+    }
+
+    /**
+     * Get the buffer the solver should publish its events to.
+     * Set it as observer of the grid to show the progress of the solver. Publishing an event never blocks the solver,
+     * the canvas takes the events on the event dispatch thread once per frame.
+     *
+     * @return The event buffer.
+     */
+    public SolverEventBuffer getEventBuffer() {
+        return this.events;
+    }
+
+    /**
+     * Get the width and height of a tile.
+     *
+     * @return Tile size in pixels.
+     */
+    public int getTileSize() {
+        return this.atlas.getTileSize();
+    }
+
+    /**
+     * Get the tile at a point on the canvas.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     *
+     * @return The tile, or null if there's no tile at the point.
+     */
+    public LoopTile getTileAt(int x, int y) {
+        if(x < 0 || y < 0)
+            return null;
+        return this.grid.getTile(x / getTileSize(), y / getTileSize());
+    }
+
+    /**
+     * Create the buffers for the current grid size.
+     * This must be called on the event dispatch thread after the grid was resized.
+     */
+    public void rebuild() {
+        this.width = this.grid.getWidth();
+        this.height = this.grid.getHeight();
+
+        // Use the largest tile size for which the buffer isn't too large
+        long tiles = Math.max((long) this.width * this.height, 1);
+        int tileSize = (int) Math.max(Math.min(Math.sqrt((double) MAX_BUFFER_PIXELS / tiles), MAX_TILE_SIZE), 1);
+        if(this.atlas == null || this.atlas.getTileSize() != tileSize)
+            this.atlas = new TileAtlas(tileSize);
+
+        // Create the buffer, and draw all tiles into it
+        this.buffer = new BufferedImage(Math.max(this.width * tileSize, 1), Math.max(this.height * tileSize, 1), BufferedImage.TYPE_INT_RGB);
+        this.drawn = new int[this.width * this.height];
+        Arrays.fill(this.drawn, NOT_DRAWN);
+        this.cells = new byte[this.drawn.length];
+        this.dirty = new int[this.drawn.length];
+        this.dirtyCount = 0;
+        this.working = -1;
+        this.checking = -1;
+        this.resync = true;
+        for(int position = 0; position < this.drawn.length; position++)
+            markDirty(position);
+        drawFrame();
+
+        // Resize the component
+        setPreferredSize(new Dimension(this.width * tileSize, this.height * tileSize));
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Read the state of all tiles from the grid again on the next frame.
+     * Call this after the grid was changed without notifying the observer, such as when editing it. This may be called
+     * from any thread.
+     */
+    public void refresh() {
+        this.resync = true;
+    }
+
+    /**
+     * Take the events the solver published, and draw the tiles that changed since the last frame.
+     * Must be called on the event dispatch thread.
+     */
+    private void drawFrame() {
+        // Rebuild the buffers if the grid was resized
+        if(this.width != this.grid.getWidth() || this.height != this.grid.getHeight()) {
+            rebuild();
+            return;
+        }
+
+        // Apply the events, in batches, and read all tiles from the grid if events were dropped
+        boolean resync = this.events.pollOverflow();
+        int count;
+        do {
+            count = this.events.drain(this.drained);
+            for(int i = 0; i < count; i++)
+                resync |= applyEvent(this.drained[i]);
+        } while(count == this.drained.length);
+        if(resync || this.resync) {
+            this.resync = false;
+            for(int position = 0; position < this.cells.length; position++)
+                setCell(position, this.grid.getMask(position) | (this.grid.isSolved(position) ? LoopGrid.CELL_SOLVED : 0));
+        }
+
+        // Draw the tiles that changed
+        if(this.dirtyCount > 0)
+            drawDirty();
+    }
+
+    /**
+     * Apply an event of the solver to the state of the tiles.
+     *
+     * @param event The event.
+     *
+     * @return True if the state of all tiles should be read from the grid, false if not.
+     */
+    private boolean applyEvent(long event) {
+        final int position = SolverEventBuffer.getPosition(event);
+        switch(SolverEventBuffer.getType(event)) {
+            case SolverEventBuffer.EVENT_FOCUSED:
+                markDirty(this.working);
+                this.working = position;
+                markDirty(position);
+                return false;
+
+            case SolverEventBuffer.EVENT_CHECKED:
+                markDirty(this.checking);
+                this.checking = position;
+                markDirty(position);
+                return false;
+
+            case SolverEventBuffer.EVENT_CELL:
+                if(position >= 0 && position < this.cells.length)
+                    setCell(position, SolverEventBuffer.getCell(event));
+                return false;
+
+            default:
+                // The solver has written its final state to the grid when it finishes
+                return position == SolverPhase.FINISHED.ordinal();
+        }
+    }
+
+    /**
+     * Set the state of a tile, and mark it to be drawn again if it changed.
+     *
+     * @param position The tile position.
+     * @param cell The cell state, holding the mask and the solved bit.
+     */
+    private void setCell(int position, int cell) {
+        if(this.cells[position] == (byte) cell)
+            return;
+        this.cells[position] = (byte) cell;
+        markDirty(position);
+    }
+
+    /**
+     * Mark a tile to be drawn again on this frame.
+     *
+     * @param position The tile position, ignored if it isn't in the grid.
+     */
+    private void markDirty(int position) {
+        if(position < 0 || position >= this.drawn.length)
+            return;
+
+        // The drawn state of a marked tile is negative, so it's only added once
+        if(this.drawn[position] >= 0) {
+            this.drawn[position] = ~this.drawn[position];
+            this.dirty[this.dirtyCount++] = position;
+        }
+    }
+
+    /**
+     * Draw the marked tiles whose mask or state changed into the buffer, and repaint them.
+     */
+    private void drawDirty() {
+        // Draw the tiles that changed, and keep track of the area to repaint
+        final int tileSize = getTileSize();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+        Graphics2D g = this.buffer.createGraphics();
+        try {
+            for(int i = 0; i < this.dirtyCount; i++) {
+                // Determine the state, and skip the tile if it didn't change
+                final int position = this.dirty[i];
+                final int cell = this.cells[position];
+                int state = position == this.working ? TileAtlas.STATE_WORKING
+                        : position == this.checking ? TileAtlas.STATE_CHECKING
+                        : (cell & LoopGrid.CELL_SOLVED) != 0 ? TileAtlas.STATE_SOLVED : TileAtlas.STATE_NORMAL;
+                int mask = cell & LoopGrid.CELL_MASK;
+                int key = state * LoopTileMask.MASK_COUNT + mask;
+                int previous = ~this.drawn[position];
+                this.drawn[position] = key;
+                if(previous == key)
+                    continue;
+
+                // Draw the tile
+                int x = position % this.width;
+                int y = position / this.width;
+                this.atlas.draw(g, mask, state, x * tileSize, y * tileSize);
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+        } finally {
+            g.dispose();
+            this.dirtyCount = 0;
+        }
+
+        // Repaint the area of the tiles that changed
+        if(maxX >= 0)
+            repaint(minX * tileSize, minY * tileSize, (maxX - minX + 1) * tileSize, (maxY - minY + 1) * tileSize);
+    }
+
+    /**
+     * Get the next shape to cycle to when the shape of a tile is changed.
+     * The shapes are cycled from empty, to end, corner, straight, T-shape and cross.
+     *
+     * @param mask The current mask.
+     *
+     * @return The mask of the next shape.
+     */
+    private static int nextShape(int mask) {
+        switch(LoopTileMask.connectorCount(mask)) {
+            case 0:
+                return LoopTileMask.of(true, false, false, false);
+            case 1:
+                return LoopTileMask.of(true, true, false, false);
+            case 2:
+                return (mask == LoopTileMask.of(true, false, true, false) || mask == LoopTileMask.of(false, true, false, true))
+                        ? LoopTileMask.of(true, true, true, false) : LoopTileMask.of(true, false, true, false);
+            case 3:
+                return LoopTileMask.of(true, true, true, true);
+            default:
+                return LoopTileMask.MASK_EMPTY;
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        // Clear the area outside of the grid
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        if(clip != null)
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        // Copy the buffer, only the clipped area is copied
+        g.drawImage(this.buffer, 0, 0, null);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension size = getPreferredSize();
+        return new Dimension(Math.min(size.width, MAX_VIEWPORT_SIZE.width), Math.min(size.height, MAX_VIEWPORT_SIZE.height));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return getTileSize();
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
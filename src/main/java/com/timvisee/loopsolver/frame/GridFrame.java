@@ -3,24 +3,42 @@ package com.timvisee.loopsolver.frame;
 import com.timvisee.loopsolver.App;
 import com.timvisee.loopsolver.LoopSolver;
 import com.timvisee.loopsolver.grid.LoopGrid;
-import com.timvisee.loopsolver.tile.LoopTile;
-import com.timvisee.loopsolver.tile.LoopTileDrawable;
+import com.timvisee.loopsolver.io.BoxGridReader;
+import com.timvisee.loopsolver.io.BoxGridWriter;
+import com.timvisee.loopsolver.io.SolveTrace;
+import com.timvisee.loopsolver.io.TraceReader;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 public class GridFrame extends JFrame {
 
+    /** Serial version UID, instances are never serialized. */
+    private static final long serialVersionUID = 1L;
+
     /** Frame title. */
     private static final String FORM_TITLE = LoopSolver.APP_NAME;
 
-    public static final int TILE_WIDTH = 50;
-
     private LoopGrid grid;
 
-    private List<LoopTileDrawable> tiles = new ArrayList<>();
+    /** Canvas the grid is drawn on. */
+    private GridCanvas canvas;
+    /** Controls of the trace that is replayed, or null. */
+    private ReplayPanel replayPanel;
+
+    /** Menu items that start a solver or change the grid, which are disabled while a solver is running. */
+    private final List<JMenuItem> editItems = new ArrayList<>();
+    /** Menu item to cancel the running solver, which is only enabled while a solver is running. */
+    private JMenuItem cancelItem;
 
     /**
      * Constructor.
@@ -35,6 +53,9 @@ public class GridFrame extends JFrame {
         // Create the form UI
         createUIComponents();
 
+        // Show the solver progress in this frame, the canvas takes the events of the solver once per frame
+        this.grid.setObserver(this.canvas.getEventBuffer());
+
         // Close application when closing form
         this.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
 
@@ -49,10 +70,10 @@ public class GridFrame extends JFrame {
         // Create the menu bar
         createMenuBar();
 
-        // Create and add the grid panel
-        JPanel drawableGrid = createGridPanel();
-        App.instance.setDrawableGrid(drawableGrid);
-        this.add(drawableGrid);
+        // Create and add the grid canvas, scrollable for grids that don't fit on the screen
+        this.canvas = new GridCanvas(this.grid);
+        App.instance.setDrawableGrid(this.canvas);
+        this.add(new JScrollPane(this.canvas));
 
         // Pack all components
         this.pack();
@@ -65,34 +86,6 @@ public class GridFrame extends JFrame {
         this.setLocationRelativeTo(null);
     }
 
-    /**
-     * Create the grid panel.
-     *
-     * @return The grid panel.
-     */
-    private JPanel createGridPanel() {
-        // Clear the current list of drawable tiles
-        this.tiles.clear();
-
-        // Create a panel to put the grid in
-        JPanel gridPanel = new JPanel();
-        gridPanel.setPreferredSize(new Dimension(this.grid.getWidth() * TILE_WIDTH, this.grid.getHeight() * TILE_WIDTH));
-        gridPanel.setLayout(new GridLayout(this.grid.getHeight(), this.grid.getWidth()));
-
-        // Add the tiles
-        for(int i = 0; i < this.grid.getTotal(); i++) {
-            // Create drawable tile
-            LoopTileDrawable drawable = new LoopTileDrawable(this.grid.getTile(i));
-
-            // Add the drawable tile to the list and add it to the frame
-            this.tiles.add(drawable);
-            gridPanel.add(drawable);
-        }
-
-        // Return the panel
-        return gridPanel;
-    }
-
     /**
      * Create the menu bar
      */
@@ -114,6 +107,83 @@ public class GridFrame extends JFrame {
             //JOptionPane.showMessageDialog(frame, "Solve feature not implemented yet!");
         });
         solverMenu.add(solveItem);
+        this.editItems.add(solveItem);
+
+        // Create the record item
+        JMenuItem recordItem = new JMenuItem("Solve and record...");
+        recordItem.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if(chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION)
+                App.instance.solve(chooser.getSelectedFile());
+        });
+        solverMenu.add(recordItem);
+        this.editItems.add(recordItem);
+
+        // Create the cancel item
+        this.cancelItem = new JMenuItem("Cancel");
+        this.cancelItem.addActionListener(e -> App.instance.cancelSolve());
+        this.cancelItem.setEnabled(false);
+        solverMenu.add(this.cancelItem);
+
+        // Create the uniqueness check item
+        JMenuItem uniqueItem = new JMenuItem("Check uniqueness");
+        uniqueItem.addActionListener(e -> App.instance.checkUniqueness());
+        solverMenu.add(uniqueItem);
+        this.editItems.add(uniqueItem);
+
+        // Create the solution count item
+        JMenuItem countItem = new JMenuItem("Count solutions");
+        countItem.addActionListener(e -> App.instance.countSolutions());
+        solverMenu.add(countItem);
+        this.editItems.add(countItem);
+
+        // Create the search threads menu, with powers of two up to the number of processors
+        JMenu threadsMenu = new JMenu("Search threads");
+        ButtonGroup threadsGroup = new ButtonGroup();
+        final int processors = Runtime.getRuntime().availableProcessors();
+        for(int threads = 1; ; threads = Math.min(threads * 2, processors)) {
+            final int count = threads;
+            JRadioButtonMenuItem threadsItem = new JRadioButtonMenuItem(count + (count == 1 ? " thread" : " threads"));
+            threadsItem.setSelected(count == App.instance.getSearchThreads());
+            threadsItem.addActionListener(e -> App.instance.setSearchThreads(count));
+            threadsGroup.add(threadsItem);
+            threadsMenu.add(threadsItem);
+            if(threads == processors)
+                break;
+        }
+        solverMenu.add(threadsMenu);
+
+        // Add a solve menu separator
+        solverMenu.addSeparator();
+
+        // Create the open item
+        JMenuItem openItem = new JMenuItem("Open...");
+        openItem.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if(chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION)
+                openGrid(chooser.getSelectedFile());
+        });
+        solverMenu.add(openItem);
+        this.editItems.add(openItem);
+
+        // Create the save item
+        JMenuItem saveItem = new JMenuItem("Save...");
+        saveItem.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if(chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION)
+                saveGrid(chooser.getSelectedFile());
+        });
+        solverMenu.add(saveItem);
+
+        // Create the replay item
+        JMenuItem replayItem = new JMenuItem("Replay trace...");
+        replayItem.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if(chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION)
+                openTrace(chooser.getSelectedFile());
+        });
+        solverMenu.add(replayItem);
+        this.editItems.add(replayItem);
 
         // Add a solve menu separator
         solverMenu.addSeparator();
@@ -157,18 +227,118 @@ public class GridFrame extends JFrame {
     }
 
     /**
-     * Get the drawable tile for a grid tile.
+     * Show whether a solver is running.
+     * While a solver is running, it's the only thread that may change the grid and publish events to the canvas.
+     * Editing tiles, opening a grid, replaying a trace and starting another solver are blocked until it finishes.
+     * Must be called on the event dispatch thread.
      *
-     * @param tile The tile.
+     * @param busy True if a solver is running, false if not.
+     */
+    public void setBusy(boolean busy) {
+        // Stop replaying, the replay changes the grid as well
+        if(busy)
+            closeReplay();
+
+        for(JMenuItem item : this.editItems)
+            item.setEnabled(!busy);
+        this.cancelItem.setEnabled(busy);
+        this.canvas.setEditable(!busy);
+    }
+
+    /**
+     * Load the first grid from a file in the box drawing format, and show it in this frame.
+     * This does nothing while a solver is running.
      *
-     * @return The drawable tile.
+     * @param file The file.
      */
-    public LoopTileDrawable getDrawableTile(LoopTile tile) {
-        // Make sure the tile isn't null
-        if(tile == null)
-            return null;
+    public void openGrid(File file) {
+        if(App.instance.isBusy())
+            return;
+
+        // Read the grid, and keep the current grid if that fails
+        LoopGrid loaded;
+        try(BoxGridReader reader = new BoxGridReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            loaded = reader.read();
+        } catch(IOException e) {
+            JOptionPane.showMessageDialog(this, "Failed to open the grid:\n" + e.getMessage(), FORM_TITLE, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if(loaded == null) {
+            JOptionPane.showMessageDialog(this, "The file doesn't contain a grid.", FORM_TITLE, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Copy the tiles into the grid of this frame
+        this.grid.setSize(loaded.getWidth(), loaded.getHeight());
+        for(int i = 0; i < loaded.getTotal(); i++)
+            this.grid.setMask(i, loaded.getMask(i));
 
-        // Return the drawable tile
-        return this.tiles.get(this.grid.getTilePosition(tile.getX(), tile.getY()));
+        // Redraw the grid, the grid size may have changed
+        this.canvas.rebuild();
+        this.pack();
+    }
+
+    /**
+     * Load a solve trace from a file, and show the controls to replay it in this frame.
+     * The grid is set to the state it had when the recording started. This does nothing while a solver is running.
+     *
+     * @param file The file.
+     */
+    public void openTrace(File file) {
+        if(App.instance.isBusy())
+            return;
+
+        // Read the trace, and keep the current grid if that fails
+        SolveTrace trace;
+        try(TraceReader reader = new TraceReader(new FileInputStream(file))) {
+            trace = reader.read();
+        } catch(IOException e) {
+            JOptionPane.showMessageDialog(this, "Failed to open the trace:\n" + e.getMessage(), FORM_TITLE, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Replace the controls of the current replay
+        closeReplay();
+        this.replayPanel = new ReplayPanel(new TraceReplay(trace, this.grid, this.canvas), this::closeReplay);
+        this.add(this.replayPanel, BorderLayout.SOUTH);
+
+        // Redraw the grid, the grid size may have changed
+        this.canvas.rebuild();
+        this.pack();
+    }
+
+    /**
+     * Stop replaying, and remove the replay controls from this frame.
+     * The grid keeps the state of the replay.
+     */
+    public void closeReplay() {
+        if(this.replayPanel == null)
+            return;
+        this.replayPanel.setPlaying(false);
+        this.remove(this.replayPanel);
+        this.replayPanel = null;
+        this.pack();
+    }
+
+    /**
+     * Save the grid to a file in the box drawing format.
+     *
+     * @param file The file.
+     */
+    public void saveGrid(File file) {
+        try(BoxGridWriter writer = new BoxGridWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write(this.grid);
+        } catch(IOException e) {
+            JOptionPane.showMessageDialog(this, "Failed to save the grid:\n" + e.getMessage(), FORM_TITLE, JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Get the canvas the grid is drawn on.
+     *
+     * @return Grid canvas.
+     */
+    public GridCanvas getCanvas() {
+        return this.canvas;
     }
 }
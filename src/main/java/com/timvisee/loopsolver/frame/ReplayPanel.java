@@ -0,0 +1,162 @@
+package com.timvisee.loopsolver.frame;
+
+import javax.swing.*;
+import java.awt.*;
+
+public class ReplayPanel extends JPanel {
+
+    /** Serial version UID, instances are never serialized. */
+    private static final long serialVersionUID = 1L;
+
+    /** The replay speeds to choose from, in events per second. */
+    private static final Integer[] SPEEDS = {10, 30, 100, 1000, 10000, 100000, 1000000};
+    /** Index of the default speed. */
+    private static final int DEFAULT_SPEED = 2;
+
+    /** Number of steps of the seek slider. */
+    private static final int SLIDER_STEPS = 10000;
+
+    /** The replay. */
+    private final TraceReplay replay;
+
+    /** Button to play and pause. */
+    private final JButton playButton = new JButton("Play");
+    /** Box to choose the speed in, events per second can also be typed. */
+    private final JComboBox<Integer> speedBox = new JComboBox<>(SPEEDS);
+    /** Slider to seek with. */
+    private final JSlider slider = new JSlider(0, SLIDER_STEPS, 0);
+    /** Label showing the position. */
+    private final JLabel positionLabel = new JLabel();
+
+    /** Timer replaying the events while playing. */
+    private final Timer timer = new Timer(GridCanvas.FRAME_DELAY, e -> step());
+    /** {@link System#nanoTime()} of the last step. */
+    private long lastStep;
+    /** Fraction of an event that is left from the last step. */
+    private double pending;
+
+    /** True while the slider is moved to show the position, so it doesn't seek. */
+    private boolean updatingSlider = false;
+
+    /**
+     * Constructor.
+     *
+     * @param replay The replay to control.
+     * @param closeAction Called when the close button is pressed.
+     */
+    public ReplayPanel(TraceReplay replay, Runnable closeAction) {
+        super(new BorderLayout(5, 0));
+        this.replay = replay;
+        setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        // Play and pause with the play button
+        this.playButton.addActionListener(e -> setPlaying(!this.timer.isRunning()));
+
+        // Let the user choose or type the speed
+        this.speedBox.setEditable(true);
+        this.speedBox.setSelectedIndex(DEFAULT_SPEED);
+        this.speedBox.setToolTipText("Events per second");
+
+        // Seek when the slider is moved by the user
+        this.slider.addChangeListener(e -> {
+            if(!this.updatingSlider)
+                seek((int) ((long) this.replay.getTrace().getLength() * this.slider.getValue() / SLIDER_STEPS));
+        });
+
+        // Stop replaying when closed
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> {
+            setPlaying(false);
+            closeAction.run();
+        });
+
+        // Lay out the controls
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        buttons.add(this.playButton);
+        buttons.add(this.speedBox);
+        buttons.add(new JLabel("events/s"));
+        JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        right.add(this.positionLabel);
+        right.add(closeButton);
+        add(buttons, BorderLayout.WEST);
+        add(this.slider, BorderLayout.CENTER);
+        add(right, BorderLayout.EAST);
+        updatePosition();
+    }
+
+    /**
+     * Start or pause the replay.
+     * Starting a replay that is done starts it over.
+     *
+     * @param playing True to play, false to pause.
+     */
+    public void setPlaying(boolean playing) {
+        if(playing == this.timer.isRunning())
+            return;
+
+        if(playing) {
+            if(this.replay.isDone())
+                seek(0);
+            this.lastStep = System.nanoTime();
+            this.pending = 0;
+            this.timer.start();
+        } else
+            this.timer.stop();
+        this.playButton.setText(playing ? "Pause" : "Play");
+    }
+
+    /**
+     * Get the chosen speed.
+     *
+     * @return Events per second, at least 1.
+     */
+    private double getSpeed() {
+        Object selected = this.speedBox.getSelectedItem();
+        try {
+            return Math.max(Double.parseDouble(String.valueOf(selected)), 1);
+        } catch(NumberFormatException e) {
+            return SPEEDS[DEFAULT_SPEED];
+        }
+    }
+
+    /**
+     * Replay the events for the time since the last step.
+     */
+    private void step() {
+        // Determine the number of events to replay
+        long now = System.nanoTime();
+        this.pending += getSpeed() * (now - this.lastStep) / 1e9;
+        this.lastStep = now;
+        int count = (int) Math.min(this.pending, Integer.MAX_VALUE);
+        this.pending -= count;
+
+        // Replay them, and stop at the end of the trace
+        seek((int) Math.min((long) this.replay.getPosition() + count, this.replay.getTrace().getLength()));
+        if(this.replay.isDone())
+            setPlaying(false);
+    }
+
+    /**
+     * Replay the trace up to an event, and show the position.
+     *
+     * @param index The index of the event.
+     */
+    private void seek(int index) {
+        this.replay.seek(index);
+        updatePosition();
+    }
+
+    /**
+     * Show the position of the replay.
+     */
+    private void updatePosition() {
+        final int length = this.replay.getTrace().getLength();
+        final int position = this.replay.getPosition();
+        this.positionLabel.setText(position + " / " + length);
+
+        // Move the slider without seeking
+        this.updatingSlider = true;
+        this.slider.setValue(length > 0 ? (int) ((long) position * SLIDER_STEPS / length) : 0);
+        this.updatingSlider = false;
+    }
+}
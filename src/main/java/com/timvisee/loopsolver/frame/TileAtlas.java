@@ -0,0 +1,138 @@
+package com.timvisee.loopsolver.frame;
+
+import com.timvisee.loopsolver.tile.LoopTileMask;
+import com.timvisee.loopsolver.tile.LoopTileSide;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class TileAtlas {
+
+    /** State of a tile that isn't solved. */
+    public static final int STATE_NORMAL = 0;
+    /** State of a solved tile. */
+    public static final int STATE_SOLVED = 1;
+    /** State of the tile the solver is working on. */
+    public static final int STATE_WORKING = 2;
+    /** State of the tile the solver is checking. */
+    public static final int STATE_CHECKING = 3;
+    /** Number of tile states. */
+    public static final int STATE_COUNT = 4;
+
+    /** Background color for each tile state. */
+    private static final Color[] STATE_COLORS = {
+            new Color(238, 238, 238),
+            Color.GREEN,
+            new Color(0, 125, 0),
+            Color.ORANGE
+    };
+
+    /** Tube color. */
+    public static final Color COLOR_TUBE = new Color(45, 45, 45);
+    /** Center color. */
+    public static final Color COLOR_CENTER = new Color(25, 25, 25);
+    /** Center color of an empty tile. */
+    public static final Color COLOR_CENTER_EMPTY = Color.GRAY;
+    /** Border color. */
+    public static final Color COLOR_BORDER = Color.GRAY;
+
+    /** Smallest tile size in pixels that is drawn with a border. */
+    private static final int BORDER_MIN_SIZE = 8;
+
+    /** Width and height of a tile in pixels. */
+    private final int tileSize;
+
+    /** Image holding a sprite for every mask in every state, one column per mask and one row per state. */
+    private final BufferedImage image;
+
+    /**
+     * Constructor.
+     * This renders the sprites of all tiles.
+     *
+     * @param tileSize Width and height of a tile in pixels.
+     */
+    public TileAtlas(int tileSize) {
+        if(tileSize < 1)
+            throw new IllegalArgumentException("Tile size must be at least 1, got " + tileSize);
+        this.tileSize = tileSize;
+
+        // Render every mask in every state
+        this.image = new BufferedImage(LoopTileMask.MASK_COUNT * tileSize, STATE_COUNT * tileSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = this.image.createGraphics();
+        try {
+            for(int state = 0; state < STATE_COUNT; state++)
+                for(int mask = 0; mask < LoopTileMask.MASK_COUNT; mask++)
+                    render(g, mask, state, mask * tileSize, state * tileSize);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Get the width and height of a tile.
+     *
+     * @return Tile size in pixels.
+     */
+    public int getTileSize() {
+        return this.tileSize;
+    }
+
+    /**
+     * Draw the sprite of a tile.
+     *
+     * @param g The graphics to draw on.
+     * @param mask The connector mask of the tile.
+     * @param state The state of the tile.
+     * @param x The x coordinate to draw at.
+     * @param y The y coordinate to draw at.
+     */
+    public void draw(Graphics g, int mask, int state, int x, int y) {
+        final int sx = mask * this.tileSize;
+        final int sy = state * this.tileSize;
+        g.drawImage(this.image, x, y, x + this.tileSize, y + this.tileSize, sx, sy, sx + this.tileSize, sy + this.tileSize, null);
+    }
+
+    /**
+     * Render the sprite of a tile.
+     *
+     * @param g The graphics to render on.
+     * @param mask The connector mask of the tile.
+     * @param state The state of the tile.
+     * @param x The x coordinate of the sprite.
+     * @param y The y coordinate of the sprite.
+     */
+    private void render(Graphics2D g, int mask, int state, int x, int y) {
+        final int size = this.tileSize;
+
+        // Draw the background
+        g.setColor(STATE_COLORS[state]);
+        g.fillRect(x, y, size, size);
+
+        // Draw the border, unless the tile is too small
+        if(size >= BORDER_MIN_SIZE) {
+            g.setColor(COLOR_BORDER);
+            g.drawRect(x, y, size - 1, size - 1);
+        }
+
+        // Determine the tube width and circle size
+        int half = size / 2;
+        int tubeSize = Math.max((int) (size / 6.5f), 1);
+        int circleSize = (int) (tubeSize * 2.25f);
+
+        // Draw the tubes
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(COLOR_TUBE);
+        if(LoopTileMask.hasSide(mask, LoopTileSide.TOP))
+            g.fillRect(x + half - tubeSize / 2, y, tubeSize, half);
+        if(LoopTileMask.hasSide(mask, LoopTileSide.RIGHT))
+            g.fillRect(x + half, y + half - tubeSize / 2, size - half, tubeSize);
+        if(LoopTileMask.hasSide(mask, LoopTileSide.BOTTOM))
+            g.fillRect(x + half - tubeSize / 2, y + half, tubeSize, size - half);
+        if(LoopTileMask.hasSide(mask, LoopTileSide.LEFT))
+            g.fillRect(x, y + half - tubeSize / 2, half, tubeSize);
+
+        // Draw the center
+        g.setColor(mask == LoopTileMask.MASK_EMPTY ? COLOR_CENTER_EMPTY : COLOR_CENTER);
+        g.fillOval(x + half - circleSize / 2, y + half - circleSize / 2, circleSize, circleSize);
+    }
+}
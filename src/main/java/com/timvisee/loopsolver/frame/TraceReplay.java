@@ -0,0 +1,102 @@
+package com.timvisee.loopsolver.frame;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.io.SolveTrace;
+import com.timvisee.loopsolver.solver.SolverEventBuffer;
+
+public class TraceReplay {
+
+    /** The trace to replay. */
+    private final SolveTrace trace;
+    /** The grid the trace is replayed on. */
+    private final LoopGrid grid;
+    /** The canvas showing the grid. */
+    private final GridCanvas canvas;
+
+    /** Index of the next event to replay. */
+    private int position = 0;
+
+    /**
+     * Constructor.
+     * This sets the grid to the state it had when the recording started.
+     *
+     * @param trace The trace to replay.
+     * @param grid The grid to replay the trace on, it's resized to the size of the trace.
+     * @param canvas The canvas showing the grid.
+     */
+    public TraceReplay(SolveTrace trace, LoopGrid grid, GridCanvas canvas) {
+        this.trace = trace;
+        this.grid = grid;
+        this.canvas = canvas;
+        rewind();
+    }
+
+    /**
+     * Get the trace.
+     *
+     * @return The trace.
+     */
+    public SolveTrace getTrace() {
+        return this.trace;
+    }
+
+    /**
+     * Get the index of the next event to replay.
+     *
+     * @return The index, equal to the trace length if the replay is done.
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Check whether all events were replayed.
+     *
+     * @return True if the replay is done.
+     */
+    public boolean isDone() {
+        return this.position >= this.trace.getLength();
+    }
+
+    /**
+     * Replay the trace up to an event.
+     * Seeking back starts the replay over from the start of the trace, replaying events only updates the grid so this
+     * takes a few milliseconds even for millions of events.
+     * Must be called on the event dispatch thread.
+     *
+     * @param index The index of the event to replay up to, exclusive.
+     */
+    public void seek(int index) {
+        index = Math.max(0, Math.min(index, this.trace.getLength()));
+        if(index < this.position)
+            rewind();
+
+        // Replay the events, the canvas reads the whole grid again if there are too many to show one by one
+        SolverEventBuffer events = this.canvas.getEventBuffer();
+        for(; this.position < index; this.position++) {
+            final long event = this.trace.getEvent(this.position);
+            final int type = SolverEventBuffer.getType(event);
+            final int position = SolverEventBuffer.getPosition(event);
+            final int cell = SolverEventBuffer.getCell(event);
+            if(type == SolverEventBuffer.EVENT_CELL) {
+                this.grid.setMask(position, cell & LoopGrid.CELL_MASK);
+                this.grid.setSolved(position, (cell & LoopGrid.CELL_SOLVED) != 0);
+            }
+            events.offer(type, position, cell);
+        }
+    }
+
+    /**
+     * Set the grid to the state it had when the recording started.
+     */
+    private void rewind() {
+        this.trace.reset(this.grid);
+        this.position = 0;
+
+        // Clear the focused and checked tile, and draw the whole grid again
+        SolverEventBuffer events = this.canvas.getEventBuffer();
+        events.offer(SolverEventBuffer.EVENT_FOCUSED, -1, 0);
+        events.offer(SolverEventBuffer.EVENT_CHECKED, -1, 0);
+        this.canvas.refresh();
+    }
+}
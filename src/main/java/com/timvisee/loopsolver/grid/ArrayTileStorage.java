@@ -0,0 +1,62 @@
+package com.timvisee.loopsolver.grid;
+
+import java.util.Arrays;
+
+final class ArrayTileStorage implements TileStorage {
+
+    /**
+     * The state of all tiles, one byte per tile in row-major order.
+     * Each byte holds the connector mask of the tile, and the {@link LoopGrid#CELL_SOLVED} bit.
+     */
+    private final byte[] cells;
+
+    /**
+     * Constructor.
+     *
+     * @param total Number of tiles, which are empty.
+     */
+    ArrayTileStorage(int total) {
+        this.cells = new byte[total];
+    }
+
+    @Override
+    public int getTotal() {
+        return this.cells.length;
+    }
+
+    @Override
+    public int getMask(int position) {
+        return this.cells[position] & LoopGrid.CELL_MASK;
+    }
+
+    @Override
+    public void setMask(int position, int mask) {
+        this.cells[position] = (byte) (mask & LoopGrid.CELL_MASK);
+    }
+
+    @Override
+    public boolean isSolved(int position) {
+        return (this.cells[position] & LoopGrid.CELL_SOLVED) != 0;
+    }
+
+    @Override
+    public void setSolved(int position, boolean solved) {
+        if(solved)
+            this.cells[position] |= LoopGrid.CELL_SOLVED;
+        else
+            this.cells[position] &= ~LoopGrid.CELL_SOLVED;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.cells, (byte) 0);
+    }
+
+    @Override
+    public TileStorage resize(int total) {
+        return new ArrayTileStorage(total);
+    }
+
+    @Override
+    public void flush() { }
+}
@@ -0,0 +1,137 @@
+package com.timvisee.loopsolver.grid;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+final class BufferTileStorage implements TileStorage {
+
+    /** Number of tiles. */
+    private final int total;
+
+    /**
+     * The buffer holding the tiles, see {@link LoopGrid#getBufferSize(int)} for the layout.
+     * Absolute indices are used, so the position and limit of the buffer are ignored.
+     */
+    private final ByteBuffer buffer;
+
+    /** Index of the first byte of the solved bits in the buffer. */
+    private final int solvedOffset;
+
+    /**
+     * Constructor.
+     *
+     * @param total Number of tiles.
+     * @param buffer The buffer holding the tiles, with a capacity of at least {@link LoopGrid#getBufferSize(int)}.
+     */
+    BufferTileStorage(int total, ByteBuffer buffer) {
+        if(buffer.capacity() < LoopGrid.getBufferSize(total))
+            throw new IllegalArgumentException("Buffer of " + buffer.capacity() + " bytes is too small for " + total
+                    + " tiles, " + LoopGrid.getBufferSize(total) + " bytes are needed");
+        if(buffer.isReadOnly())
+            throw new IllegalArgumentException("Buffer is read-only");
+        this.total = total;
+        this.buffer = buffer;
+        this.solvedOffset = (int) getMaskBytes(total);
+    }
+
+    /**
+     * Get the number of bytes the connector masks of the tiles take, two tiles per byte.
+     *
+     * @param total Number of tiles.
+     *
+     * @return Number of bytes.
+     */
+    static long getMaskBytes(int total) {
+        return ((long) total + 1) / 2;
+    }
+
+    /**
+     * Get the number of bytes the solved bits of the tiles take, eight tiles per byte.
+     *
+     * @param total Number of tiles.
+     *
+     * @return Number of bytes.
+     */
+    static long getSolvedBytes(int total) {
+        return ((long) total + 7) / 8;
+    }
+
+    /**
+     * Get the shift of the nibble of a tile in its byte, the first tile is stored in the high nibble.
+     *
+     * @param position The position of the tile.
+     *
+     * @return The shift.
+     */
+    private static int nibbleShift(int position) {
+        return (~position & 1) << 2;
+    }
+
+    @Override
+    public int getTotal() {
+        return this.total;
+    }
+
+    @Override
+    public int getMask(int position) {
+        checkPosition(position);
+        return (this.buffer.get(position >>> 1) >>> nibbleShift(position)) & LoopGrid.CELL_MASK;
+    }
+
+    @Override
+    public void setMask(int position, int mask) {
+        checkPosition(position);
+
+        // Replace the nibble of the tile, and keep the other tile in the byte
+        final int index = position >>> 1;
+        final int shift = nibbleShift(position);
+        final int other = this.buffer.get(index) & ~(LoopGrid.CELL_MASK << shift);
+        this.buffer.put(index, (byte) (other | (mask & LoopGrid.CELL_MASK) << shift));
+        setSolved(position, false);
+    }
+
+    @Override
+    public boolean isSolved(int position) {
+        checkPosition(position);
+        return (this.buffer.get(this.solvedOffset + (position >>> 3)) & 1 << (position & 7)) != 0;
+    }
+
+    @Override
+    public void setSolved(int position, boolean solved) {
+        checkPosition(position);
+        final int index = this.solvedOffset + (position >>> 3);
+        final int bit = 1 << (position & 7);
+        final int bits = this.buffer.get(index);
+        this.buffer.put(index, (byte) (solved ? bits | bit : bits & ~bit));
+    }
+
+    /**
+     * Make sure a position is in the grid.
+     * The buffer may be larger than the grid, so its own bounds check isn't enough.
+     *
+     * @param position The position.
+     */
+    private void checkPosition(int position) {
+        if(position < 0 || position >= this.total)
+            throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + this.total);
+    }
+
+    @Override
+    public void clear() {
+        final int size = (int) LoopGrid.getBufferSize(this.total);
+        for(int i = 0; i < size; i++)
+            this.buffer.put(i, (byte) 0);
+    }
+
+    @Override
+    public TileStorage resize(int total) {
+        throw new UnsupportedOperationException("A grid stored in a buffer can't be resized");
+    }
+
+    @Override
+    public void flush() {
+        // Only mapped buffers are backed by a file, forcing other direct buffers does nothing
+        if(this.buffer instanceof MappedByteBuffer)
+            ((MappedByteBuffer) this.buffer).force();
+    }
+}
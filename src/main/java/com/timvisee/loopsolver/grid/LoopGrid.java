@@ -1,26 +1,56 @@
 package com.timvisee.loopsolver.grid;
 
-import com.timvisee.loopsolver.App;
+import com.timvisee.loopsolver.solver.SolverObserver;
 import com.timvisee.loopsolver.tile.LoopTile;
+import com.timvisee.loopsolver.tile.LoopTileMask;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Random;
 
 public class LoopGrid {
 
+    /** Cell bits holding the connector mask of a tile. */
+    public static final int CELL_MASK = LoopTileMask.MASK_ALL;
+    /** Cell bit that is set if a tile is solved. */
+    public static final int CELL_SOLVED = 1 << LoopTile.TILE_SIDES;
+
     /** Grid width. */
     private int width;
     /** Grid height. */
     private int height;
 
-    /** List of tiles in this grid. */
-    private List<LoopTile> tiles = new ArrayList<>();
+    /** The state of all tiles in this grid, in row-major order. */
+    private TileStorage storage = new ArrayTileStorage(0);
+
+    /** Read-only list view of the tiles in this grid. */
+    private final List<LoopTile> tiles = new AbstractList<LoopTile>() {
+        @Override
+        public LoopTile get(int index) {
+            // Make sure the index is valid
+            if(!isPositionInGrid(index))
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getTotal());
+
+            // Return the tile
+            return getTile(index);
+        }
+
+        @Override
+        public int size() {
+            return getTotal();
+        }
+    };
 
     /** The tile the solver is currently working on. */
     private LoopTile workingTile = null;
     /** The tile the solver is currently checking. */
     private LoopTile checkingTile = null;
 
+    /** Observer that is notified about solver progress on this grid. */
+    private SolverObserver observer = SolverObserver.NONE;
+
     /**
      * Constructor.
      *
@@ -31,6 +61,62 @@ public class LoopGrid {
         setSize(width, height);
     }
 
+    /**
+     * Constructor, storing the tiles in a buffer instead of on the heap.
+     * The tiles are read and written in place, so a buffer mapped from a file with
+     * {@link java.nio.channels.FileChannel#map} holds the grid in the file, see {@link #flush()}. The grid can't be
+     * resized. The buffer isn't cleared, so the grid holds the tiles the buffer already has.
+     *
+     * The buffer holds the connector masks of the tiles in row-major order as 4-bit nibbles, two tiles per byte with
+     * the first tile in the high nibble. These are followed by the solved bits, eight tiles per byte with the first
+     * tile in the lowest bit. The buffer is used from index zero, its position and limit are ignored.
+     * Unlike the heap storage, tiles share bytes, so tiles must not be changed from multiple threads at once.
+     *
+     * Only the grid itself is kept off the heap. The solvers keep the remaining rotations, the trail and the search
+     * state of every tile on the heap, which takes about 30 bytes per tile, against a single byte per tile for the
+     * heap storage. A grid stored in a buffer therefore can't be solved in less heap than the same grid stored on the
+     * heap, the buffer only saves the heap of grids that are kept, read or written without being solved.
+     *
+     * @param width Grid width.
+     * @param height Grid height.
+     * @param buffer The buffer, with a capacity of at least {@link #getBufferSize(int)}.
+     */
+    public LoopGrid(int width, int height, ByteBuffer buffer) {
+        if(width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid grid size " + width + "x" + height);
+        this.width = width;
+        this.height = height;
+        this.storage = new BufferTileStorage(width * height, buffer);
+    }
+
+    /**
+     * Create a grid that is stored in a direct buffer outside of the heap.
+     * The grid is filled with empty tiles. Solving the grid still takes heap, see
+     * {@link #LoopGrid(int, int, ByteBuffer)}.
+     *
+     * @param width Grid width.
+     * @param height Grid height.
+     *
+     * @return The grid.
+     */
+    public static LoopGrid allocateDirect(int width, int height) {
+        if(width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid grid size " + width + "x" + height);
+        return new LoopGrid(width, height, ByteBuffer.allocateDirect((int) getBufferSize(width * height)));
+    }
+
+    /**
+     * Get the number of bytes a buffer needs to hold the tiles of a grid.
+     * See {@link #LoopGrid(int, int, ByteBuffer)} for the layout.
+     *
+     * @param total Number of tiles.
+     *
+     * @return Number of bytes.
+     */
+    public static long getBufferSize(int total) {
+        return BufferTileStorage.getMaskBytes(total) + BufferTileStorage.getSolvedBytes(total);
+    }
+
     /**
      * Get the grid width.
      *
@@ -55,14 +141,20 @@ public class LoopGrid {
      *
      * @param width Grid width.
      * @param height Grid height.
+     *
+     * @throws UnsupportedOperationException If the grid is stored in a buffer and the number of tiles changes.
      */
     public void setSize(int width, int height) {
+        // Allocate the tiles, which are empty by default, and keep the storage if the number of tiles doesn't change
+        final int total = width * height;
+        if(total == this.storage.getTotal())
+            this.storage.clear();
+        else
+            this.storage = this.storage.resize(total);
+
         // Set the width and height
         this.width = width;
         this.height = height;
-
-        // Fill the list with empty tiles
-        fillWithEmpty();
     }
 
     /**
@@ -164,6 +256,7 @@ public class LoopGrid {
 
     /**
      * Get the tile at a specific position.
+     * The returned tile is a lightweight view on the state stored in this grid.
      *
      * @param position The position in the tile list.
      *
@@ -174,12 +267,13 @@ public class LoopGrid {
         if(!isPositionInGrid(position))
             return null;
 
-        // Return the tile
-        return this.tiles.get(position);
+        // Return a view on the tile
+        return new LoopTile(this, position % this.width, position / this.width);
     }
 
     /**
      * Set the tile at a specific location.
+     * This copies the sides and solved state of the given tile.
      *
      * @param x The x coordinate.
      * @param y The y coordinate.
@@ -192,6 +286,7 @@ public class LoopGrid {
 
     /**
      * Set the tile at a specific position.
+     * This copies the sides and solved state of the given tile.
      *
      * @param position The position.
      * @param tile The tile.
@@ -204,12 +299,70 @@ public class LoopGrid {
             return false;
 
         // Set the tile, return the result
-        this.tiles.set(position, tile);
+        this.storage.setMask(position, tile.getMask());
+        this.storage.setSolved(position, tile.isSolved());
         return true;
     }
 
+    /**
+     * Get the connector mask of the tile at a specific position.
+     *
+     * @param position The position.
+     *
+     * @return The connector mask.
+     */
+    public int getMask(int position) {
+        return this.storage.getMask(position);
+    }
+
+    /**
+     * Set the connector mask of the tile at a specific position.
+     * This resets the solved state of the tile.
+     *
+     * @param position The position.
+     * @param mask The connector mask.
+     */
+    public void setMask(int position, int mask) {
+        this.storage.setMask(position, mask);
+    }
+
+    /**
+     * Check whether the tile at a specific position is solved.
+     *
+     * @param position The position.
+     *
+     * @return True if the tile is solved, false if not.
+     */
+    public boolean isSolved(int position) {
+        return this.storage.isSolved(position);
+    }
+
+    /**
+     * Set whether the tile at a specific position is solved.
+     * Note: This doesn't notify the observer.
+     *
+     * @param position The position.
+     * @param solved True if solved, false if not.
+     */
+    public void setSolved(int position, boolean solved) {
+        this.storage.setSolved(position, solved);
+    }
+
+    /**
+     * Set whether all tiles in this grid are solved.
+     * Note: This doesn't notify the observer.
+     *
+     * @param solved True if solved, false if not.
+     */
+    public void setAllSolved(boolean solved) {
+        final int total = getTotal();
+        for(int i = 0; i < total; i++)
+            this.storage.setSolved(i, solved);
+    }
+
     /**
      * Get the full list of tiles.
+     * The list is a read-only view, tiles are changed through the returned tile views.
      *
      * @return Full list of tiles.
      */
@@ -222,25 +375,32 @@ public class LoopGrid {
      * Note: This replaces all current tiles.
      */
     public void fillWithEmpty() {
-        // Clear the tiles list
-        this.tiles.clear();
-
-        // Fill the list with empty tiles
-        for(int i = 0; i < getTotal(); i++)
-            this.tiles.add(LoopTile.createEmpty(this, getTilePositionX(i), getTilePositionY(i)));
+        this.storage.clear();
     }
 
     /**
      * Fill the grid with random tiles.
-     * Note: This replaces all current tiles.
+     * Note: This replaces all current tiles. The tiles are independent, so the grid is almost never solvable. Use the
+     * {@link LoopGridGenerator} to create solvable grids.
      */
     public void fillWithRandom() {
-        // Clear the tiles list
-        this.tiles.clear();
+        // Create a random object
+        Random rand = new Random();
+
+        // Fill the grid with random tiles
+        final int total = getTotal();
+        for(int i = 0; i < total; i++)
+            this.storage.setMask(i, rand.nextInt(LoopTileMask.MASK_COUNT));
+    }
 
-        // Fill the list with empty tiles
-        for(int i = 0; i < getTotal(); i++)
-            this.tiles.add(LoopTile.createRandom(this, getTilePositionX(i), getTilePositionY(i)));
+    /**
+     * Write the tiles through to the file they're stored in.
+     * This does nothing if the grid isn't stored in a buffer mapped from a file.
+     *
+     * @throws IOException If writing failed.
+     */
+    public void flush() throws IOException {
+        this.storage.flush();
     }
 
     /**
@@ -261,8 +421,8 @@ public class LoopGrid {
         // Change the working tile
         this.workingTile = workingTile;
 
-        // Repaint the frame
-        App.instance.getGridFrame().repaint();
+        // Notify the observer
+        this.observer.onTileFocused(workingTile);
     }
 
     /**
@@ -283,7 +443,35 @@ public class LoopGrid {
         // Change the checking tile
         this.checkingTile = checkingTile;
 
-        // Repaint the frame
-        App.instance.getGridFrame().repaint();
+        // Notify the observer
+        this.observer.onTileChecked(checkingTile);
+    }
+
+    /**
+     * Get the observer that is notified about solver progress on this grid.
+     *
+     * @return Solver observer, never null.
+     */
+    public SolverObserver getObserver() {
+        return observer;
+    }
+
+    /**
+     * Check whether an observer is set for this grid.
+     * This may be used to skip building events nobody listens to.
+     *
+     * @return True if the grid is observed, false if not.
+     */
+    public boolean isObserved() {
+        return this.observer != SolverObserver.NONE;
+    }
+
+    /**
+     * Set the observer that is notified about solver progress on this grid.
+     *
+     * @param observer Solver observer, or null to stop observing.
+     */
+    public void setObserver(SolverObserver observer) {
+        this.observer = observer != null ? observer : SolverObserver.NONE;
     }
 }
@@ -0,0 +1,137 @@
+package com.timvisee.loopsolver.grid;
+
+import com.timvisee.loopsolver.tile.LoopTile;
+import com.timvisee.loopsolver.tile.LoopTileMask;
+import com.timvisee.loopsolver.tile.LoopTileSide;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public final class LoopGridGenerator {
+
+    /** Default chance that two neighbouring tiles are connected. */
+    public static final double DEFAULT_DENSITY = 0.5;
+
+    /** Connector bit of the right side. */
+    private static final int RIGHT = LoopTileMask.bit(LoopTileSide.RIGHT);
+    /** Connector bit of the bottom side. */
+    private static final int BOTTOM = LoopTileMask.bit(LoopTileSide.BOTTOM);
+    /** Connector bit of the left side. */
+    private static final int LEFT = LoopTileMask.bit(LoopTileSide.LEFT);
+    /** Connector bit of the top side. */
+    private static final int TOP = LoopTileMask.bit(LoopTileSide.TOP);
+
+    /**
+     * Constructor, not used.
+     */
+    private LoopGridGenerator() { }
+
+    /**
+     * Generate a solvable puzzle with the default density.
+     *
+     * @param width Grid width.
+     * @param height Grid height.
+     * @param seed Random seed, the same seed, size and density always give the same puzzle.
+     *
+     * @return The puzzle grid.
+     */
+    public static LoopGrid generate(int width, int height, long seed) {
+        return generate(width, height, seed, DEFAULT_DENSITY);
+    }
+
+    /**
+     * Generate a solvable puzzle.
+     * A solved grid is generated first, after which every tile is rotated randomly.
+     *
+     * @param width Grid width.
+     * @param height Grid height.
+     * @param seed Random seed, the same seed, size and density always give the same puzzle.
+     * @param density Chance that two neighbouring tiles are connected, between 0 and 1.
+     *
+     * @return The puzzle grid.
+     */
+    public static LoopGrid generate(int width, int height, long seed, double density) {
+        SplittableRandom random = new SplittableRandom(seed);
+        LoopGrid grid = new LoopGrid(width, height);
+        fillSolved(grid, random, density);
+        scramble(grid, random);
+        return grid;
+    }
+
+    /**
+     * Generate a solved grid.
+     * Every shared edge between two tiles matches, and no tile connects to the border of the grid.
+     *
+     * @param width Grid width.
+     * @param height Grid height.
+     * @param seed Random seed, the same seed, size and density always give the same grid.
+     * @param density Chance that two neighbouring tiles are connected, between 0 and 1.
+     *
+     * @return The solved grid.
+     */
+    public static LoopGrid generateSolved(int width, int height, long seed, double density) {
+        LoopGrid grid = new LoopGrid(width, height);
+        fillSolved(grid, new SplittableRandom(seed), density);
+        return grid;
+    }
+
+    /**
+     * Rotate every tile of a grid randomly.
+     *
+     * @param grid The grid.
+     * @param seed Random seed.
+     */
+    public static void scramble(LoopGrid grid, long seed) {
+        scramble(grid, new SplittableRandom(seed));
+    }
+
+    /**
+     * Fill a grid with a solved puzzle, by connecting neighbouring tiles at random.
+     *
+     * @param grid The grid.
+     * @param random Random source.
+     * @param density Chance that two neighbouring tiles are connected, between 0 and 1.
+     */
+    private static void fillSolved(LoopGrid grid, SplittableRandom random, double density) {
+        if(density < 0 || density > 1)
+            throw new IllegalArgumentException("Density must be between 0 and 1, got " + density);
+
+        final int width = grid.getWidth();
+        final int height = grid.getHeight();
+
+        // Decide on the right and bottom edge of every tile, the row above has already set the top connectors
+        int[] row = new int[width];
+        int[] next = new int[width];
+        for(int y = 0, position = 0; y < height; y++) {
+            for(int x = 0; x < width; x++, position++) {
+                if(x + 1 < width && random.nextDouble() < density) {
+                    row[x] |= RIGHT;
+                    row[x + 1] |= LEFT;
+                }
+                if(y + 1 < height && random.nextDouble() < density) {
+                    row[x] |= BOTTOM;
+                    next[x] = TOP;
+                }
+                grid.setMask(position, row[x]);
+            }
+
+            // Continue with the next row
+            int[] done = row;
+            row = next;
+            next = done;
+            Arrays.fill(next, 0);
+        }
+    }
+
+    /**
+     * Rotate every tile of a grid randomly.
+     *
+     * @param grid The grid.
+     * @param random Random source.
+     */
+    private static void scramble(LoopGrid grid, SplittableRandom random) {
+        final int total = grid.getTotal();
+        for(int i = 0; i < total; i++)
+            grid.setMask(i, LoopTileMask.rotate(grid.getMask(i), random.nextInt(LoopTile.TILE_SIDES)));
+    }
+}
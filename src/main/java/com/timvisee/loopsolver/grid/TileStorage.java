@@ -0,0 +1,70 @@
+package com.timvisee.loopsolver.grid;
+
+import java.io.IOException;
+
+interface TileStorage {
+
+    /**
+     * Get the number of tiles this storage holds.
+     *
+     * @return Number of tiles.
+     */
+    int getTotal();
+
+    /**
+     * Get the connector mask of a tile.
+     *
+     * @param position The position of the tile.
+     *
+     * @return The connector mask.
+     */
+    int getMask(int position);
+
+    /**
+     * Set the connector mask of a tile, and reset its solved state.
+     *
+     * @param position The position of the tile.
+     * @param mask The connector mask.
+     */
+    void setMask(int position, int mask);
+
+    /**
+     * Check whether a tile is solved.
+     *
+     * @param position The position of the tile.
+     *
+     * @return True if the tile is solved, false if not.
+     */
+    boolean isSolved(int position);
+
+    /**
+     * Set whether a tile is solved.
+     *
+     * @param position The position of the tile.
+     * @param solved True if solved, false if not.
+     */
+    void setSolved(int position, boolean solved);
+
+    /**
+     * Make all tiles empty and not solved.
+     */
+    void clear();
+
+    /**
+     * Get an empty storage of the same kind for another number of tiles.
+     *
+     * @param total Number of tiles.
+     *
+     * @return The storage.
+     *
+     * @throws UnsupportedOperationException If this kind of storage can't be allocated again.
+     */
+    TileStorage resize(int total);
+
+    /**
+     * Write changes to the tiles through to the backing file, if there is one.
+     *
+     * @throws IOException If writing failed.
+     */
+    void flush() throws IOException;
+}
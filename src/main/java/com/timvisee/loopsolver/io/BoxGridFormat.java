@@ -0,0 +1,81 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.tile.LoopTileMask;
+
+import java.util.Arrays;
+
+public final class BoxGridFormat {
+
+    /**
+     * Glyph of every connector mask, indexed by the mask.
+     * Bit 0 is the top side, bit 1 the right side, bit 2 the bottom side and bit 3 the left side.
+     */
+    private static final char[] GLYPHS = {
+            '·', // Empty
+            '╹', // Top
+            '╺', // Right
+            '┗', // Top, right
+            '╻', // Bottom
+            '┃', // Top, bottom
+            '┏', // Right, bottom
+            '┣', // Top, right, bottom
+            '╸', // Left
+            '┛', // Top, left
+            '━', // Right, left
+            '┻', // Top, right, left
+            '┓', // Bottom, left
+            '┫', // Top, bottom, left
+            '┳', // Right, bottom, left
+            '╋', // All sides
+    };
+
+    /** Separator between the width and the height in the size line of a puzzle. */
+    public static final char SIZE_SEPARATOR = 'x';
+
+    /** Glyph that is also accepted for an empty tile. */
+    private static final char EMPTY_ALTERNATIVE = ' ';
+
+    /** First character of the range the glyphs are looked up in. */
+    private static final char LOOKUP_START = '─';
+    /**
+     * Connector mask of every character in the lookup range, or -1 if the character isn't a glyph.
+     * Indexed by the character minus {@link #LOOKUP_START}.
+     */
+    private static final byte[] LOOKUP = new byte[0x80];
+
+    static {
+        Arrays.fill(LOOKUP, (byte) -1);
+        for(int mask = 1; mask < LoopTileMask.MASK_COUNT; mask++)
+            LOOKUP[GLYPHS[mask] - LOOKUP_START] = (byte) mask;
+    }
+
+    /**
+     * Constructor, not used.
+     */
+    private BoxGridFormat() { }
+
+    /**
+     * Get the glyph of a connector mask.
+     *
+     * @param mask The connector mask.
+     *
+     * @return The glyph.
+     */
+    public static char toGlyph(int mask) {
+        return GLYPHS[mask];
+    }
+
+    /**
+     * Get the connector mask of a glyph.
+     *
+     * @param glyph The glyph.
+     *
+     * @return The connector mask, or -1 if the character isn't a glyph.
+     */
+    public static int toMask(char glyph) {
+        if(glyph == GLYPHS[LoopTileMask.MASK_EMPTY] || glyph == EMPTY_ALTERNATIVE)
+            return LoopTileMask.MASK_EMPTY;
+        int index = glyph - LOOKUP_START;
+        return index >= 0 && index < LOOKUP.length ? LOOKUP[index] : -1;
+    }
+}
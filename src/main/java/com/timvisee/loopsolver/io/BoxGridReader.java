@@ -0,0 +1,268 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+public class BoxGridReader implements Closeable {
+
+    /** Size of the read buffer in characters. */
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    /** Value returned when the end of the input is reached. */
+    private static final int END = -1;
+
+    /** The input. */
+    private final Reader in;
+    /** Buffer of characters read from the input. */
+    private final char[] buffer = new char[BUFFER_SIZE];
+    /** Index of the next character in the buffer. */
+    private int position = 0;
+    /** Number of characters in the buffer. */
+    private int limit = 0;
+
+    /** Number of the current line, starting at 1. */
+    private int line = 1;
+
+    /** Width of the current puzzle. */
+    private int width = 0;
+    /** Height of the current puzzle. */
+    private int height = 0;
+    /** Index of the next row of the current puzzle. */
+    private int row = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param in The input. It is read through an internal buffer, so it doesn't need to be buffered.
+     */
+    public BoxGridReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Read the next puzzle into a new grid.
+     *
+     * @return The grid, or null if there are no more puzzles.
+     *
+     * @throws IOException If reading failed or the input isn't valid.
+     */
+    public LoopGrid read() throws IOException {
+        LoopGrid grid = new LoopGrid(0, 0);
+        return read(grid) ? grid : null;
+    }
+
+    /**
+     * Read the next puzzle into an existing grid.
+     * The grid is resized if its size doesn't match, and all its tiles are marked as unsolved.
+     *
+     * Every puzzle starts with a line holding its size as {@code <width>x<height>}, followed by a line of glyphs for
+     * every row. Puzzles are separated by empty lines. The glyphs are decoded into the grid while they are read, so no
+     * memory is needed besides the grid itself.
+     *
+     * @param grid The grid to read the puzzle into.
+     *
+     * @return True if a puzzle was read, false if there are no more puzzles.
+     *
+     * @throws IOException If reading failed or the input isn't valid.
+     */
+    public boolean read(LoopGrid grid) throws IOException {
+        // Read the size
+        if(!readHeader())
+            return false;
+        if(grid.getWidth() != this.width || grid.getHeight() != this.height)
+            grid.setSize(this.width, this.height);
+
+        // Decode the rows straight into the grid
+        for(int y = 0, position = 0; y < this.height; y++, this.row++) {
+            for(int x = 0; x < this.width; x++, position++)
+                grid.setMask(position, readTile(x));
+            readLineEnd();
+        }
+
+        return true;
+    }
+
+    /**
+     * Read the size of the next puzzle.
+     * The rows of the puzzle can then be read one by one with {@link #readRow(byte[], int)}, which makes it possible to
+     * process puzzles that are too large to keep in memory.
+     *
+     * @return True if a puzzle follows, false if there are no more puzzles.
+     *
+     * @throws IOException If reading failed or the size isn't valid.
+     */
+    public boolean readHeader() throws IOException {
+        // Skip the separator lines in front of the puzzle
+        int c = peek();
+        while(c == '\n' || c == '\r') {
+            readLineEnd();
+            c = peek();
+        }
+        if(c == END)
+            return false;
+
+        // Read the size
+        this.width = readNumber();
+        if(next() != BoxGridFormat.SIZE_SEPARATOR)
+            throw error("Expected '" + BoxGridFormat.SIZE_SEPARATOR + "' between the width and the height");
+        this.height = readNumber();
+        readLineEnd();
+        this.row = 0;
+        return true;
+    }
+
+    /**
+     * Get the width of the puzzle whose size was read last.
+     *
+     * @return Puzzle width.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Get the height of the puzzle whose size was read last.
+     *
+     * @return Puzzle height.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Read the next row of the current puzzle.
+     *
+     * @param masks The array to store the connector masks of the tiles in.
+     * @param offset Index in the array to store the mask of the first tile at.
+     *
+     * @throws IOException If reading failed, the row isn't valid or all rows of the puzzle were read.
+     *
+     * @see #readHeader()
+     */
+    public void readRow(byte[] masks, int offset) throws IOException {
+        if(this.row >= this.height)
+            throw error("All " + this.height + " rows of the puzzle were read");
+        for(int x = 0; x < this.width; x++)
+            masks[offset + x] = (byte) readTile(x);
+        readLineEnd();
+        this.row++;
+    }
+
+    /**
+     * Read the glyph of a tile in the current row.
+     *
+     * @param x The x coordinate of the tile.
+     *
+     * @return The connector mask.
+     *
+     * @throws IOException If reading failed or the glyph isn't a valid tile.
+     */
+    private int readTile(int x) throws IOException {
+        int c = next();
+        int mask = c != END ? BoxGridFormat.toMask((char) c) : -1;
+        if(mask < 0)
+            throw error(c == END || c == '\n' || c == '\r'
+                    ? "Expected " + this.width + " tiles in row " + this.row + ", got " + x
+                    : "Invalid tile '" + (char) c + "' in row " + this.row);
+        return mask;
+    }
+
+    /**
+     * Read a positive number.
+     *
+     * @return The number.
+     *
+     * @throws IOException If reading failed or there is no valid number.
+     */
+    private int readNumber() throws IOException {
+        long value = 0;
+        int digits = 0;
+        for(int c = peek(); c >= '0' && c <= '9'; c = peek()) {
+            next();
+            value = value * 10 + (c - '0');
+            if(value > Integer.MAX_VALUE)
+                throw error("Grid size too large");
+            digits++;
+        }
+        if(digits == 0 || value == 0)
+            throw error("Expected a grid size of at least 1");
+        return (int) value;
+    }
+
+    /**
+     * Read the end of a line, which may also be the end of the input.
+     *
+     * @throws IOException If reading failed or the line doesn't end here.
+     */
+    private void readLineEnd() throws IOException {
+        int c = next();
+        if(c == '\r' && peek() == '\n')
+            c = next();
+        if(c != '\n' && c != '\r' && c != END)
+            throw error("Expected the end of the line, got '" + (char) c + "'");
+        if(c != END)
+            this.line++;
+    }
+
+    /**
+     * Get the next character without consuming it.
+     *
+     * @return The character, or {@link #END} at the end of the input.
+     *
+     * @throws IOException If reading failed.
+     */
+    private int peek() throws IOException {
+        if(this.position == this.limit && !fill())
+            return END;
+        return this.buffer[this.position];
+    }
+
+    /**
+     * Consume the next character.
+     *
+     * @return The character, or {@link #END} at the end of the input.
+     *
+     * @throws IOException If reading failed.
+     */
+    private int next() throws IOException {
+        if(this.position == this.limit && !fill())
+            return END;
+        return this.buffer[this.position++];
+    }
+
+    /**
+     * Fill the buffer from the input.
+     *
+     * @return False if the end of the input was reached.
+     *
+     * @throws IOException If reading failed.
+     */
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = this.in.read(this.buffer, 0, this.buffer.length);
+        } while(read == 0);
+        this.position = 0;
+        this.limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    /**
+     * Create an error for the current line.
+     *
+     * @param message The error message.
+     *
+     * @return The error.
+     */
+    private IOException error(String message) {
+        return new IOException("Line " + this.line + ": " + message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+}
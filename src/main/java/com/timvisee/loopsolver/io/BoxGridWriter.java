@@ -0,0 +1,113 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+public class BoxGridWriter implements Closeable, Flushable {
+
+    /** The output. */
+    private final Writer out;
+    /** Buffer holding one row of glyphs and its line end. */
+    private char[] row = new char[0];
+
+    /** Number of puzzles written. */
+    private int count = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param out The output. Every row is written in a single call, so it doesn't need to be buffered.
+     */
+    public BoxGridWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Get the number of puzzles written so far.
+     *
+     * @return Number of puzzles.
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Write a puzzle.
+     * The current tile masks of the grid are written, so a solved grid is written as its solution.
+     *
+     * @param grid The grid.
+     *
+     * @throws IOException If writing failed.
+     *
+     * @see BoxGridReader#read(LoopGrid)
+     */
+    public void write(LoopGrid grid) throws IOException {
+        final int width = grid.getWidth();
+        final int height = grid.getHeight();
+
+        // Write the size
+        writeHeader(width, height);
+
+        // Write the rows
+        for(int y = 0, position = 0; y < height; y++) {
+            for(int x = 0; x < width; x++, position++)
+                this.row[x] = BoxGridFormat.toGlyph(grid.getMask(position));
+            this.out.write(this.row);
+        }
+    }
+
+    /**
+     * Start a puzzle, by writing its size.
+     * The rows of the puzzle must then be written one by one with {@link #writeRow(byte[], int)}, which makes it
+     * possible to write puzzles that are too large to keep in memory.
+     *
+     * @param width Puzzle width.
+     * @param height Puzzle height.
+     *
+     * @throws IOException If writing failed.
+     */
+    public void writeHeader(int width, int height) throws IOException {
+        // Separate the puzzle from the previous one, and write its size
+        if(this.count++ > 0)
+            this.out.write('\n');
+        this.out.write(Integer.toString(width));
+        this.out.write(BoxGridFormat.SIZE_SEPARATOR);
+        this.out.write(Integer.toString(height));
+        this.out.write('\n');
+
+        // Prepare the row buffer
+        if(this.row.length != width + 1)
+            this.row = new char[width + 1];
+        this.row[width] = '\n';
+    }
+
+    /**
+     * Write the next row of the current puzzle.
+     *
+     * @param masks The connector masks of the tiles.
+     * @param offset Index in the array of the mask of the first tile.
+     *
+     * @throws IOException If writing failed.
+     *
+     * @see #writeHeader(int, int)
+     */
+    public void writeRow(byte[] masks, int offset) throws IOException {
+        for(int x = 0; x < this.row.length - 1; x++)
+            this.row[x] = BoxGridFormat.toGlyph(masks[offset + x]);
+        this.out.write(this.row);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+}
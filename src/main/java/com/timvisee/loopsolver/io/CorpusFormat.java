@@ -0,0 +1,45 @@
+package com.timvisee.loopsolver.io;
+
+public final class CorpusFormat {
+
+    /** Magic number at the start of a corpus, {@code LOOP} in ASCII. */
+    public static final int MAGIC = 0x4C4F4F50;
+    /** Format version. */
+    public static final short VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     * The header holds the magic number (4 bytes), the version (2 bytes), 2 reserved bytes, the number of puzzles
+     * (4 bytes), 4 reserved bytes and the file offset of the index (8 bytes). All numbers are big endian.
+     */
+    public static final int HEADER_SIZE = 24;
+    /** Offset of the number of puzzles in the header. */
+    static final int HEADER_COUNT = 8;
+    /** Offset of the index offset in the header. */
+    static final int HEADER_INDEX = 16;
+
+    /**
+     * Size of the width and height in front of the tiles of a puzzle, in bytes.
+     * The puzzles follow the header. Every puzzle holds its width and height, followed by the connector masks of its
+     * tiles in row order as 4-bit nibbles, two tiles per byte with the first tile in the high nibble.
+     */
+    public static final int PUZZLE_HEADER_SIZE = 8;
+    /** Size of an index entry in bytes. The index follows the puzzles, and holds the file offset of every puzzle. */
+    public static final int INDEX_ENTRY_SIZE = 8;
+
+    /**
+     * Constructor, not used.
+     */
+    private CorpusFormat() { }
+
+    /**
+     * Get the number of bytes the tiles of a puzzle take.
+     *
+     * @param tiles Number of tiles.
+     *
+     * @return Number of bytes.
+     */
+    public static long getTileBytes(long tiles) {
+        return (tiles + 1) / 2;
+    }
+}
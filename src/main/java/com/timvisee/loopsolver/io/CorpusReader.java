@@ -0,0 +1,233 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class CorpusReader implements Closeable {
+
+    /** Size of a mapped segment of the file, mappings are limited to 2 GiB. */
+    private static final long SEGMENT_SIZE = 1L << 30;
+    /** Number of bytes a segment extends into the next, so puzzles starting near its end can be read from it. */
+    private static final long SEGMENT_OVERLAP = 1L << 20;
+
+    /** The channel of the corpus file. */
+    private final FileChannel channel;
+    /** Size of the file in bytes. */
+    private final long size;
+    /** The mapped segments of the file. */
+    private final MappedByteBuffer[] segments;
+
+    /** Number of puzzles. */
+    private final int count;
+    /** File offset of the index. */
+    private final long indexOffset;
+
+    /**
+     * Constructor.
+     * Maps the corpus file into memory.
+     *
+     * @param path The path of the corpus file.
+     *
+     * @throws IOException If the file couldn't be read or isn't a valid corpus.
+     */
+    public CorpusReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = this.channel.size();
+            if(this.size < CorpusFormat.HEADER_SIZE)
+                throw new IOException("Not a puzzle corpus: file too small");
+
+            // Map the file in segments
+            this.segments = new MappedByteBuffer[(int) ((this.size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for(int i = 0; i < this.segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                long length = Math.min(this.size - start, SEGMENT_SIZE + SEGMENT_OVERLAP);
+                this.segments[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+
+            // Read and verify the header
+            MappedByteBuffer header = this.segments[0];
+            if(header.getInt(0) != CorpusFormat.MAGIC)
+                throw new IOException("Not a puzzle corpus: invalid magic number");
+            if(header.getShort(4) != CorpusFormat.VERSION)
+                throw new IOException("Unsupported puzzle corpus version: " + header.getShort(4));
+            this.count = header.getInt(CorpusFormat.HEADER_COUNT);
+            this.indexOffset = header.getLong(CorpusFormat.HEADER_INDEX);
+            if(this.count < 0 || this.indexOffset < CorpusFormat.HEADER_SIZE
+                    || this.indexOffset + (long) this.count * CorpusFormat.INDEX_ENTRY_SIZE > this.size)
+                throw new IOException("Corrupt puzzle corpus: invalid index");
+        } catch(IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of puzzles.
+     *
+     * @return Number of puzzles.
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the width of a puzzle.
+     *
+     * @param id The puzzle id.
+     *
+     * @return Grid width.
+     *
+     * @throws IOException If the index entry of the puzzle is corrupt.
+     */
+    public int getWidth(int id) throws IOException {
+        long offset = getOffset(id);
+        return segment(offset).getInt(index(offset));
+    }
+
+    /**
+     * Get the height of a puzzle.
+     *
+     * @param id The puzzle id.
+     *
+     * @return Grid height.
+     *
+     * @throws IOException If the index entry of the puzzle is corrupt.
+     */
+    public int getHeight(int id) throws IOException {
+        long offset = getOffset(id) + 4;
+        return segment(offset).getInt(index(offset));
+    }
+
+    /**
+     * Make sure the size of a puzzle is valid, and its tiles fit in the file.
+     * This is checked before a grid is allocated for the puzzle, so a corrupt size can't cause a huge allocation.
+     *
+     * @param id The puzzle id.
+     * @param width The width of the puzzle.
+     * @param height The height of the puzzle.
+     *
+     * @throws IOException If the size is invalid.
+     */
+    private void checkSize(int id, int width, int height) throws IOException {
+        if(width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE)
+            throw new IOException("Corrupt puzzle corpus: invalid size of puzzle " + id);
+        final long tilesOffset = getOffset(id) + CorpusFormat.PUZZLE_HEADER_SIZE;
+        if(tilesOffset + CorpusFormat.getTileBytes((long) width * height) > this.size)
+            throw new IOException("Corrupt puzzle corpus: puzzle " + id + " runs past the end of the file");
+    }
+
+    /**
+     * Read a puzzle into a new grid.
+     *
+     * @param id The puzzle id.
+     *
+     * @return The grid.
+     *
+     * @throws IOException If the puzzle couldn't be read.
+     */
+    public LoopGrid read(int id) throws IOException {
+        // Check the size before allocating the grid for it
+        final int width = getWidth(id);
+        final int height = getHeight(id);
+        checkSize(id, width, height);
+
+        LoopGrid grid = new LoopGrid(width, height);
+        read(id, grid);
+        return grid;
+    }
+
+    /**
+     * Read a puzzle into an existing grid, so no grid has to be allocated for every puzzle.
+     * The grid is resized if its size doesn't match, and all its tiles are marked as unsolved.
+     *
+     * Reading doesn't change any shared state, so puzzles may be read from multiple threads at the same time.
+     *
+     * @param id The puzzle id.
+     * @param grid The grid to read the puzzle into.
+     *
+     * @throws IOException If the puzzle couldn't be read.
+     */
+    public void read(int id, LoopGrid grid) throws IOException {
+        // Read the size, and resize the grid if needed
+        final long offset = getOffset(id);
+        final MappedByteBuffer segment = segment(offset);
+        final int start = index(offset);
+        final int width = segment.getInt(start);
+        final int height = segment.getInt(start + 4);
+        checkSize(id, width, height);
+        if(grid.getWidth() != width || grid.getHeight() != height)
+            grid.setSize(width, height);
+
+        // Find the tiles, which are mapped separately if they run past the segment
+        final int total = grid.getTotal();
+        final long bytes = CorpusFormat.getTileBytes(total);
+        final long tilesOffset = offset + CorpusFormat.PUZZLE_HEADER_SIZE;
+        MappedByteBuffer tiles = segment;
+        int index = start + CorpusFormat.PUZZLE_HEADER_SIZE;
+        if(index + bytes > segment.limit()) {
+            tiles = this.channel.map(FileChannel.MapMode.READ_ONLY, tilesOffset, bytes);
+            index = 0;
+        }
+
+        // Decode the tiles, two per byte
+        for(int i = 0; i < total; i += 2, index++) {
+            int value = tiles.get(index) & 0xFF;
+            grid.setMask(i, value >>> 4);
+            if(i + 1 < total)
+                grid.setMask(i + 1, value & 0xF);
+        }
+    }
+
+    /**
+     * Get the file offset of a puzzle.
+     *
+     * @param id The puzzle id.
+     *
+     * @return The file offset.
+     *
+     * @throws IOException If the index entry of the puzzle is corrupt.
+     */
+    private long getOffset(int id) throws IOException {
+        if(id < 0 || id >= this.count)
+            throw new IndexOutOfBoundsException("Index: " + id + ", Size: " + this.count);
+        long entry = this.indexOffset + (long) id * CorpusFormat.INDEX_ENTRY_SIZE;
+        long offset = segment(entry).getLong(index(entry));
+        if(offset < CorpusFormat.HEADER_SIZE || offset + CorpusFormat.PUZZLE_HEADER_SIZE > this.indexOffset)
+            throw new IOException("Corrupt puzzle corpus: invalid offset of puzzle " + id);
+        return offset;
+    }
+
+    /**
+     * Get the segment a file offset is read from.
+     *
+     * @param offset The file offset.
+     *
+     * @return The segment.
+     */
+    private MappedByteBuffer segment(long offset) {
+        return this.segments[(int) (offset / SEGMENT_SIZE)];
+    }
+
+    /**
+     * Get the index of a file offset in its segment.
+     *
+     * @param offset The file offset.
+     *
+     * @return The index in the segment.
+     */
+    private static int index(long offset) {
+        return (int) (offset % SEGMENT_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,159 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class CorpusWriter implements Closeable {
+
+    /** Size of the write buffer in bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Initial capacity of the index, it grows when needed. */
+    private static final int INDEX_CAPACITY = 1024;
+
+    /** The channel of the corpus file. */
+    private final FileChannel channel;
+    /** Buffer of bytes that aren't written to the channel yet. */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** File offset of the next byte to write. */
+    private long position = CorpusFormat.HEADER_SIZE;
+
+    /** The file offset of every puzzle. */
+    private long[] offsets = new long[INDEX_CAPACITY];
+    /** Number of puzzles. */
+    private int count = 0;
+
+    /** True if the writer is closed. */
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     * Creates the corpus file, or replaces it if it exists.
+     *
+     * @param path The path of the corpus file.
+     *
+     * @throws IOException If the file couldn't be created.
+     */
+    public CorpusWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.channel.position(CorpusFormat.HEADER_SIZE);
+    }
+
+    /**
+     * Get the number of puzzles written so far.
+     *
+     * @return Number of puzzles.
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Write a puzzle.
+     * The current tile masks of the grid are written, regardless of whether the tiles are solved.
+     *
+     * @param grid The grid.
+     *
+     * @return The id of the puzzle.
+     *
+     * @throws IOException If writing failed.
+     */
+    public int write(LoopGrid grid) throws IOException {
+        if(this.closed)
+            throw new IOException("Corpus writer is closed");
+        if(this.count == Integer.MAX_VALUE)
+            throw new IOException("Corpus is full");
+
+        // Add the puzzle to the index
+        if(this.count == this.offsets.length)
+            this.offsets = Arrays.copyOf(this.offsets, this.count * 2);
+        this.offsets[this.count] = this.position;
+
+        // Write the size
+        reserve(CorpusFormat.PUZZLE_HEADER_SIZE);
+        this.buffer.putInt(grid.getWidth());
+        this.buffer.putInt(grid.getHeight());
+
+        // Write the tiles, two per byte
+        final int total = grid.getTotal();
+        for(int i = 0; i < total; i += 2) {
+            reserve(1);
+            int high = grid.getMask(i);
+            int low = i + 1 < total ? grid.getMask(i + 1) : 0;
+            this.buffer.put((byte) ((high << 4) | low));
+        }
+        this.position += CorpusFormat.PUZZLE_HEADER_SIZE + CorpusFormat.getTileBytes(total);
+
+        return this.count++;
+    }
+
+    /**
+     * Write the index and the header, and close the file.
+     *
+     * @throws IOException If writing failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if(this.closed)
+            return;
+        this.closed = true;
+
+        try {
+            // Write the index
+            final long indexOffset = this.position;
+            for(int i = 0; i < this.count; i++) {
+                reserve(CorpusFormat.INDEX_ENTRY_SIZE);
+                this.buffer.putLong(this.offsets[i]);
+            }
+            flush();
+
+            // Write the header
+            ByteBuffer header = ByteBuffer.allocate(CorpusFormat.HEADER_SIZE);
+            header.putInt(CorpusFormat.MAGIC);
+            header.putShort(CorpusFormat.VERSION);
+            header.putShort((short) 0);
+            header.putInt(this.count);
+            header.putInt(0);
+            header.putLong(indexOffset);
+            ((Buffer) header).flip();
+            while(header.hasRemaining())
+                this.channel.write(header, header.position());
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Make sure the buffer has room for some bytes, writing it to the channel if it hasn't.
+     *
+     * @param bytes Number of bytes.
+     *
+     * @throws IOException If writing failed.
+     */
+    private void reserve(int bytes) throws IOException {
+        if(this.buffer.remaining() < bytes)
+            flush();
+    }
+
+    /**
+     * Write the buffer to the channel.
+     *
+     * @throws IOException If writing failed.
+     */
+    private void flush() throws IOException {
+        // Call flip and clear on Buffer, newer JDKs override them in ByteBuffer which doesn't link on Java 8
+        ((Buffer) this.buffer).flip();
+        while(this.buffer.hasRemaining())
+            this.channel.write(this.buffer);
+        ((Buffer) this.buffer).clear();
+    }
+}
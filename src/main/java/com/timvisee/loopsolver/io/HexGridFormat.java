@@ -0,0 +1,103 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.tile.LoopTileMask;
+
+public final class HexGridFormat {
+
+    /** Characters of the hexadecimal digits. */
+    private static final String DIGITS = "0123456789abcdef";
+
+    /** Separator between the width and the height. */
+    private static final char SIZE_SEPARATOR = 'x';
+
+    /**
+     * Constructor, not used.
+     */
+    private HexGridFormat() { }
+
+    /**
+     * Parse a grid from a single line.
+     *
+     * The line holds the grid size as {@code <width>x<height>}, followed by whitespace and one hexadecimal digit per
+     * tile in row order. Each digit is the connector mask of the tile, bit 0 being the top side and bit 3 the left side.
+     *
+     * @param line The line.
+     *
+     * @return The grid.
+     *
+     * @throws IllegalArgumentException If the line isn't a valid grid.
+     */
+    public static LoopGrid parse(String line) {
+        // Split the size and the tiles
+        String[] parts = line.trim().split("\\s+");
+        if(parts.length != 2)
+            throw new IllegalArgumentException("Expected '<width>x<height> <tiles>', got " + parts.length + " fields");
+
+        // Parse the size
+        int separator = parts[0].indexOf(SIZE_SEPARATOR);
+        if(separator < 0)
+            throw new IllegalArgumentException("Invalid grid size: " + parts[0]);
+        int width, height;
+        try {
+            width = Integer.parseInt(parts[0].substring(0, separator));
+            height = Integer.parseInt(parts[0].substring(separator + 1));
+        } catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid grid size: " + parts[0]);
+        }
+        if(width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid grid size: " + parts[0]);
+
+        // Make sure the number of tiles matches
+        String tiles = parts[1];
+        if((long) width * height != tiles.length())
+            throw new IllegalArgumentException("Expected " + ((long) width * height) + " tiles, got " + tiles.length());
+
+        // Create the grid, and set the tile masks
+        LoopGrid grid = new LoopGrid(width, height);
+        for(int i = 0; i < tiles.length(); i++) {
+            int mask = Character.digit(tiles.charAt(i), 16);
+            if(mask < 0)
+                throw new IllegalArgumentException("Invalid tile '" + tiles.charAt(i) + "' at index " + i);
+            grid.setMask(i, mask);
+        }
+        return grid;
+    }
+
+    /**
+     * Format a grid as a single line.
+     *
+     * @param grid The grid.
+     *
+     * @return The line.
+     *
+     * @see #parse(String)
+     */
+    public static String format(LoopGrid grid) {
+        final int total = grid.getTotal();
+        StringBuilder builder = new StringBuilder(total + 16);
+        builder.append(grid.getWidth()).append(SIZE_SEPARATOR).append(grid.getHeight()).append(' ');
+        for(int i = 0; i < total; i++)
+            builder.append(DIGITS.charAt(grid.getMask(i)));
+        return builder.toString();
+    }
+
+    /**
+     * Format the rotations of a solution as hexadecimal digits, one per tile in row order.
+     * Each digit is the number of clockwise quarter turns that turns the original mask into the solved mask, or
+     * {@code ?} if the solved mask isn't a rotation of the original.
+     *
+     * @param original The original tile masks, in row order.
+     * @param solved The solved grid.
+     *
+     * @return The rotations.
+     */
+    public static String formatRotations(byte[] original, LoopGrid solved) {
+        StringBuilder builder = new StringBuilder(original.length);
+        for(int i = 0; i < original.length; i++) {
+            int rotation = LoopTileMask.rotationBetween(original[i], solved.getMask(i));
+            builder.append(rotation >= 0 ? DIGITS.charAt(rotation) : '?');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public final class MappedGridFile {
+
+    /**
+     * Constructor, not used.
+     */
+    private MappedGridFile() { }
+
+    /**
+     * Create a grid that is stored in a file, filled with empty tiles.
+     * An existing file is overwritten. The tiles are mapped into memory, so the grid may be larger than the heap. Call
+     * {@link LoopGrid#flush()} to make sure changes are written to the file. The mapping stays valid until the grid
+     * is garbage collected. Solving the grid takes heap in proportion to its number of tiles all the same, see
+     * {@link LoopGrid#LoopGrid(int, int, ByteBuffer)}.
+     *
+     * @param file The file.
+     * @param width Grid width.
+     * @param height Grid height.
+     *
+     * @return The grid.
+     *
+     * @throws IOException If creating the file failed.
+     */
+    public static LoopGrid create(File file, int width, int height) throws IOException {
+        if(width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid grid size " + width + "x" + height);
+        final long size = LoopGrid.getBufferSize(width * height);
+
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Truncate the file first, so the tiles are zero and thus empty
+            raf.setLength(0);
+            raf.setLength(MappedGridFormat.HEADER_SIZE + size);
+
+            // Write the header
+            raf.writeInt(MappedGridFormat.MAGIC);
+            raf.writeShort(MappedGridFormat.VERSION);
+            raf.writeShort(0);
+            raf.writeInt(width);
+            raf.writeInt(height);
+
+            return map(raf.getChannel(), width, height);
+        }
+    }
+
+    /**
+     * Open a grid that is stored in a file.
+     * The tiles are mapped into memory and changed in place, see {@link #create(File, int, int)}.
+     *
+     * @param file The file.
+     *
+     * @return The grid.
+     *
+     * @throws IOException If opening the file failed or it isn't a valid mapped grid file.
+     */
+    public static LoopGrid open(File file) throws IOException {
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Read and check the header
+            if(raf.length() < MappedGridFormat.HEADER_SIZE || raf.readInt() != MappedGridFormat.MAGIC)
+                throw new IOException("Not a mapped grid file: invalid magic number");
+            short version = raf.readShort();
+            if(version != MappedGridFormat.VERSION)
+                throw new IOException("Unsupported mapped grid file version: " + version);
+            raf.readShort();
+            final int width = raf.readInt();
+            final int height = raf.readInt();
+            if(width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE)
+                throw new IOException("Corrupt mapped grid file: invalid grid size " + width + "x" + height);
+            if(raf.length() < MappedGridFormat.HEADER_SIZE + LoopGrid.getBufferSize(width * height))
+                throw new IOException("Corrupt mapped grid file: file is too short for a " + width + "x" + height
+                        + " grid");
+
+            return map(raf.getChannel(), width, height);
+        }
+    }
+
+    /**
+     * Map the tiles of a grid file into memory.
+     * The tiles are mapped on their own, rather than as a slice of a larger mapping, so flushing the grid forces
+     * them to the file.
+     *
+     * @param channel The channel of the file.
+     * @param width Grid width.
+     * @param height Grid height.
+     *
+     * @return The grid.
+     *
+     * @throws IOException If mapping failed.
+     */
+    private static LoopGrid map(FileChannel channel, int width, int height) throws IOException {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, MappedGridFormat.HEADER_SIZE,
+                LoopGrid.getBufferSize(width * height));
+        return new LoopGrid(width, height, buffer);
+    }
+}
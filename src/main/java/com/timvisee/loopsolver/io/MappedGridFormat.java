@@ -0,0 +1,25 @@
+package com.timvisee.loopsolver.io;
+
+public final class MappedGridFormat {
+
+    /** Magic number at the start of a mapped grid file, {@code LGRD} in ASCII. */
+    public static final int MAGIC = 0x4C475244;
+    /** Format version. */
+    public static final short VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     * The header holds the magic number (4 bytes), the version (2 bytes), 2 reserved bytes, the grid width (4 bytes)
+     * and the grid height (4 bytes). All numbers are big endian.
+     *
+     * The header is followed by the tiles, laid out like
+     * {@link com.timvisee.loopsolver.grid.LoopGrid#LoopGrid(int, int, java.nio.ByteBuffer)} describes, so they can be
+     * mapped into memory and changed in place.
+     */
+    public static final int HEADER_SIZE = 16;
+
+    /**
+     * Constructor, not used.
+     */
+    private MappedGridFormat() { }
+}
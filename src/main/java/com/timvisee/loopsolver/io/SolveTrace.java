@@ -0,0 +1,87 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.solver.SolverEventBuffer;
+
+public class SolveTrace {
+
+    /** Grid width. */
+    private final int width;
+    /** Grid height. */
+    private final int height;
+    /** The state of every tile when the recording started, holding the mask and the solved bit. */
+    private final byte[] cells;
+    /** The events, encoded like {@link SolverEventBuffer#encode(int, int, int)} does. */
+    private final long[] events;
+
+    /**
+     * Constructor.
+     *
+     * @param width Grid width.
+     * @param height Grid height.
+     * @param cells The state of every tile when the recording started. The array is not copied.
+     * @param events The events. The array is not copied.
+     */
+    public SolveTrace(int width, int height, byte[] cells, long[] events) {
+        if(cells.length != width * height)
+            throw new IllegalArgumentException("Expected " + width * height + " cells, got " + cells.length);
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+        this.events = events;
+    }
+
+    /**
+     * Get the grid width.
+     *
+     * @return Grid width.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Get the grid height.
+     *
+     * @return Grid height.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Get the number of events.
+     *
+     * @return Number of events.
+     */
+    public int getLength() {
+        return this.events.length;
+    }
+
+    /**
+     * Get an event.
+     * Use the methods of {@link SolverEventBuffer} to decode it.
+     *
+     * @param index The index of the event.
+     *
+     * @return The event.
+     */
+    public long getEvent(int index) {
+        return this.events[index];
+    }
+
+    /**
+     * Set a grid to the state it had when the recording started.
+     * The grid is resized if its size doesn't match.
+     *
+     * @param grid The grid.
+     */
+    public void reset(LoopGrid grid) {
+        if(grid.getWidth() != this.width || grid.getHeight() != this.height)
+            grid.setSize(this.width, this.height);
+        for(int i = 0; i < this.cells.length; i++) {
+            grid.setMask(i, this.cells[i] & LoopGrid.CELL_MASK);
+            grid.setSolved(i, (this.cells[i] & LoopGrid.CELL_SOLVED) != 0);
+        }
+    }
+}
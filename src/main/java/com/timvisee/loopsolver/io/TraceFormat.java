@@ -0,0 +1,34 @@
+package com.timvisee.loopsolver.io;
+
+public final class TraceFormat {
+
+    /** Magic number at the start of a solve trace, {@code LTRC} in ASCII. */
+    public static final int MAGIC = 0x4C545243;
+    /** Format version. */
+    public static final short VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     * The header holds the magic number (4 bytes), the version (2 bytes), 2 reserved bytes, the grid width (4 bytes)
+     * and the grid height (4 bytes). All numbers are big endian.
+     *
+     * The header is followed by the state of every tile when the recording started, one byte per tile in row order,
+     * holding the connector mask and the solved bit like {@link com.timvisee.loopsolver.grid.LoopGrid} does.
+     *
+     * The events follow the tiles, until the end of the file. Every event starts with an unsigned variable-length
+     * number, 7 bits per byte with the lowest bits first and the high bit set on all bytes but the last. Its lowest
+     * {@link #TYPE_BITS} bits hold the event type of {@link com.timvisee.loopsolver.solver.SolverEventBuffer}. The
+     * other bits hold the difference between the tile position and the position of the previous tile event, zigzag
+     * encoded, so the small steps of a solver take a single byte. Phase events hold the phase ordinal instead, and
+     * don't change the previous position. Cell events are followed by one byte holding the new state of the tile.
+     */
+    public static final int HEADER_SIZE = 16;
+
+    /** Number of bits of an event that hold its type. */
+    static final int TYPE_BITS = 2;
+
+    /**
+     * Constructor, not used.
+     */
+    private TraceFormat() { }
+}
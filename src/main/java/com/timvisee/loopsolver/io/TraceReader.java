@@ -0,0 +1,133 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.solver.SolverEventBuffer;
+import com.timvisee.loopsolver.solver.SolverPhase;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class TraceReader implements Closeable {
+
+    /** Size of the read buffer in bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Initial capacity of the event list, it grows when needed. */
+    private static final int EVENTS_CAPACITY = 1 << 12;
+
+    /** Largest number of events in a trace. */
+    private static final int MAX_EVENTS = Integer.MAX_VALUE - 8;
+
+    /** Mask of the type bits of an event. */
+    private static final long TYPE_MASK = (1 << TraceFormat.TYPE_BITS) - 1;
+
+    /** The input. */
+    private final DataInputStream in;
+
+    /**
+     * Constructor.
+     *
+     * @param in The input. It is read through an internal buffer, so it doesn't need to be buffered.
+     */
+    public TraceReader(InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+    }
+
+    /**
+     * Read the trace.
+     * All events are read into memory, so the trace can be replayed from any event.
+     *
+     * @return The trace.
+     *
+     * @throws IOException If reading failed or the input isn't a valid trace.
+     */
+    public SolveTrace read() throws IOException {
+        // Read and check the header
+        if(this.in.readInt() != TraceFormat.MAGIC)
+            throw new IOException("Not a solve trace: invalid magic number");
+        short version = this.in.readShort();
+        if(version != TraceFormat.VERSION)
+            throw new IOException("Unsupported solve trace version: " + version);
+        this.in.readShort();
+        final int width = this.in.readInt();
+        final int height = this.in.readInt();
+        if(width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE)
+            throw new IOException("Corrupt solve trace: invalid grid size " + width + "x" + height);
+
+        // Read the state of all tiles
+        final int total = width * height;
+        byte[] cells = new byte[total];
+        this.in.readFully(cells);
+
+        // Read the events until the end of the input
+        long[] events = new long[EVENTS_CAPACITY];
+        int count = 0;
+        int lastPosition = 0;
+        int first;
+        while((first = this.in.read()) >= 0) {
+            // Decode the type and the position
+            long value = readVarLong(first);
+            int type = (int) (value & TYPE_MASK);
+            value >>>= TraceFormat.TYPE_BITS;
+            int position;
+            int cell = 0;
+            if(type == SolverEventBuffer.EVENT_PHASE) {
+                if(value >= SolverPhase.values().length)
+                    throw new IOException("Corrupt solve trace: invalid phase in event " + count);
+                position = (int) value;
+            } else {
+                long absolute = lastPosition + ((value >>> 1) ^ -(value & 1));
+                if(absolute < -1 || absolute >= total || (absolute < 0 && type == SolverEventBuffer.EVENT_CELL))
+                    throw new IOException("Corrupt solve trace: invalid position in event " + count);
+                position = (int) absolute;
+                lastPosition = position;
+            }
+
+            // Read the state of the tile
+            if(type == SolverEventBuffer.EVENT_CELL)
+                cell = this.in.readUnsignedByte();
+
+            // Add the event
+            if(count == events.length) {
+                if(count == MAX_EVENTS)
+                    throw new IOException("Solve trace has too many events");
+                events = Arrays.copyOf(events, (int) Math.min((long) count * 2, MAX_EVENTS));
+            }
+            events[count++] = SolverEventBuffer.encode(type, position, cell);
+        }
+
+        return new SolveTrace(width, height, cells, Arrays.copyOf(events, count));
+    }
+
+    /**
+     * Read the rest of an unsigned variable-length number.
+     *
+     * @param first The first byte.
+     *
+     * @return The number.
+     *
+     * @throws IOException If reading failed or the number is too long.
+     */
+    private long readVarLong(int first) throws IOException {
+        long value = first & 0x7F;
+        int b = first;
+        for(int shift = 7; (b & 0x80) != 0; shift += 7) {
+            if(shift >= Long.SIZE)
+                throw new IOException("Corrupt solve trace: number too long");
+            b = this.in.read();
+            if(b < 0)
+                throw new EOFException("Unexpected end of solve trace");
+            value |= (long) (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+}
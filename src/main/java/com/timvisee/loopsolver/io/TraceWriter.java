@@ -0,0 +1,154 @@
+package com.timvisee.loopsolver.io;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.solver.SolverEventBuffer;
+import com.timvisee.loopsolver.solver.SolverObserver;
+import com.timvisee.loopsolver.solver.SolverPhase;
+import com.timvisee.loopsolver.tile.LoopTile;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class TraceWriter implements SolverObserver, Closeable {
+
+    /** Size of the write buffer in bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The output. */
+    private final DataOutputStream out;
+
+    /** Position of the previous tile event. */
+    private int lastPosition = 0;
+    /** Number of events written. */
+    private long count = 0;
+
+    /** The first error while writing an event, or null. Events can't throw, so it's thrown when closing. */
+    private IOException error = null;
+    /** True if the writer is closed. */
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     * This writes the header and the current state of the grid, set the writer as observer of the grid afterwards to
+     * record a solve.
+     *
+     * @param out The output. It is written through an internal buffer, so it doesn't need to be buffered.
+     * @param grid The grid that is solved.
+     *
+     * @throws IOException If writing failed.
+     */
+    public TraceWriter(OutputStream out, LoopGrid grid) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+
+        // Write the header
+        this.out.writeInt(TraceFormat.MAGIC);
+        this.out.writeShort(TraceFormat.VERSION);
+        this.out.writeShort(0);
+        this.out.writeInt(grid.getWidth());
+        this.out.writeInt(grid.getHeight());
+
+        // Write the state of all tiles
+        for(int i = 0; i < grid.getTotal(); i++)
+            this.out.writeByte(grid.getMask(i) | (grid.isSolved(i) ? LoopGrid.CELL_SOLVED : 0));
+    }
+
+    /**
+     * Get the number of events written so far.
+     *
+     * @return Number of events.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Write an event.
+     * Errors are kept, and thrown when the writer is closed. No events are written after an error.
+     *
+     * @param type The event type, see {@link SolverEventBuffer}.
+     * @param position The tile position, or the phase ordinal.
+     * @param cell The cell state, only written for cell events.
+     */
+    public void write(int type, int position, int cell) {
+        if(this.closed || this.error != null)
+            return;
+
+        try {
+            // Write the type and the position, relative to the previous position for tile events
+            long value = position;
+            if(type != SolverEventBuffer.EVENT_PHASE) {
+                value = (long) position - this.lastPosition;
+                value = (value << 1) ^ (value >> 63);
+                this.lastPosition = position;
+            }
+            writeVarLong((value << TraceFormat.TYPE_BITS) | type);
+
+            // Write the state of the tile
+            if(type == SolverEventBuffer.EVENT_CELL)
+                this.out.writeByte(cell);
+            this.count++;
+        } catch(IOException e) {
+            this.error = e;
+        }
+    }
+
+    /**
+     * Write an unsigned variable-length number.
+     *
+     * @param value The number.
+     *
+     * @throws IOException If writing failed.
+     */
+    private void writeVarLong(long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            this.out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.out.writeByte((int) value);
+    }
+
+    @Override
+    public void onTileFocused(LoopTile tile) {
+        write(SolverEventBuffer.EVENT_FOCUSED, tile != null ? tile.getPosition() : -1, 0);
+    }
+
+    @Override
+    public void onTileChecked(LoopTile tile) {
+        write(SolverEventBuffer.EVENT_CHECKED, tile != null ? tile.getPosition() : -1, 0);
+    }
+
+    @Override
+    public void onTileSolved(LoopTile tile, boolean solved) {
+        write(SolverEventBuffer.EVENT_CELL, tile.getPosition(), tile.getMask() | (solved ? LoopGrid.CELL_SOLVED : 0));
+    }
+
+    @Override
+    public void onPhaseChanged(SolverPhase phase) {
+        write(SolverEventBuffer.EVENT_PHASE, phase.ordinal(), 0);
+    }
+
+    /**
+     * Flush and close the output.
+     *
+     * @throws IOException If writing an event or closing failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if(this.closed)
+            return;
+        this.closed = true;
+
+        // Close the output, and report the first error
+        try {
+            this.out.close();
+        } catch(IOException e) {
+            if(this.error == null)
+                this.error = e;
+        }
+        if(this.error != null)
+            throw this.error;
+    }
+}
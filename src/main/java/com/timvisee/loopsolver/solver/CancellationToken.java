@@ -0,0 +1,99 @@
+package com.timvisee.loopsolver.solver;
+
+import java.util.concurrent.TimeUnit;
+
+public class CancellationToken {
+
+    /** Token of the work this work is part of, or null. */
+    private final CancellationToken parent;
+
+    /** True if a deadline is set. */
+    private final boolean hasDeadline;
+    /** The deadline, in {@link System#nanoTime()} time. */
+    private final long deadline;
+
+    /** True if cancellation was requested. */
+    private volatile boolean cancelled = false;
+
+    /**
+     * Constructor.
+     * The token is only cancelled by calling {@link #cancel()}.
+     */
+    public CancellationToken() {
+        this(null, false, 0);
+    }
+
+    /**
+     * Constructor.
+     * The token is also cancelled when the parent token is cancelled, which makes it possible to stop part of some
+     * work without stopping the rest.
+     *
+     * @param parent The token of the work this work is part of, or null.
+     */
+    public CancellationToken(CancellationToken parent) {
+        this(parent, false, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param parent The token of the work this work is part of, or null.
+     * @param hasDeadline True if the deadline is set.
+     * @param deadline The deadline, in {@link System#nanoTime()} time.
+     */
+    private CancellationToken(CancellationToken parent, boolean hasDeadline, long deadline) {
+        this.parent = parent;
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Create a token that is cancelled automatically when a time budget runs out.
+     *
+     * @param timeout The time budget.
+     * @param unit The unit of the time budget.
+     *
+     * @return The token.
+     */
+    public static CancellationToken withTimeout(long timeout, TimeUnit unit) {
+        if(timeout < 0)
+            throw new IllegalArgumentException("Timeout must not be negative, got " + timeout);
+        return new CancellationToken(null, true, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Request cancellation.
+     * Work that checks this token stops as soon as it notices.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Check whether cancellation was requested, the deadline has passed, or the parent token is cancelled.
+     * This is cheap enough to call every few hundred search nodes.
+     *
+     * @return True if cancelled, false if not.
+     */
+    public boolean isCancelled() {
+        return this.cancelled || isPastDeadline() || (this.parent != null && this.parent.isCancelled());
+    }
+
+    /**
+     * Check whether the deadline of this token or of its parent token has passed.
+     *
+     * @return True if timed out, false if not.
+     */
+    public boolean isTimedOut() {
+        return isPastDeadline() || (this.parent != null && this.parent.isTimedOut());
+    }
+
+    /**
+     * Check whether the deadline of this token has passed.
+     *
+     * @return True if a deadline is set and it has passed, false if not.
+     */
+    private boolean isPastDeadline() {
+        return this.hasDeadline && System.nanoTime() - this.deadline >= 0;
+    }
+}
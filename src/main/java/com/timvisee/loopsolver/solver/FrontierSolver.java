@@ -0,0 +1,433 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.tile.LoopTileMask;
+import com.timvisee.loopsolver.tile.LoopTileSide;
+
+import java.math.BigInteger;
+
+public class FrontierSolver implements SolverEngine {
+
+    /** Largest number of tiles across the sweep, the frontier of a state must fit in the bits of an int. */
+    public static final int MAX_FRONTIER_LENGTH = Integer.SIZE - 2;
+    /** Default number of frontier states the solver may keep at once. */
+    public static final int DEFAULT_MAX_STATES = 1 << 22;
+
+    /** The grid to solve. */
+    private final LoopGrid grid;
+
+    /** Propagator holding the remaining rotations of each tile. */
+    private Propagator propagator;
+
+    /** Number of frontier states the solver may keep at once. */
+    private int maxStates = DEFAULT_MAX_STATES;
+
+    /** True if the sweep runs along the columns, because the grid is wider than it is high. */
+    private boolean transposed;
+    /** Number of tiles across the sweep, the number of edges in a frontier. */
+    private int length;
+    /** Number of lines the sweep passes. */
+    private int lines;
+    /** The sides of the grid that face the previous line, the next tile, the next line and the previous tile. */
+    private int up, right, down, left;
+
+    /** The keys of the states at the end of every line, to find a solution again after counting. */
+    private int[][] lineStates;
+
+    /** The number of solutions, or null if the solver hasn't finished or gave up. */
+    private BigInteger solutionCount;
+    /** Number of state transitions that were made. */
+    private long nodes = 0;
+    /** Largest number of states that were kept at once. */
+    private int peakStates = 0;
+
+    /** Statistics of the last run, or null if the solver hasn't run yet. */
+    private SolverStats stats;
+
+    /** Token to check for cancellation, or null. */
+    private CancellationToken token;
+    /** The status of the solver. */
+    private volatile SolverStatus status = SolverStatus.RUNNING;
+
+    /**
+     * Constructor.
+     *
+     * @param grid The grid to solve.
+     */
+    public FrontierSolver(LoopGrid grid) {
+        this.grid = grid;
+    }
+
+    @Override
+    public LoopGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Get the number of search nodes that were visited.
+     * Every transition from a frontier state over a tile counts as one node.
+     *
+     * @return Number of search nodes.
+     */
+    @Override
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Get the status of the solver.
+     * The solver ends with {@link SolverStatus#UNKNOWN} if the grid is too wide to sweep, or if it needs more than
+     * the maximum number of states. The grid then holds the tiles that propagation solved.
+     *
+     * @return The status, {@link SolverStatus#RUNNING} if the solver hasn't finished.
+     */
+    @Override
+    public SolverStatus getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Get the statistics of the last run.
+     * The solver doesn't backtrack, and finding a solution after counting counts as verifying it.
+     *
+     * @return The statistics, or null if the solver hasn't run yet.
+     */
+    @Override
+    public SolverStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Get the number of frontier states the solver may keep at once.
+     *
+     * @return Number of states.
+     */
+    public int getMaxStates() {
+        return this.maxStates;
+    }
+
+    /**
+     * Set the number of frontier states the solver may keep at once.
+     * Every state takes about 20 bytes, and the states at the end of every line are kept to find a solution.
+     *
+     * @param maxStates Number of states, at least 1.
+     */
+    public void setMaxStates(int maxStates) {
+        if(maxStates < 1)
+            throw new IllegalArgumentException("Maximum number of states must be at least 1, got " + maxStates);
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Get the number of solutions of the grid.
+     * Tiles with symmetric shapes count each distinct orientation once, like the propagator does.
+     *
+     * @return The number of solutions, or null if the solver hasn't finished, was cancelled or gave up.
+     */
+    public BigInteger getSolutionCount() {
+        return this.solutionCount;
+    }
+
+    /**
+     * Get the largest number of frontier states that were kept at once.
+     *
+     * @return Number of states.
+     */
+    public int getPeakStates() {
+        return this.peakStates;
+    }
+
+    /**
+     * Count the solutions of the grid, and solve it.
+     *
+     * The grid is swept line by line along its longer side, one tile at a time. A solution of the tiles before the
+     * sweep only constrains the tiles after it through the edges that cross it: one edge below each tile across the
+     * sweep, and the edge right of the last tile that was passed. These edges are the frontier, and a table maps each
+     * frontier that is possible to the number of ways the tiles before it can be solved. Moving the sweep over a tile
+     * adds the count of every state to the states the rotations of the tile lead to. The number of states is at most
+     * two to the power of the number of tiles across the sweep plus one, so the time grows linearly with the length of
+     * the grid for a fixed width.
+     *
+     * The grid is propagated first, so fixed tiles only have one rotation to try. The states at the end of every line
+     * are kept, and a solution is found by walking the lines back from the empty frontier below the grid.
+     */
+    @Override
+    public void run() {
+        // Start propagating
+        this.status = SolverStatus.RUNNING;
+        this.solutionCount = null;
+        this.nodes = 0;
+        this.peakStates = 0;
+        getObserver().onPhaseChanged(SolverPhase.PROPAGATION);
+        long start = System.nanoTime();
+
+        // Reduce the rotations of all tiles, so fixed tiles don't branch the states. Solved tiles aren't pinned, so the
+        // count doesn't depend on an earlier solve
+        this.propagator = new Propagator(this.grid, false);
+        final int initiallyFixed = this.propagator.countFixed();
+        this.propagator.enqueueAll();
+        final boolean consistent = this.propagator.propagate();
+        final long propagatedTiles = this.propagator.getRevisions();
+        final int fixedTiles = consistent ? this.propagator.countFixed() - initiallyFixed : 0;
+        this.propagator.clearTrail();
+        long propagated = System.nanoTime();
+
+        // Sweep along the longer side, so the frontier is as short as possible
+        getObserver().onPhaseChanged(SolverPhase.SEARCH);
+        this.transposed = this.grid.getWidth() > this.grid.getHeight();
+        this.length = this.transposed ? this.grid.getHeight() : this.grid.getWidth();
+        this.lines = this.transposed ? this.grid.getWidth() : this.grid.getHeight();
+        this.up = (this.transposed ? LoopTileSide.LEFT : LoopTileSide.TOP).side();
+        this.right = (this.transposed ? LoopTileSide.BOTTOM : LoopTileSide.RIGHT).side();
+        this.down = (this.transposed ? LoopTileSide.RIGHT : LoopTileSide.BOTTOM).side();
+        this.left = (this.transposed ? LoopTileSide.TOP : LoopTileSide.LEFT).side();
+
+        SolverStatus result;
+        if(!consistent)
+            result = finishCount(BigInteger.ZERO);
+        else if(this.length > MAX_FRONTIER_LENGTH)
+            result = SolverStatus.UNKNOWN;
+        else
+            result = count();
+        long searched = System.nanoTime();
+        if(result == SolverStatus.SOLVED)
+            findSolution();
+        this.lineStates = null;
+        this.propagator.apply();
+        long verified = System.nanoTime();
+
+        // Keep the statistics of this run
+        this.stats = new SolverStats(result == SolverStatus.SOLVED, propagatedTiles, fixedTiles, this.nodes, 0, 0,
+                propagated - start, searched - propagated, verified - searched);
+        SolverMetrics.getInstance().record(this.stats);
+
+        // Reset the working and checking tile
+        this.grid.setWorkingTile(null);
+        this.grid.setCheckingTile(null);
+
+        // The solver has finished
+        this.status = result;
+        getObserver().onPhaseChanged(SolverPhase.FINISHED);
+    }
+
+    /**
+     * Sweep the grid, and count its solutions.
+     *
+     * @return The status to finish with.
+     */
+    private SolverStatus count() {
+        this.lineStates = new int[this.lines][];
+
+        // Start with the empty frontier above the grid
+        FrontierTable states = new FrontierTable();
+        FrontierTable next = new FrontierTable();
+        states.put(0, 1);
+
+        for(int line = 0; line < this.lines; line++) {
+            for(int index = 0; index < this.length; index++) {
+                // Stop if cancelled
+                if(this.token != null && this.token.isCancelled())
+                    return this.token.isTimedOut() ? SolverStatus.TIMED_OUT : SolverStatus.CANCELLED;
+
+                // Move the sweep over the tile
+                step(states, next, line, index, null);
+                FrontierTable swap = states;
+                states = next;
+                next = swap;
+                next.clear();
+
+                // Give up if there are too many states to keep
+                this.peakStates = Math.max(this.peakStates, states.size());
+                if(states.size() > this.maxStates)
+                    return SolverStatus.UNKNOWN;
+                if(states.size() == 0)
+                    return finishCount(BigInteger.ZERO);
+            }
+            this.lineStates[line] = states.getKeys();
+        }
+
+        // Only the empty frontier is left below the grid, as tiles at the border never connect outside of it
+        return finishCount(states.getCount(0));
+    }
+
+    /**
+     * Set the number of solutions.
+     *
+     * @param count The number of solutions.
+     *
+     * @return The status to finish with.
+     */
+    private SolverStatus finishCount(BigInteger count) {
+        this.solutionCount = count;
+        return count.signum() > 0 ? SolverStatus.SOLVED : SolverStatus.UNSOLVABLE;
+    }
+
+    /**
+     * Move the sweep over a tile, adding the count of every state to the states the rotations of the tile lead to.
+     *
+     * Bit {@code i} of a state key is the edge below tile {@code i} of the line, which is below the previous line for
+     * the tiles that weren't passed yet. Bit {@link #length} is the edge right of the last tile that was passed.
+     *
+     * @param states The states before the tile.
+     * @param next The table to add the states after the tile to.
+     * @param line The line of the tile.
+     * @param index The index of the tile in the line.
+     * @param filter Only add the states after the tile that this table holds, or null to add all of them.
+     */
+    private void step(FrontierTable states, FrontierTable next, int line, int index, FrontierTable filter) {
+        final int position = getPosition(line, index);
+        if(this.grid.isObserved())
+            this.grid.setWorkingTile(this.grid.getTile(position));
+
+        // Determine the edges every rotation of the tile leads to, for each edge it needs above and left of it
+        final int[] transitions = getTransitions(position, line, index);
+        final int verticalBit = 1 << index;
+        final int horizontalBit = 1 << this.length;
+
+        for(int i = 0; i < states.size(); i++) {
+            final int key = states.getKey(i);
+            final int needs = ((key & verticalBit) != 0 ? 2 : 0) | ((key & horizontalBit) != 0 ? 1 : 0);
+            final int base = key & ~verticalBit & ~horizontalBit;
+            for(int leads = transitions[needs]; leads != 0; leads &= leads - 1) {
+                final int edges = Integer.numberOfTrailingZeros(leads);
+                final int nextKey = base | ((edges & 2) != 0 ? verticalBit : 0)
+                        | ((edges & 1) != 0 ? horizontalBit : 0);
+                if(filter != null && !filter.contains(nextKey))
+                    continue;
+                next.add(nextKey, states, i);
+                this.nodes++;
+            }
+        }
+    }
+
+    /**
+     * Get the transitions the remaining rotations of a tile allow.
+     * Each combination of the edge above and left of the tile, as two bits, maps to a bitset of the combinations of
+     * the edge below and right of it. Edges at the border of the grid must not connect.
+     *
+     * @param position The tile position.
+     * @param line The line of the tile.
+     * @param index The index of the tile in the line.
+     *
+     * @return The transitions.
+     */
+    private int[] getTransitions(int position, int line, int index) {
+        final boolean lastLine = line == this.lines - 1;
+        final boolean lastIndex = index == this.length - 1;
+        final int base = this.propagator.getBaseMask(position);
+
+        int[] transitions = new int[4];
+        for(int domain = this.propagator.getDomain(position); domain != 0; domain &= domain - 1) {
+            final int mask = LoopTileMask.rotate(base, Integer.numberOfTrailingZeros(domain));
+            final boolean down = (mask & (1 << this.down)) != 0;
+            final boolean right = (mask & (1 << this.right)) != 0;
+            if((down && lastLine) || (right && lastIndex))
+                continue;
+            final int needs = ((mask & (1 << this.up)) != 0 ? 2 : 0) | ((mask & (1 << this.left)) != 0 ? 1 : 0);
+            transitions[needs] |= 1 << ((down ? 2 : 0) | (right ? 1 : 0));
+        }
+        return transitions;
+    }
+
+    /**
+     * Find a solution, and fix every tile to it in the propagator.
+     * The lines are walked back from the empty frontier below the grid. Every line is swept again from the states at
+     * the end of the line above it, only keeping the states that lead to the frontier that was chosen below it, and
+     * the tiles are then walked back through those states.
+     */
+    private void findSolution() {
+        FrontierTable[] tables = new FrontierTable[this.length + 1];
+        for(int i = 0; i <= this.length; i++)
+            tables[i] = new FrontierTable();
+        FrontierTable target = new FrontierTable();
+
+        int frontier = 0;
+        for(int line = this.lines - 1; line >= 0; line--) {
+            // Sweep the line again from the states above it
+            tables[0].clear();
+            if(line == 0)
+                tables[0].put(0, 1);
+            else
+                for(int key : this.lineStates[line - 1])
+                    tables[0].put(key, 1);
+            target.clear();
+            target.put(frontier, 1);
+            for(int index = 0; index < this.length; index++) {
+                tables[index + 1].clear();
+                step(tables[index], tables[index + 1], line, index, index == this.length - 1 ? target : null);
+            }
+
+            // Walk back over the tiles, choosing a rotation that leads from a state before the tile to the one after it
+            for(int index = this.length - 1; index >= 0; index--) {
+                final int position = getPosition(line, index);
+                frontier = fixTile(position, line, index, frontier, tables[index]);
+            }
+        }
+        this.propagator.clearQueue();
+    }
+
+    /**
+     * Fix a tile to a rotation that leads from a state before it to a state after it.
+     *
+     * @param position The tile position.
+     * @param line The line of the tile.
+     * @param index The index of the tile in the line.
+     * @param after The state after the tile.
+     * @param before The states before the tile.
+     *
+     * @return The state before the tile.
+     */
+    private int fixTile(int position, int line, int index, int after, FrontierTable before) {
+        final int verticalBit = 1 << index;
+        final int horizontalBit = 1 << this.length;
+        final int base = this.propagator.getBaseMask(position);
+        final boolean down = (after & verticalBit) != 0;
+        final boolean right = (after & horizontalBit) != 0;
+
+        for(int domain = this.propagator.getDomain(position); domain != 0; domain &= domain - 1) {
+            // Skip rotations that don't lead to the state after the tile
+            final int rotation = Integer.numberOfTrailingZeros(domain);
+            final int mask = LoopTileMask.rotate(base, rotation);
+            if(((mask & (1 << this.down)) != 0) != down || ((mask & (1 << this.right)) != 0) != right)
+                continue;
+
+            // Take the rotation if the state it needs before the tile is possible
+            final int key = (after & ~verticalBit & ~horizontalBit)
+                    | ((mask & (1 << this.up)) != 0 ? verticalBit : 0)
+                    | ((mask & (1 << this.left)) != 0 ? horizontalBit : 0);
+            if(before.contains(key)) {
+                this.propagator.restrict(position, 1 << rotation);
+                return key;
+            }
+        }
+
+        // The sweep found this state, so one of the rotations leads to it
+        throw new IllegalStateException("No rotation of tile " + position + " leads to the frontier");
+    }
+
+    /**
+     * Get the position of a tile in the grid.
+     *
+     * @param line The line of the tile.
+     * @param index The index of the tile in the line.
+     *
+     * @return The tile position.
+     */
+    private int getPosition(int line, int index) {
+        return this.transposed ? index * this.grid.getWidth() + line : line * this.grid.getWidth() + index;
+    }
+
+    /**
+     * Get the observer that is notified about the solver progress.
+     *
+     * @return Solver observer.
+     */
+    private SolverObserver getObserver() {
+        return this.grid.getObserver();
+    }
+}
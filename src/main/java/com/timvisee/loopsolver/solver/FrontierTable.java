@@ -0,0 +1,219 @@
+package com.timvisee.loopsolver.solver;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+class FrontierTable {
+
+    /** Initial number of entries the table has room for, it grows when needed. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Slot value of an empty slot. */
+    private static final int EMPTY = 0;
+
+    /** The keys of the entries, in the order they were added. */
+    private int[] keys = new int[INITIAL_CAPACITY];
+    /** The counts of the entries, if they fit in a long. */
+    private long[] counts = new long[INITIAL_CAPACITY];
+    /** The counts of the entries that don't fit in a long, or null if no count overflowed yet. */
+    private BigInteger[] bigCounts;
+    /** Number of entries. */
+    private int size = 0;
+
+    /** Hash slots holding the index of an entry plus one, or {@link #EMPTY}. The length is a power of two. */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Get the number of entries.
+     *
+     * @return Number of entries.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the key of an entry.
+     *
+     * @param index The index of the entry, in the order the entries were added.
+     *
+     * @return The key.
+     */
+    public int getKey(int index) {
+        return this.keys[index];
+    }
+
+    /**
+     * Get a copy of the keys of all entries.
+     *
+     * @return The keys, in the order they were added.
+     */
+    public int[] getKeys() {
+        return Arrays.copyOf(this.keys, this.size);
+    }
+
+    /**
+     * Get the count of an entry.
+     *
+     * @param index The index of the entry.
+     *
+     * @return The count.
+     */
+    public BigInteger getCount(int index) {
+        if(this.bigCounts != null && this.bigCounts[index] != null)
+            return this.bigCounts[index];
+        return BigInteger.valueOf(this.counts[index]);
+    }
+
+    /**
+     * Check whether the table has an entry for a key.
+     *
+     * @param key The key, not negative.
+     *
+     * @return True if there is an entry.
+     */
+    public boolean contains(int key) {
+        final int mask = this.slots.length - 1;
+        for(int slot = hash(key) & mask; this.slots[slot] != EMPTY; slot = (slot + 1) & mask)
+            if(this.keys[this.slots[slot] - 1] == key)
+                return true;
+        return false;
+    }
+
+    /**
+     * Add the count of an entry of another table to the entry for a key.
+     * The entry is created if there is none.
+     *
+     * @param key The key, not negative.
+     * @param from The table holding the count to add.
+     * @param index The index of the entry in that table.
+     */
+    public void add(int key, FrontierTable from, int index) {
+        final int entry = insert(key);
+
+        // Add big counts as big counts, the same is done for counts that overflow a long
+        if(from.bigCounts != null && from.bigCounts[index] != null) {
+            setBigCount(entry, getCount(entry).add(from.bigCounts[index]));
+            return;
+        }
+        final long count = from.counts[index];
+        if(this.bigCounts != null && this.bigCounts[entry] != null) {
+            this.bigCounts[entry] = this.bigCounts[entry].add(BigInteger.valueOf(count));
+            return;
+        }
+        final long sum = this.counts[entry] + count;
+        if(sum < 0)
+            setBigCount(entry, BigInteger.valueOf(this.counts[entry]).add(BigInteger.valueOf(count)));
+        else
+            this.counts[entry] = sum;
+    }
+
+    /**
+     * Set the count for a key, replacing the count of an existing entry.
+     *
+     * @param key The key, not negative.
+     * @param count The count.
+     */
+    public void put(int key, long count) {
+        final int entry = insert(key);
+        this.counts[entry] = count;
+        if(this.bigCounts != null)
+            this.bigCounts[entry] = null;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        // Clear the slots of the entries, or all slots if that's cheaper
+        if(this.size * 4 < this.slots.length) {
+            final int mask = this.slots.length - 1;
+            for(int i = 0; i < this.size; i++) {
+                int slot = hash(this.keys[i]) & mask;
+                while(this.slots[slot] != EMPTY) {
+                    this.slots[slot] = EMPTY;
+                    slot = (slot + 1) & mask;
+                }
+            }
+        } else
+            Arrays.fill(this.slots, EMPTY);
+
+        if(this.bigCounts != null)
+            Arrays.fill(this.bigCounts, 0, this.size, null);
+        this.size = 0;
+    }
+
+    /**
+     * Find the entry for a key, and create it with a count of zero if there is none.
+     *
+     * @param key The key.
+     *
+     * @return The index of the entry.
+     */
+    private int insert(int key) {
+        int mask = this.slots.length - 1;
+        int slot = hash(key) & mask;
+        for(; this.slots[slot] != EMPTY; slot = (slot + 1) & mask)
+            if(this.keys[this.slots[slot] - 1] == key)
+                return this.slots[slot] - 1;
+
+        // Grow the entries and the slots, keeping the slots at most half full
+        if(this.size == this.keys.length) {
+            final int capacity = this.keys.length * 2;
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.counts = Arrays.copyOf(this.counts, capacity);
+            if(this.bigCounts != null)
+                this.bigCounts = Arrays.copyOf(this.bigCounts, capacity);
+            rehash(capacity * 2);
+            mask = this.slots.length - 1;
+            for(slot = hash(key) & mask; this.slots[slot] != EMPTY; slot = (slot + 1) & mask);
+        }
+
+        // Add the entry
+        final int entry = this.size++;
+        this.keys[entry] = key;
+        this.counts[entry] = 0;
+        this.slots[slot] = entry + 1;
+        return entry;
+    }
+
+    /**
+     * Set the count of an entry that doesn't fit in a long.
+     *
+     * @param entry The index of the entry.
+     * @param count The count.
+     */
+    private void setBigCount(int entry, BigInteger count) {
+        if(this.bigCounts == null)
+            this.bigCounts = new BigInteger[this.keys.length];
+        this.bigCounts[entry] = count;
+    }
+
+    /**
+     * Rebuild the slots with a new number of slots.
+     *
+     * @param slotCount Number of slots, a power of two.
+     */
+    private void rehash(int slotCount) {
+        this.slots = new int[slotCount];
+        final int mask = slotCount - 1;
+        for(int i = 0; i < this.size; i++) {
+            int slot = hash(this.keys[i]) & mask;
+            while(this.slots[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            this.slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Spread the bits of a key, as frontier keys differ in few bits.
+     *
+     * @param key The key.
+     *
+     * @return The hash.
+     */
+    private static int hash(int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
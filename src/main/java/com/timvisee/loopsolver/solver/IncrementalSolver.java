@@ -0,0 +1,359 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+
+import java.util.Arrays;
+
+public class IncrementalSolver implements SolverEngine {
+
+    /** Number of tiles around a changed tile that are solved again on the first attempt. */
+    private static final int INITIAL_RADIUS = 2;
+
+    /** The grid to solve. */
+    private final LoopGrid grid;
+
+    /** Propagator holding the last solution, or null if the grid has to be solved from scratch. */
+    private Propagator propagator;
+    /** The mask of each tile in the last solution, to find the tiles that were changed since. */
+    private byte[] solution;
+    /** Grid width of the last solution. */
+    private int width;
+
+    /** For each tile, true while it's part of the window that is being solved again. */
+    private boolean[] inWindow;
+    /** Buffer shared by the searches, see {@link Search}. */
+    private boolean[] visited;
+
+    /** Number of threads to search with when the grid is solved from scratch. */
+    private int parallelism = 1;
+
+    /** Token to check for cancellation, or null. */
+    private CancellationToken token;
+    /** The status of the last run. */
+    private volatile SolverStatus status = SolverStatus.RUNNING;
+    /** The solver used to solve the grid from scratch, or null. */
+    private volatile Solver fullSolver;
+
+    /** Number of search nodes visited in all runs. */
+    private long nodes = 0;
+    /** Number of tiles that were solved again in the last run. */
+    private int resolvedTiles = 0;
+
+    /** Number of search backtracks in the window of the last run. */
+    private long backtracks;
+    /** Maximum search depth in the window of the last run. */
+    private int maxDepth;
+    /** Number of tiles in the window of the last run that were fixed by propagating. */
+    private int fixedTiles;
+    /** Time spent propagating the window in the last run, in nanoseconds. */
+    private long propagationNanos;
+    /** Time spent searching the window in the last run, in nanoseconds. */
+    private long searchNanos;
+    /** Statistics of the last run, or null if the solver hasn't run yet. */
+    private SolverStats stats;
+
+    /**
+     * Constructor.
+     *
+     * @param grid The grid to solve.
+     */
+    public IncrementalSolver(LoopGrid grid) {
+        this.grid = grid;
+    }
+
+    @Override
+    public LoopGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Get the number of search nodes that were visited, in all runs.
+     *
+     * @return Number of search nodes.
+     */
+    @Override
+    public long getNodes() {
+        Solver fullSolver = this.fullSolver;
+        return this.nodes + (fullSolver != null && fullSolver.getStatus() == SolverStatus.RUNNING ? fullSolver.getNodes() : 0);
+    }
+
+    /**
+     * Get the number of threads to search with when the grid is solved from scratch.
+     *
+     * @return Number of threads.
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Set the number of threads to search with when the grid is solved from scratch, see
+     * {@link Solver#setParallelism(int)}. The small windows that are solved again after edits are searched on the
+     * solver thread.
+     *
+     * @param parallelism Number of threads, 1 to search on the solver thread.
+     */
+    public void setParallelism(int parallelism) {
+        if(parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    @Override
+    public SolverStatus getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Get the statistics of the last run.
+     * If the grid was solved from scratch, these are the statistics of the {@link Solver} that solved it. Otherwise they
+     * cover the windows that were solved again, and the search nodes of this run only.
+     *
+     * @return The statistics, or null if the solver hasn't run yet.
+     */
+    @Override
+    public SolverStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Get the estimated fraction of the run that is done.
+     *
+     * @return The fraction, from 0 to 1.
+     */
+    public double getProgress() {
+        Solver fullSolver = this.fullSolver;
+        if(fullSolver != null)
+            return fullSolver.getProgress();
+        return this.status != SolverStatus.RUNNING ? 1 : 0;
+    }
+
+    /**
+     * Get the number of tiles that were solved again in the last run.
+     * After the first run, or if the grid had to be solved from scratch, this is the number of tiles in the grid.
+     *
+     * @return Number of tiles.
+     */
+    public int getResolvedTiles() {
+        return this.resolvedTiles;
+    }
+
+    /**
+     * Solve the grid, reusing the last solution.
+     *
+     * The first run solves the grid from scratch, like the {@link Solver} does. Later runs compare the grid with the
+     * last solution, to find the tiles that were rotated or changed since. Only a small window around these tiles is
+     * propagated and searched again, the tiles outside of it keep their rotation. If the window can't be solved with
+     * the tiles around it, a window twice as large is tried, until it covers the whole grid. The result is the same as
+     * solving from scratch, but a single edit usually only touches a few dozen tiles.
+     *
+     * The grid is solved from scratch again if its size changed, or if the last run didn't solve it.
+     */
+    @Override
+    public void run() {
+        this.status = SolverStatus.RUNNING;
+
+        // Solve from scratch if there is no solution to start from
+        if(this.propagator == null || this.width != this.grid.getWidth() || this.solution.length != this.grid.getTotal()) {
+            solveFully();
+            return;
+        }
+
+        // Find the tiles that were changed since the last solution
+        int[] changed = findChanged();
+        SolverStatus status = SolverStatus.SOLVED;
+        final long nodes = this.nodes;
+        final long revisions = this.propagator.getRevisions();
+        this.resolvedTiles = 0;
+        this.backtracks = 0;
+        this.maxDepth = 0;
+        this.fixedTiles = 0;
+        this.propagationNanos = 0;
+        this.searchNanos = 0;
+        if(changed.length > 0) {
+            this.grid.getObserver().onPhaseChanged(SolverPhase.PROPAGATION);
+            status = resolve(changed);
+        }
+
+        // Keep the statistics of this run, the search nodes of earlier runs aren't included
+        this.stats = new SolverStats(status == SolverStatus.SOLVED, this.propagator.getRevisions() - revisions,
+                this.fixedTiles, this.nodes - nodes, this.backtracks, this.maxDepth, this.propagationNanos,
+                this.searchNanos, 0);
+        SolverMetrics.getInstance().record(this.stats);
+
+        // Reset the working and checking tile
+        this.grid.setWorkingTile(null);
+        this.grid.setCheckingTile(null);
+
+        // The solver has finished, the next run must start from scratch if the grid wasn't solved
+        if(status != SolverStatus.SOLVED)
+            this.propagator = null;
+        this.status = status;
+        this.grid.getObserver().onPhaseChanged(SolverPhase.FINISHED);
+    }
+
+    /**
+     * Solve the grid from scratch, and keep the solution.
+     */
+    private void solveFully() {
+        // Forget the solved state of an earlier solve, so the solver doesn't pin those tiles to a stale solution
+        this.grid.setAllSolved(false);
+
+        // Solve the grid
+        Solver solver = new Solver(this.grid);
+        solver.setParallelism(this.parallelism);
+        solver.setCancellationToken(this.token);
+        this.fullSolver = solver;
+        solver.run();
+        this.fullSolver = null;
+        this.nodes += solver.getNodes();
+        this.resolvedTiles = this.grid.getTotal();
+        this.stats = solver.getStats();
+
+        // Keep the solution to start the next run from
+        if(solver.getStatus() == SolverStatus.SOLVED) {
+            this.propagator = solver.getPropagator();
+            this.propagator.clearTrail();
+            this.width = this.grid.getWidth();
+            this.solution = new byte[this.grid.getTotal()];
+            for(int i = 0; i < this.solution.length; i++)
+                this.solution[i] = (byte) this.grid.getMask(i);
+            this.inWindow = new boolean[this.solution.length];
+            this.visited = new boolean[this.solution.length];
+        } else
+            this.propagator = null;
+        this.status = solver.getStatus();
+    }
+
+    /**
+     * Find the tiles that don't have their mask from the last solution anymore.
+     *
+     * @return The tile positions.
+     */
+    private int[] findChanged() {
+        int count = 0;
+        int[] changed = new int[16];
+        for(int i = 0; i < this.solution.length; i++) {
+            if(this.grid.getMask(i) == this.solution[i])
+                continue;
+            if(count == changed.length)
+                changed = Arrays.copyOf(changed, count * 2);
+            changed[count++] = i;
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    /**
+     * Solve the tiles around the changed tiles again, growing the window until it can be solved.
+     *
+     * @param changed The positions of the changed tiles.
+     *
+     * @return The status.
+     */
+    private SolverStatus resolve(int[] changed) {
+        // Start from the current masks of the changed tiles
+        for(int position : changed)
+            this.propagator.setBaseMask(position, this.grid.getMask(position));
+        this.propagator.clearTrail();
+
+        final int total = this.grid.getTotal();
+        for(int radius = INITIAL_RADIUS; ; radius *= 2) {
+            // Reset the tiles in the window, and revise them against each other and the tiles around the window
+            int[] window = createWindow(changed, radius);
+            final int mark = this.propagator.getTrailMark();
+            long start = System.nanoTime();
+            for(int position : window) {
+                this.propagator.reset(position);
+                this.propagator.enqueue(position);
+            }
+            boolean found = this.propagator.propagate();
+            long propagated = System.nanoTime();
+            this.propagationNanos += propagated - start;
+
+            // Search the regions of tiles in the window that aren't fixed yet one by one, they don't constrain each other
+            if(found) {
+                // Count the tiles in the window that propagating fixed, without searching
+                this.fixedTiles = 0;
+                for(int position : window)
+                    if(this.propagator.isFixed(position))
+                        this.fixedTiles++;
+                this.grid.getObserver().onPhaseChanged(SolverPhase.SEARCH);
+                for(int[] region : RegionSearch.findRegions(this.propagator, window)) {
+                    Search search = new Search(this.propagator, region, this.token, this.visited);
+                    found = search.next();
+                    this.nodes += search.getNodes();
+                    this.backtracks += search.getBacktracks();
+                    this.maxDepth = Math.max(this.maxDepth, search.getMaxDepth());
+                    if(search.isCancelled()) {
+                        this.propagator.undo(mark);
+                        this.searchNanos += System.nanoTime() - propagated;
+                        return this.token.isTimedOut() ? SolverStatus.TIMED_OUT : SolverStatus.CANCELLED;
+                    }
+                    if(!found)
+                        break;
+                }
+            }
+            this.searchNanos += System.nanoTime() - propagated;
+
+            // Show the solved window, and keep it as part of the solution
+            if(found) {
+                this.propagator.apply(window);
+                this.propagator.clearTrail();
+                for(int position : window)
+                    this.solution[position] = (byte) this.grid.getMask(position);
+                this.resolvedTiles = window.length;
+                return SolverStatus.SOLVED;
+            }
+
+            // The grid has no solution if the window covers all tiles, grow the window otherwise
+            this.propagator.undo(mark);
+            if(window.length == total) {
+                this.resolvedTiles = total;
+                return SolverStatus.UNSOLVABLE;
+            }
+        }
+    }
+
+    /**
+     * Create the window of tiles around the changed tiles.
+     *
+     * @param changed The positions of the changed tiles.
+     * @param radius Number of tiles around every changed tile to include, in every direction.
+     *
+     * @return The positions of the tiles in the window, in grid order.
+     */
+    private int[] createWindow(int[] changed, int radius) {
+        final int width = this.grid.getWidth();
+        final int height = this.grid.getHeight();
+
+        // Mark the squares around the changed tiles
+        int count = 0;
+        final long squares = (long) changed.length * (2L * radius + 1) * (2L * radius + 1);
+        int[] window = new int[(int) Math.min(this.solution.length, squares)];
+        for(int position : changed) {
+            int x = position % width;
+            int y = position / width;
+            for(int wy = Math.max(y - radius, 0); wy <= Math.min(y + radius, height - 1); wy++) {
+                for(int wx = Math.max(x - radius, 0); wx <= Math.min(x + radius, width - 1); wx++) {
+                    int tile = wx + wy * width;
+                    if(!this.inWindow[tile]) {
+                        this.inWindow[tile] = true;
+                        window[count++] = tile;
+                    }
+                }
+            }
+        }
+
+        // Clear the marks, and sort the tiles so the search walks them in grid order
+        window = Arrays.copyOf(window, count);
+        for(int tile : window)
+            this.inWindow[tile] = false;
+        Arrays.sort(window);
+        return window;
+    }
+}
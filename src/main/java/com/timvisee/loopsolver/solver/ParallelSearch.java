@@ -0,0 +1,249 @@
+package com.timvisee.loopsolver.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ParallelSearch {
+
+    /** Number of extra split levels on top of the levels needed to give every thread a subtree. */
+    private static final int EXTRA_SPLIT_DEPTH = 3;
+
+    /** The propagator holding the domains to search. */
+    private final Propagator propagator;
+
+    /** Number of worker threads. */
+    private final int parallelism;
+    /** Number of levels to split the search tree into subtrees on. */
+    private final int splitDepth;
+
+    /** Positions of the tiles that may be branched on, shared by all subtree searches. */
+    private int[] candidates;
+
+    /** Token to stop the other subtree searches when a solution is found. */
+    private final CancellationToken token;
+    /** True if a subtree search was stopped before it finished. */
+    private volatile boolean interrupted = false;
+    /** Fraction of the search tree covered by the subtrees that were finished. */
+    private final DoubleAdder explored = new DoubleAdder();
+    /** The domains of the first solution that was found, or null. */
+    private final AtomicReference<Propagator> solution = new AtomicReference<>();
+    /** Number of search nodes visited by all subtree searches. */
+    private final LongAdder nodes = new LongAdder();
+    /** Number of backtracks of all subtree searches. */
+    private final LongAdder backtracks = new LongAdder();
+    /** Maximum depth reached by any subtree search, including the split levels. */
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructor.
+     *
+     * The propagator must be at a fixpoint without conflicts.
+     *
+     * @param propagator The propagator holding the domains to search.
+     * @param parallelism Number of worker threads.
+     */
+    public ParallelSearch(Propagator propagator, int parallelism) {
+        this(propagator, parallelism, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * The propagator must be at a fixpoint without conflicts.
+     *
+     * @param propagator The propagator holding the domains to search.
+     * @param parallelism Number of worker threads.
+     * @param token Token to check for cancellation, or null.
+     */
+    public ParallelSearch(Propagator propagator, int parallelism, CancellationToken token) {
+        this.propagator = propagator;
+        this.parallelism = Math.max(parallelism, 1);
+        this.splitDepth = 32 - Integer.numberOfLeadingZeros(this.parallelism - 1) + EXTRA_SPLIT_DEPTH;
+        this.token = new CancellationToken(token);
+    }
+
+    /**
+     * Get the propagator.
+     *
+     * @return The propagator.
+     */
+    public Propagator getPropagator() {
+        return this.propagator;
+    }
+
+    /**
+     * Get the number of worker threads.
+     *
+     * @return Number of worker threads.
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Get the number of search nodes that were visited by all threads.
+     *
+     * @return Number of search nodes.
+     */
+    public long getNodes() {
+        return this.nodes.sum();
+    }
+
+    /**
+     * Get the number of backtracks of all threads.
+     *
+     * @return Number of backtracks.
+     */
+    public long getBacktracks() {
+        return this.backtracks.sum();
+    }
+
+    /**
+     * Get the maximum search depth that was reached by any thread.
+     *
+     * @return Maximum depth.
+     */
+    public int getMaxDepth() {
+        return (int) this.maxDepth.get();
+    }
+
+    /**
+     * Check whether the search was stopped because it was cancelled, before a solution was found.
+     *
+     * @return True if cancelled, false if not.
+     */
+    public boolean isCancelled() {
+        return this.interrupted && this.solution.get() == null;
+    }
+
+    /**
+     * Get the estimated fraction of the search tree that was explored.
+     * Only subtrees that were finished are counted, so the estimate grows in steps.
+     *
+     * @return The fraction, from 0 to 1.
+     */
+    public double getProgress() {
+        return this.explored.sum();
+    }
+
+    /**
+     * Search for a solution.
+     * The search tree is split into subtrees on the first few branching tiles, which are searched in parallel on a
+     * fork/join pool. The first subtree to find a solution cancels the others.
+     *
+     * If a solution is found, the domains of the propagator are replaced by the solution. If not, the propagator is left
+     * untouched.
+     *
+     * @return True if a solution was found, false if there is no solution or if the search was cancelled.
+     */
+    public boolean search() {
+        // Find the tiles to branch on
+        this.candidates = Search.findCandidates(this.propagator);
+
+        // Search all subtrees on a dedicated pool
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            pool.invoke(new SubtreeTask(new Propagator(this.propagator), 0, 1));
+        } finally {
+            pool.shutdown();
+        }
+
+        // Merge the solution into the propagator
+        Propagator solution = this.solution.get();
+        if(solution == null)
+            return false;
+        this.propagator.load(solution);
+        return true;
+    }
+
+    /**
+     * Store a solution, and cancel all other subtree searches.
+     *
+     * @param state The domains of the solution.
+     */
+    private void found(Propagator state) {
+        if(this.solution.compareAndSet(null, state))
+            this.token.cancel();
+    }
+
+    private class SubtreeTask extends RecursiveAction {
+
+        /** Serial version UID, instances are never serialized. */
+        private static final long serialVersionUID = 1L;
+
+        /** The domains at the root of the subtree, owned by this task. */
+        private final Propagator state;
+        /** The split level of this subtree. */
+        private final int depth;
+        /** The fraction of the search tree this subtree covers. */
+        private final double weight;
+
+        /**
+         * Constructor.
+         *
+         * @param state The domains at the root of the subtree, owned by this task.
+         * @param depth The split level of this subtree.
+         * @param weight The fraction of the search tree this subtree covers.
+         */
+        SubtreeTask(Propagator state, int depth, double weight) {
+            this.state = state;
+            this.depth = depth;
+            this.weight = weight;
+        }
+
+        @Override
+        protected void compute() {
+            // Skip the subtree if a solution was found already, or if the search was cancelled
+            if(token.isCancelled()) {
+                interrupted = true;
+                return;
+            }
+
+            // Search the subtree sequentially once it is small enough
+            Search search = new Search(this.state, candidates, token);
+            if(this.depth >= splitDepth) {
+                boolean found = search.next();
+                nodes.add(search.getNodes());
+                backtracks.add(search.getBacktracks());
+                maxDepth.accumulate(this.depth + search.getMaxDepth());
+                if(search.isCancelled())
+                    interrupted = true;
+                else
+                    explored.add(this.weight);
+                if(found)
+                    found(this.state);
+                return;
+            }
+
+            // Select the tile to split on, the subtree is solved if all tiles are fixed
+            int position = search.selectTile();
+            if(position < 0) {
+                explored.add(this.weight);
+                found(this.state);
+                return;
+            }
+
+            // Create a subtree for every rotation of the tile that doesn't conflict right away
+            List<SubtreeTask> children = new ArrayList<>();
+            int values = search.getOrderedRotations(position);
+            int count = this.state.getDomainSize(position);
+            for(int i = count; i > 0; i--, values >>>= 2) {
+                nodes.increment();
+                Propagator child = new Propagator(this.state);
+                if(child.restrict(position, 1 << (values & 3)) && child.propagate())
+                    children.add(new SubtreeTask(child, this.depth + 1, this.weight / count));
+                else
+                    explored.add(this.weight / count);
+            }
+
+            // Search the subtrees
+            invokeAll(children);
+        }
+    }
+}
@@ -0,0 +1,641 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.tile.LoopTile;
+import com.timvisee.loopsolver.tile.LoopTileMask;
+import com.timvisee.loopsolver.tile.LoopTileSide;
+
+import java.util.Arrays;
+
+public class Propagator {
+
+    /** Number of possible rotations of a tile. */
+    public static final int ROTATIONS = LoopTile.TILE_SIDES;
+
+    /** Domain bitset without any rotation left. */
+    public static final int DOMAIN_EMPTY = 0;
+
+    /** Initial capacity of the queue, it grows when needed. */
+    private static final int QUEUE_CAPACITY = 64;
+
+    /**
+     * Sides that may connect, for each mask and domain.
+     * A bit is set if at least one rotation in the domain connects at that side.
+     */
+    private static final byte[][] MAY_CONNECT = new byte[LoopTileMask.MASK_COUNT][LoopTileMask.MASK_COUNT];
+
+    /**
+     * Sides that may not connect, for each mask and domain.
+     * A bit is set if at least one rotation in the domain doesn't connect at that side.
+     */
+    private static final byte[][] MAY_NOT_CONNECT = new byte[LoopTileMask.MASK_COUNT][LoopTileMask.MASK_COUNT];
+
+    /**
+     * Rotations that are supported by the neighbours, as bitset, for each mask.
+     * Indexed by the mask, the sides that may connect and the sides that may not connect.
+     */
+    private static final byte[][][] SUPPORTED = new byte[LoopTileMask.MASK_COUNT][LoopTileMask.MASK_COUNT][LoopTileMask.MASK_COUNT];
+
+    /**
+     * Rotations that connect at a side, as bitset, for each mask.
+     * Indexed by the mask and the side number.
+     */
+    private static final byte[][] CONNECTS = new byte[LoopTileMask.MASK_COUNT][LoopTile.TILE_SIDES];
+
+    static {
+        for(int mask = 0; mask < LoopTileMask.MASK_COUNT; mask++) {
+            // Determine the rotations that connect at each side
+            for(int rotation = 0; rotation < ROTATIONS; rotation++)
+                for(int side = 0; side < LoopTile.TILE_SIDES; side++)
+                    if((LoopTileMask.rotate(mask, rotation) & (1 << side)) != 0)
+                        CONNECTS[mask][side] |= 1 << rotation;
+
+            // Determine the sides that may or may not connect for each domain
+            for(int domain = 0; domain < LoopTileMask.MASK_COUNT; domain++) {
+                for(int rotation = 0; rotation < ROTATIONS; rotation++) {
+                    if((domain & (1 << rotation)) == 0)
+                        continue;
+
+                    int rotated = LoopTileMask.rotate(mask, rotation);
+                    MAY_CONNECT[mask][domain] |= rotated;
+                    MAY_NOT_CONNECT[mask][domain] |= ~rotated & LoopTileMask.MASK_ALL;
+                }
+            }
+
+            // Determine the supported rotations for each combination of allowed sides
+            for(int connect = 0; connect < LoopTileMask.MASK_COUNT; connect++) {
+                for(int notConnect = 0; notConnect < LoopTileMask.MASK_COUNT; notConnect++) {
+                    for(int rotation = 0; rotation < ROTATIONS; rotation++) {
+                        int rotated = LoopTileMask.rotate(mask, rotation);
+                        if((rotated & ~connect) == 0 && (~rotated & LoopTileMask.MASK_ALL & ~notConnect) == 0)
+                            SUPPORTED[mask][connect][notConnect] |= 1 << rotation;
+                    }
+                }
+            }
+        }
+    }
+
+    /** The grid. */
+    private final LoopGrid grid;
+    /** Grid width. */
+    private final int width;
+    /** True if the progress is shown to the grid observer, false for copies that are searched on worker threads. */
+    private final boolean observed;
+
+    /** The mask of each tile when the propagator was created, domains are relative to these. Shared with copies. */
+    private final byte[] masks;
+    /** The remaining rotations of each tile, as bitset. */
+    private final byte[] domains;
+
+    /** FIFO worklist of tile positions that must be revised, as ring buffer. */
+    private int[] queue = new int[QUEUE_CAPACITY];
+    /** Index of the first item in the queue. */
+    private int queueHead = 0;
+    /** Number of items in the queue. */
+    private int queueSize = 0;
+    /** Whether each tile is currently in the queue, one bit per tile. */
+    private final long[] queued;
+
+    /** Positions of the tiles whose domain was changed, in the order of the changes. */
+    private int[] trailPositions = new int[64];
+    /** Domains of the tiles on the trail, before they were changed. */
+    private byte[] trailDomains = new byte[64];
+    /** Number of changes on the trail. */
+    private int trailSize = 0;
+
+    /** Number of tile revisions, counted by this propagator only. */
+    private long revisions = 0;
+
+    /** True if tiles at the bottom border may connect downwards, to rows that aren't part of the grid yet. */
+    private boolean openBottom = false;
+
+    /**
+     * Constructor.
+     *
+     * The domain of every tile contains all of its distinct orientations, tiles that are already solved are fixed to
+     * their current orientation.
+     *
+     * @param grid The grid.
+     */
+    public Propagator(LoopGrid grid) {
+        this(grid, true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * The domain of every tile contains all of its distinct orientations. Tiles that are already solved are fixed to
+     * their current orientation if {@code keepSolved} is true. Engines that must consider every solution of the grid,
+     * rather than one that agrees with an earlier solve, ignore the solved state.
+     *
+     * @param grid The grid.
+     * @param keepSolved True to fix solved tiles to their current orientation, false to ignore the solved state.
+     */
+    public Propagator(LoopGrid grid, boolean keepSolved) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.observed = true;
+
+        // Allocate the state
+        final int total = grid.getTotal();
+        this.masks = new byte[total];
+        this.domains = new byte[total];
+        this.queued = new long[(total + 63) >>> 6];
+
+        // Initialize the domains
+        for(int i = 0; i < total; i++) {
+            int mask = grid.getMask(i);
+            this.masks[i] = (byte) mask;
+            this.domains[i] = (byte) (keepSolved && grid.isSolved(i) ? 1 : LoopTileMask.orientationDomain(mask));
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * This creates a copy of the domains of another propagator, which can be changed independently. The queue of the
+     * other propagator must be empty, and the trail of the copy starts empty. The copy isn't observed, so it may be
+     * searched on a worker thread while the grid observer only hears from the thread that owns the original.
+     *
+     * @param other The propagator to copy.
+     */
+    public Propagator(Propagator other) {
+        this.grid = other.grid;
+        this.width = other.width;
+        this.observed = false;
+
+        // The base masks never change, and are shared
+        this.masks = other.masks;
+        this.domains = other.domains.clone();
+        this.queued = new long[other.queued.length];
+        this.openBottom = other.openBottom;
+    }
+
+    /**
+     * Set the domains of all tiles to the domains of another propagator for the same grid.
+     * This doesn't record the changes on the trail.
+     *
+     * @param other The propagator to copy the domains from.
+     */
+    public void load(Propagator other) {
+        System.arraycopy(other.domains, 0, this.domains, 0, this.domains.length);
+    }
+
+    /**
+     * Set the domains of some tiles to the domains of another propagator for the same grid.
+     * This doesn't record the changes on the trail.
+     *
+     * @param other The propagator to copy the domains from.
+     * @param positions The positions of the tiles to copy.
+     */
+    public void load(Propagator other, int[] positions) {
+        for(int position : positions)
+            this.domains[position] = other.domains[position];
+    }
+
+    /**
+     * Get the grid.
+     *
+     * @return The grid.
+     */
+    public LoopGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Check whether the progress of this propagator, and of searches on it, is shown to the observer of the grid.
+     * Propagators created for a grid are observed, copies aren't.
+     *
+     * @return True if observed, false if not.
+     */
+    public boolean isObserved() {
+        return this.observed && this.grid.isObserved();
+    }
+
+    /**
+     * Check whether tiles at the bottom border may connect downwards.
+     *
+     * @return True if the bottom border is open.
+     */
+    public boolean isOpenBottom() {
+        return this.openBottom;
+    }
+
+    /**
+     * Set whether tiles at the bottom border may connect downwards.
+     * An open bottom border is used to solve the top part of a grid whose lower rows aren't known yet. The bottom
+     * side of the tiles in the last row then isn't constrained at all. Call this before propagating.
+     *
+     * @param openBottom True if the bottom border is open.
+     */
+    public void setOpenBottom(boolean openBottom) {
+        this.openBottom = openBottom;
+    }
+
+    /**
+     * Get the mask a tile had when the propagator was created, or the mask set with {@link #setBaseMask(int, int)}.
+     * Rotations in the domain of the tile are relative to this mask.
+     *
+     * @param position The tile position.
+     *
+     * @return The base mask.
+     */
+    public int getBaseMask(int position) {
+        return this.masks[position];
+    }
+
+    /**
+     * Replace the base mask of a tile, after the tile was changed in the grid.
+     * The domain of the tile is reset to all distinct orientations of the new mask, and recorded on the trail. Base
+     * masks are shared with copies of this propagator, so this must not be called while copies are in use.
+     *
+     * @param position The tile position.
+     * @param mask The new base mask.
+     */
+    public void setBaseMask(int position, int mask) {
+        this.masks[position] = (byte) mask;
+        reset(position);
+    }
+
+    /**
+     * Reset the domain of a tile to all distinct orientations of its base mask.
+     * The old domain is recorded on the trail. Unlike {@link #restrict(int, int)} this widens the domain, so the tile
+     * must be queued again to revise it against its neighbours.
+     *
+     * @param position The tile position.
+     */
+    public void reset(int position) {
+        int domain = LoopTileMask.orientationDomain(this.masks[position]);
+        if(this.domains[position] == domain)
+            return;
+        record(position, this.domains[position]);
+        this.domains[position] = (byte) domain;
+    }
+
+    /**
+     * Get the remaining rotations of a tile.
+     *
+     * @param position The tile position.
+     *
+     * @return Bitset of rotations, bit {@code n} is set if rotating the base mask by {@code n} quarters is possible.
+     */
+    public int getDomain(int position) {
+        return this.domains[position];
+    }
+
+    /**
+     * Get the number of remaining rotations of a tile.
+     *
+     * @param position The tile position.
+     *
+     * @return Number of remaining rotations.
+     */
+    public int getDomainSize(int position) {
+        return Integer.bitCount(this.domains[position]);
+    }
+
+    /**
+     * Check whether a tile has exactly one rotation left.
+     *
+     * @param position The tile position.
+     *
+     * @return True if the tile is fixed, false if not.
+     */
+    public boolean isFixed(int position) {
+        return getDomainSize(position) == 1;
+    }
+
+    /**
+     * Count the tiles that have exactly one rotation left.
+     *
+     * @return Number of fixed tiles.
+     */
+    public int countFixed() {
+        int count = 0;
+        for(int i = 0; i < this.domains.length; i++)
+            if(isFixed(i))
+                count++;
+        return count;
+    }
+
+    /**
+     * Get the rotation of a fixed tile.
+     *
+     * @param position The tile position.
+     *
+     * @return The rotation, relative to the base mask.
+     */
+    public int getRotation(int position) {
+        return Integer.numberOfTrailingZeros(this.domains[position]);
+    }
+
+    /**
+     * Get the number of remaining rotations of a tile that do or don't connect at a side.
+     *
+     * @param position The tile position.
+     * @param side The side number.
+     * @param connect True to count the rotations that connect at the side, false to count the ones that don't.
+     *
+     * @return Number of rotations.
+     */
+    public int getSupport(int position, int side, boolean connect) {
+        int connects = CONNECTS[this.masks[position]][side];
+        return Integer.bitCount(this.domains[position] & (connect ? connects : ~connects));
+    }
+
+    /**
+     * Get the rotations of the base mask of a tile that connect at a side, whether they are remaining or not.
+     *
+     * @param position The tile position.
+     * @param side The side number.
+     *
+     * @return Bitset of rotations.
+     */
+    public int getConnecting(int position, int side) {
+        return CONNECTS[this.masks[position]][side];
+    }
+
+    /**
+     * Get the position of the neighbour of a tile.
+     *
+     * @param position The tile position.
+     * @param side The side number.
+     *
+     * @return The neighbour position, or -1 if the neighbour is outside of the grid.
+     */
+    public int getNeighbour(int position, int side) {
+        switch(side) {
+            case 0:
+                return position >= this.width ? position - this.width : -1;
+            case 1:
+                return (position % this.width) + 1 < this.width ? position + 1 : -1;
+            case 2:
+                return position + this.width < this.masks.length ? position + this.width : -1;
+            default:
+                return position % this.width > 0 ? position - 1 : -1;
+        }
+    }
+
+    /**
+     * Get the number of tiles that were revised by this propagator.
+     * Revisions made by copies of this propagator aren't included.
+     *
+     * @return Number of revisions.
+     */
+    public long getRevisions() {
+        return this.revisions;
+    }
+
+    /**
+     * Restrict the domain of a tile.
+     * The neighbours of the tile are queued for revision if the domain changed.
+     *
+     * @param position The tile position.
+     * @param domain The rotations to keep, as bitset.
+     *
+     * @return False if the domain of the tile became empty, true otherwise.
+     */
+    public boolean restrict(int position, int domain) {
+        // Determine the new domain, and make sure it changed
+        int current = this.domains[position];
+        int restricted = current & domain;
+        if(restricted == current)
+            return true;
+
+        // Record the change on the trail, so it can be undone
+        record(position, current);
+
+        // Set the domain, and revise the neighbours
+        this.domains[position] = (byte) restricted;
+        enqueueNeighbours(position);
+        return restricted != DOMAIN_EMPTY;
+    }
+
+    /**
+     * Record a domain change on the trail.
+     *
+     * @param position The tile position.
+     * @param domain The domain before it was changed.
+     */
+    private void record(int position, int domain) {
+        // Grow the trail if it's full
+        if(this.trailSize == this.trailPositions.length) {
+            this.trailPositions = Arrays.copyOf(this.trailPositions, this.trailSize * 2);
+            this.trailDomains = Arrays.copyOf(this.trailDomains, this.trailSize * 2);
+        }
+
+        // Add the change
+        this.trailPositions[this.trailSize] = position;
+        this.trailDomains[this.trailSize] = (byte) domain;
+        this.trailSize++;
+    }
+
+    /**
+     * Get the current mark on the trail.
+     * All domain changes after this point may be undone using {@link #undo(int)}.
+     *
+     * @return The trail mark.
+     */
+    public int getTrailMark() {
+        return this.trailSize;
+    }
+
+    /**
+     * Get the position of the tile that was changed at an index on the trail.
+     *
+     * @param index The trail index, below the current trail mark.
+     *
+     * @return The tile position.
+     */
+    public int getTrailPosition(int index) {
+        return this.trailPositions[index];
+    }
+
+    /**
+     * Forget all changes on the trail, so they can't be undone anymore.
+     */
+    public void clearTrail() {
+        this.trailSize = 0;
+    }
+
+    /**
+     * Undo all domain changes that were made after the given trail mark, in reverse order.
+     *
+     * @param mark The trail mark.
+     */
+    public void undo(int mark) {
+        while(this.trailSize > mark) {
+            this.trailSize--;
+            this.domains[this.trailPositions[this.trailSize]] = this.trailDomains[this.trailSize];
+        }
+    }
+
+    /**
+     * Queue a tile for revision.
+     *
+     * @param position The tile position.
+     */
+    public void enqueue(int position) {
+        // Make sure the tile isn't queued already
+        if((this.queued[position >>> 6] & (1L << position)) != 0)
+            return;
+
+        // Grow the queue if it's full, unwrapping the ring buffer
+        if(this.queueSize == this.queue.length) {
+            int[] queue = new int[this.queue.length * 2];
+            for(int i = 0; i < this.queueSize; i++)
+                queue[i] = this.queue[(this.queueHead + i) % this.queue.length];
+            this.queue = queue;
+            this.queueHead = 0;
+        }
+
+        // Add the tile at the end of the queue
+        this.queue[(this.queueHead + this.queueSize) % this.queue.length] = position;
+        this.queueSize++;
+        this.queued[position >>> 6] |= 1L << position;
+    }
+
+    /**
+     * Queue all tiles for revision.
+     */
+    public void enqueueAll() {
+        for(int i = 0; i < this.masks.length; i++)
+            enqueue(i);
+    }
+
+    /**
+     * Queue the neighbours of a tile for revision.
+     *
+     * @param position The tile position.
+     */
+    public void enqueueNeighbours(int position) {
+        for(int side = 0; side < LoopTile.TILE_SIDES; side++) {
+            int neighbour = getNeighbour(position, side);
+            if(neighbour >= 0)
+                enqueue(neighbour);
+        }
+    }
+
+    /**
+     * Clear the queue.
+     */
+    public void clearQueue() {
+        while(this.queueSize > 0)
+            poll();
+    }
+
+    /**
+     * Take the first tile from the queue.
+     *
+     * @return The tile position.
+     */
+    private int poll() {
+        int position = this.queue[this.queueHead];
+        this.queueHead = (this.queueHead + 1) % this.queue.length;
+        this.queueSize--;
+        this.queued[position >>> 6] &= ~(1L << position);
+        return position;
+    }
+
+    /**
+     * Revise the domains of the queued tiles, until no domain changes anymore.
+     * Every rotation that doesn't fit any remaining rotation of a neighbour is removed.
+     *
+     * @return False if the domain of a tile became empty and the grid can't be solved, true otherwise.
+     */
+    public boolean propagate() {
+        // Revise tiles until the queue is empty
+        while(this.queueSize > 0) {
+            int position = poll();
+            this.revisions++;
+
+            // Show the tile that is revised
+            if(isObserved())
+                this.grid.setWorkingTile(this.grid.getTile(position));
+
+            // Revise the tile, stop on a conflict
+            if(!revise(position)) {
+                clearQueue();
+                return false;
+            }
+        }
+
+        // Propagation finished without conflicts
+        return true;
+    }
+
+    /**
+     * Revise the domain of a tile, based on the domains of its neighbours.
+     *
+     * @param position The tile position.
+     *
+     * @return False if the domain became empty, true otherwise.
+     */
+    private boolean revise(int position) {
+        // Determine the sides that may and may not connect, based on the neighbours
+        int connect = 0;
+        int notConnect = 0;
+        for(int side = 0; side < LoopTile.TILE_SIDES; side++) {
+            // Sides at the border of the grid can't connect, unless the grid continues below the bottom border
+            int neighbour = getNeighbour(position, side);
+            if(neighbour < 0) {
+                if(side == LoopTileSide.BOTTOM.side() && this.openBottom)
+                    connect |= 1 << side;
+                notConnect |= 1 << side;
+                continue;
+            }
+
+            // Look at the opposite side of the neighbour
+            int opposite = (side + 2) & (LoopTile.TILE_SIDES - 1);
+            if((MAY_CONNECT[this.masks[neighbour]][this.domains[neighbour]] & (1 << opposite)) != 0)
+                connect |= 1 << side;
+            if((MAY_NOT_CONNECT[this.masks[neighbour]][this.domains[neighbour]] & (1 << opposite)) != 0)
+                notConnect |= 1 << side;
+        }
+
+        // Keep the supported rotations
+        return restrict(position, SUPPORTED[this.masks[position]][connect][notConnect]);
+    }
+
+    /**
+     * Rotate all fixed tiles in the grid to their rotation, and mark them as solved.
+     * Tiles that aren't fixed are reset to their base mask.
+     */
+    public void apply() {
+        for(int i = 0; i < this.masks.length; i++)
+            apply(i);
+    }
+
+    /**
+     * Rotate some tiles in the grid to their rotation, and mark them as solved if they are fixed.
+     * Tiles that aren't fixed are reset to their base mask.
+     *
+     * @param positions The tile positions.
+     */
+    public void apply(int[] positions) {
+        for(int position : positions)
+            apply(position);
+    }
+
+    /**
+     * Rotate a tile in the grid to its rotation, and mark it as solved if it is fixed.
+     * A tile that isn't fixed is reset to its base mask.
+     *
+     * @param position The tile position.
+     */
+    private void apply(int position) {
+        // Determine the mask and solved state
+        boolean fixed = isFixed(position);
+        int mask = fixed ? LoopTileMask.rotate(this.masks[position], getRotation(position)) : this.masks[position];
+
+        // Skip tiles that didn't change
+        if(this.grid.getMask(position) == mask && this.grid.isSolved(position) == fixed)
+            return;
+
+        // Update the tile
+        this.grid.setMask(position, mask);
+        this.grid.setSolved(position, fixed);
+        if(this.grid.isObserved())
+            this.grid.getObserver().onTileSolved(this.grid.getTile(position), fixed);
+    }
+}
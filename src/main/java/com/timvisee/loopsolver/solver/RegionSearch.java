@@ -0,0 +1,392 @@
+package com.timvisee.loopsolver.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RegionSearch {
+
+    /** Number of batches to create for every worker thread, to balance regions of uneven difficulty. */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /** The propagator holding the domains to search. */
+    private final Propagator propagator;
+
+    /** Number of worker threads. */
+    private final int parallelism;
+
+    /** Positions of the tiles in each region, largest region first. */
+    private int[][] regions;
+
+    /** Token to stop the other regions when one of them has no solution. */
+    private final CancellationToken token;
+    /** True if a region was found to have no solution. */
+    private volatile boolean unsolvable = false;
+
+    /** The batches of regions that are searched, or null if the search hasn't started. */
+    private volatile List<BatchTask> tasks;
+    /**
+     * The domains every worker thread searches its batches on, or null. The batches of a worker search different
+     * regions one after another, so they share a single copy of the domains.
+     */
+    private ThreadLocal<Propagator> workerStates;
+    /** The visited buffer of every worker thread, shared by the searches of its batches, or null. */
+    private ThreadLocal<boolean[]> workerVisited;
+    /** The search splitting a single region over the threads, or null. */
+    private volatile ParallelSearch parallelSearch;
+    /** Number of search nodes visited in all regions. */
+    private final LongAdder nodes = new LongAdder();
+    /** Number of backtracks in all regions. */
+    private final LongAdder backtracks = new LongAdder();
+    /** Maximum search depth reached in any region. */
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructor.
+     *
+     * The propagator must be at a fixpoint without conflicts.
+     *
+     * @param propagator The propagator holding the domains to search.
+     * @param parallelism Number of worker threads, 1 to search on the calling thread.
+     */
+    public RegionSearch(Propagator propagator, int parallelism) {
+        this(propagator, parallelism, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * The propagator must be at a fixpoint without conflicts.
+     *
+     * @param propagator The propagator holding the domains to search.
+     * @param parallelism Number of worker threads, 1 to search on the calling thread.
+     * @param token Token to check for cancellation, or null.
+     */
+    public RegionSearch(Propagator propagator, int parallelism, CancellationToken token) {
+        this.propagator = propagator;
+        this.parallelism = Math.max(parallelism, 1);
+        this.token = new CancellationToken(token);
+    }
+
+    /**
+     * Get the propagator.
+     *
+     * @return The propagator.
+     */
+    public Propagator getPropagator() {
+        return this.propagator;
+    }
+
+    /**
+     * Get the number of worker threads.
+     *
+     * @return Number of worker threads.
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Get the number of independent regions that were searched.
+     *
+     * @return Number of regions, or 0 if the search hasn't run yet.
+     */
+    public int getRegionCount() {
+        return this.regions != null ? this.regions.length : 0;
+    }
+
+    /**
+     * Get the number of search nodes that were visited in all regions.
+     *
+     * @return Number of search nodes.
+     */
+    public long getNodes() {
+        return this.nodes.sum();
+    }
+
+    /**
+     * Get the number of backtracks in all regions.
+     *
+     * @return Number of backtracks.
+     */
+    public long getBacktracks() {
+        return this.backtracks.sum();
+    }
+
+    /**
+     * Get the maximum search depth that was reached in any region.
+     *
+     * @return Maximum depth.
+     */
+    public int getMaxDepth() {
+        return (int) this.maxDepth.get();
+    }
+
+    /**
+     * Check whether a region was found to have no solution.
+     * If the search failed and this is false, the search was cancelled.
+     *
+     * @return True if the grid has no solution, false if not or if it's unknown.
+     */
+    public boolean isUnsolvable() {
+        return this.unsolvable;
+    }
+
+    /**
+     * Get the estimated fraction of the search that is done.
+     * Every region is weighted by its number of tiles, the progress within a region is estimated from the part of its
+     * search tree that was explored. This may be called from any thread while searching.
+     *
+     * @return The fraction, from 0 to 1.
+     */
+    public double getProgress() {
+        // A single region searched by all threads
+        ParallelSearch parallelSearch = this.parallelSearch;
+        if(parallelSearch != null)
+            return parallelSearch.getProgress();
+
+        // Make sure the search started, and that there is something to search
+        List<BatchTask> tasks = this.tasks;
+        if(tasks == null)
+            return 0;
+        long total = 0;
+        for(int[] region : this.regions)
+            total += region.length;
+        if(total == 0)
+            return 1;
+
+        // Count the tiles of the regions that were solved, and the explored part of the regions being searched
+        double done = 0;
+        for(BatchTask task : tasks) {
+            done += task.solvedTiles;
+            Search current = task.current;
+            if(current != null)
+                done += current.getProgress() * current.getCandidateCount();
+        }
+        return Math.min(done / total, 1);
+    }
+
+    /**
+     * Search for a solution.
+     * The tiles that aren't fixed are split into regions of neighbouring tiles. Tiles in different regions don't
+     * constrain each other, so every region is searched on its own, and a conflict in one region never backtracks into
+     * another. With more than one thread, the regions are searched in parallel.
+     *
+     * If a solution is found, the domains of the propagator are replaced by the solution. If the search is cancelled,
+     * the domains of the regions that were solved are replaced by their solution, and the other regions are left as
+     * they were. Regions don't constrain each other, so a solved region is part of a solution if the grid has one.
+     *
+     * @return True if a solution was found, false if there is no solution or if the search was cancelled.
+     */
+    public boolean search() {
+        // Split the tiles into regions
+        this.regions = findRegions(this.propagator);
+
+        // Search a single region in parallel by splitting its search tree
+        if(this.parallelism > 1 && this.regions.length == 1) {
+            ParallelSearch search = new ParallelSearch(this.propagator, this.parallelism, this.token);
+            this.parallelSearch = search;
+            boolean found = search.search();
+            this.nodes.add(search.getNodes());
+            this.backtracks.add(search.getBacktracks());
+            this.maxDepth.accumulate(search.getMaxDepth());
+            if(!found && !search.isCancelled())
+                this.unsolvable = true;
+            return found;
+        }
+
+        // Search the regions one by one on the propagator itself
+        if(this.parallelism == 1 || this.regions.length == 0) {
+            BatchTask task = new BatchTask(Arrays.asList(this.regions));
+            this.tasks = Collections.singletonList(task);
+            return task.searchRegions(this.propagator, new boolean[this.propagator.getGrid().getTotal()]);
+        }
+
+        // Spread the regions over batches, giving every region to the batch with the fewest tiles
+        final int batchCount = Math.min(this.regions.length, this.parallelism * BATCHES_PER_THREAD);
+        List<List<int[]>> batches = new ArrayList<>(batchCount);
+        int[] batchSizes = new int[batchCount];
+        for(int i = 0; i < batchCount; i++)
+            batches.add(new ArrayList<>());
+        for(int[] region : this.regions) {
+            int smallest = 0;
+            for(int i = 1; i < batchCount; i++)
+                if(batchSizes[i] < batchSizes[smallest])
+                    smallest = i;
+            batches.get(smallest).add(region);
+            batchSizes[smallest] += region.length;
+        }
+
+        // Search the batches on a dedicated pool, every worker copies the domains once for all of its batches
+        List<BatchTask> tasks = new ArrayList<>(batchCount);
+        for(List<int[]> batch : batches)
+            tasks.add(new BatchTask(batch));
+        this.tasks = tasks;
+        final int total = this.propagator.getGrid().getTotal();
+        this.workerStates = ThreadLocal.withInitial(() -> new Propagator(this.propagator));
+        this.workerVisited = ThreadLocal.withInitial(() -> new boolean[total]);
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        } finally {
+            pool.shutdown();
+            this.workerStates = null;
+            this.workerVisited = null;
+        }
+
+        // Merge the solutions of the regions into the propagator, unless one of them has no solution
+        if(this.unsolvable)
+            return false;
+        boolean solved = true;
+        for(BatchTask task : tasks) {
+            for(int i = 0; i < task.solved; i++)
+                this.propagator.load(task.state, task.regions.get(i));
+            solved &= task.solved == task.regions.size();
+        }
+        return solved;
+    }
+
+    /**
+     * Find the regions of neighbouring tiles that aren't fixed.
+     *
+     * @param propagator The propagator.
+     *
+     * @return The positions of the tiles in each region, largest region first.
+     */
+    public static int[][] findRegions(Propagator propagator) {
+        final int total = propagator.getGrid().getTotal();
+        int[] positions = new int[total];
+        for(int i = 0; i < total; i++)
+            positions[i] = i;
+        return findRegions(propagator, positions);
+    }
+
+    /**
+     * Find the regions of neighbouring tiles that aren't fixed, starting from some tiles.
+     * The regions may extend beyond the given tiles, through neighbours that aren't fixed.
+     *
+     * @param propagator The propagator.
+     * @param positions The positions of the tiles to start from.
+     *
+     * @return The positions of the tiles in each region, largest region first.
+     */
+    public static int[][] findRegions(Propagator propagator, int[] positions) {
+        boolean[] visited = new boolean[propagator.getGrid().getTotal()];
+        int[] queue = new int[Math.max(positions.length, 1)];
+        List<int[]> regions = new ArrayList<>();
+
+        for(int start : positions) {
+            // Start a new region at every tile that isn't fixed and isn't in a region yet
+            if(visited[start] || propagator.isFixed(start))
+                continue;
+
+            // Flood fill the region through neighbours that aren't fixed
+            int size = 0;
+            queue[size++] = start;
+            visited[start] = true;
+            for(int head = 0; head < size; head++) {
+                int position = queue[head];
+                for(int side = 0; side < Propagator.ROTATIONS; side++) {
+                    int neighbour = propagator.getNeighbour(position, side);
+                    if(neighbour >= 0 && !visited[neighbour] && !propagator.isFixed(neighbour)) {
+                        visited[neighbour] = true;
+                        if(size == queue.length)
+                            queue = Arrays.copyOf(queue, size * 2);
+                        queue[size++] = neighbour;
+                    }
+                }
+            }
+
+            // Keep the positions in grid order
+            int[] region = Arrays.copyOf(queue, size);
+            Arrays.sort(region);
+            regions.add(region);
+        }
+
+        // Sort the regions, largest first
+        regions.sort(Comparator.comparingInt((int[] region) -> region.length).reversed());
+        return regions.toArray(new int[regions.size()][]);
+    }
+
+    private class BatchTask extends RecursiveAction {
+
+        /** Serial version UID, instances are never serialized. */
+        private static final long serialVersionUID = 1L;
+
+        /** The regions to search. */
+        private final List<int[]> regions;
+        /** The domains the regions are searched on, shared with the other batches of the same worker. */
+        private Propagator state;
+
+        /** Number of regions that were solved, in order. */
+        private volatile int solved = 0;
+        /** Number of tiles in the regions that were solved. */
+        private volatile long solvedTiles = 0;
+        /** The search of the region that is being searched, or null. */
+        private volatile Search current;
+
+        /**
+         * Constructor.
+         *
+         * @param regions The regions to search.
+         */
+        BatchTask(List<int[]> regions) {
+            this.regions = regions;
+        }
+
+        @Override
+        protected void compute() {
+            // Skip the batch if another region has no solution
+            if(token.isCancelled())
+                return;
+
+            // Search the regions on the copy of the domains of this worker
+            searchRegions(workerStates.get(), workerVisited.get());
+        }
+
+        /**
+         * Search the regions one by one.
+         * The search stops at the first region that has no solution, or when the search is cancelled. In that case the
+         * domains of the region are restored.
+         *
+         * @param state The propagator to search on.
+         * @param visited Buffer with a cleared flag for every tile, shared by the searches on the same thread.
+         *
+         * @return True if all regions have a solution, false if not or if the search was cancelled.
+         */
+        boolean searchRegions(Propagator state, boolean[] visited) {
+            this.state = state;
+            for(int[] region : this.regions) {
+                // Search the region, the solution stays in the domains while the next region is searched
+                int mark = state.getTrailMark();
+                Search search = new Search(state, region, token, visited);
+                this.current = search;
+                boolean found = search.next();
+                this.current = null;
+                nodes.add(search.getNodes());
+                backtracks.add(search.getBacktracks());
+                maxDepth.accumulate(search.getMaxDepth());
+
+                // Stop the other regions if this region has no solution, and undo the partial search if cancelled
+                if(!found) {
+                    if(!search.isCancelled()) {
+                        unsolvable = true;
+                        token.cancel();
+                    }
+                    state.undo(mark);
+                    return false;
+                }
+                this.solvedTiles += region.length;
+                this.solved++;
+            }
+            return true;
+        }
+    }
+}
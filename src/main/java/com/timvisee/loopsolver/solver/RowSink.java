@@ -0,0 +1,16 @@
+package com.timvisee.loopsolver.solver;
+
+import java.io.IOException;
+
+public interface RowSink {
+
+    /**
+     * Write the next row of a solved puzzle.
+     *
+     * @param masks The connector masks of the tiles, rotated into the solution.
+     * @param offset Index in the array of the mask of the first tile.
+     *
+     * @throws IOException If the row couldn't be written.
+     */
+    void writeRow(byte[] masks, int offset) throws IOException;
+}
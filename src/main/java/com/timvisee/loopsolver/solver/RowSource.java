@@ -0,0 +1,16 @@
+package com.timvisee.loopsolver.solver;
+
+import java.io.IOException;
+
+public interface RowSource {
+
+    /**
+     * Read the next row of a puzzle.
+     *
+     * @param masks The array to store the connector masks of the tiles in.
+     * @param offset Index in the array to store the mask of the first tile at.
+     *
+     * @throws IOException If the row couldn't be read.
+     */
+    void readRow(byte[] masks, int offset) throws IOException;
+}
@@ -0,0 +1,302 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.solver.sat.CdclSolver;
+import com.timvisee.loopsolver.solver.sat.SatResult;
+import com.timvisee.loopsolver.tile.LoopTile;
+import com.timvisee.loopsolver.tile.LoopTileSide;
+
+public class SatSolver implements SolverEngine {
+
+    /** The grid to solve. */
+    private LoopGrid grid;
+
+    /** Propagator holding the remaining rotations of each tile. */
+    private Propagator propagator;
+    /** The SAT solver the remaining rotations are encoded into. */
+    private CdclSolver sat;
+    /** For each tile, the variable of its first remaining rotation, or -1 if the tile is fixed. */
+    private int[] variables;
+
+    /** The result, or null if the solver hasn't finished. */
+    private SatResult result;
+
+    /** Statistics of the last run, or null if the solver hasn't run yet. */
+    private SolverStats stats;
+
+    /** Token to check for cancellation, or null. */
+    private CancellationToken token;
+    /** The status of the solver. */
+    private volatile SolverStatus status = SolverStatus.RUNNING;
+
+    /**
+     * Constructor.
+     *
+     * @param grid The grid to solve.
+     */
+    public SatSolver(LoopGrid grid) {
+        this.grid = grid;
+    }
+
+    @Override
+    public LoopGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Get the number of search nodes that were visited.
+     * Every decision of the SAT solver counts as one node.
+     *
+     * @return Number of search nodes.
+     */
+    @Override
+    public long getNodes() {
+        return this.sat != null ? this.sat.getDecisions() : 0;
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    @Override
+    public SolverStatus getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Get the statistics of the last run.
+     * Every decision of the SAT solver counts as a search node and every conflict as a backtrack. The SAT solver
+     * doesn't report a search depth, and decoding the model counts as verifying the solution.
+     *
+     * @return The statistics, or null if the solver hasn't run yet.
+     */
+    @Override
+    public SolverStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Get the SAT solver the remaining rotations were encoded into.
+     *
+     * @return The SAT solver, or null if the propagator solved the grid or found a conflict.
+     */
+    public CdclSolver getSat() {
+        return this.sat;
+    }
+
+    /**
+     * Get the propagator holding the remaining rotations of each tile.
+     *
+     * @return The propagator, or null if the solver hasn't run yet.
+     */
+    public Propagator getPropagator() {
+        return this.propagator;
+    }
+
+    /**
+     * Get the result.
+     *
+     * @return The result, or null if the solver hasn't finished.
+     */
+    public SatResult getResult() {
+        return this.result;
+    }
+
+    /**
+     * Get the observer that is notified about the solver progress.
+     *
+     * @return Solver observer.
+     */
+    public SolverObserver getObserver() {
+        return this.grid.getObserver();
+    }
+
+    @Override
+    public void run() {
+        // Start propagating
+        this.status = SolverStatus.RUNNING;
+        this.sat = null;
+        getObserver().onPhaseChanged(SolverPhase.PROPAGATION);
+        long start = System.nanoTime();
+
+        // Reduce the rotations of all tiles first, so only the tiles that aren't fixed need to be encoded
+        this.propagator = new Propagator(this.grid);
+        final int initiallyFixed = this.propagator.countFixed();
+        this.propagator.enqueueAll();
+        boolean consistent = this.propagator.propagate();
+        final long propagatedTiles = this.propagator.getRevisions();
+        final int fixedTiles = consistent ? this.propagator.countFixed() - initiallyFixed : 0;
+        this.propagator.clearTrail();
+        this.propagator.apply();
+        long propagated = System.nanoTime();
+
+        // Encode the remaining rotations and solve them
+        this.result = SatResult.UNSATISFIABLE;
+        if(consistent) {
+            getObserver().onPhaseChanged(SolverPhase.SEARCH);
+            this.sat = new CdclSolver();
+            this.sat.setCancellationToken(this.token);
+            if(encode())
+                this.result = this.sat.solve();
+        }
+        long searched = System.nanoTime();
+
+        // Rotate the tiles into the solution that was found
+        if(this.result == SatResult.SATISFIABLE) {
+            decode();
+            this.propagator.apply();
+        }
+        long verified = System.nanoTime();
+
+        // Keep the statistics of this run
+        this.stats = new SolverStats(this.result == SatResult.SATISFIABLE, propagatedTiles, fixedTiles, getNodes(),
+                this.sat != null ? this.sat.getConflicts() : 0, 0,
+                propagated - start, searched - propagated, verified - searched);
+        SolverMetrics.getInstance().record(this.stats);
+
+        // Reset the working and checking tile
+        this.grid.setWorkingTile(null);
+        this.grid.setCheckingTile(null);
+
+        // The solver has finished, the SAT solver only gives up when it's cancelled
+        if(this.result == SatResult.SATISFIABLE)
+            this.status = SolverStatus.SOLVED;
+        else if(this.result == SatResult.UNSATISFIABLE)
+            this.status = SolverStatus.UNSOLVABLE;
+        else
+            this.status = this.token != null && this.token.isTimedOut() ? SolverStatus.TIMED_OUT : SolverStatus.CANCELLED;
+        getObserver().onPhaseChanged(SolverPhase.FINISHED);
+    }
+
+    /**
+     * Encode the remaining rotations of the tiles that aren't fixed into the SAT solver.
+     *
+     * Every remaining rotation of a tile gets a variable, and exactly one of them must be true. Every edge between two
+     * tiles that aren't fixed gets a variable that is true if the edge connects, and each rotation implies the value
+     * of the edges it connects or doesn't connect at. Edges to fixed tiles and to the border of the grid have a known
+     * value, so rotations that disagree with it are excluded right away.
+     *
+     * @return False if the encoding is unsatisfiable already, true otherwise.
+     */
+    private boolean encode() {
+        final int total = this.grid.getTotal();
+
+        // Create a variable for every remaining rotation, and make sure exactly one of them is true
+        this.variables = new int[total];
+        for(int position = 0; position < total; position++) {
+            if(this.propagator.isFixed(position)) {
+                this.variables[position] = -1;
+                continue;
+            }
+
+            final int domain = this.propagator.getDomain(position);
+            final int count = Integer.bitCount(domain);
+            int[] atLeastOne = new int[count];
+            for(int i = 0; i < count; i++) {
+                int variable = this.sat.newVariable();
+                this.sat.setPhase(variable, true);
+                if(i == 0)
+                    this.variables[position] = variable;
+                atLeastOne[i] = CdclSolver.positive(variable);
+            }
+            if(!this.sat.addClause(atLeastOne))
+                return false;
+            for(int i = 0; i < count; i++)
+                for(int j = i + 1; j < count; j++)
+                    if(!this.sat.addClause(atLeastOne[i] ^ 1, atLeastOne[j] ^ 1))
+                        return false;
+        }
+
+        // Encode the edges of every tile that isn't fixed
+        for(int position = 0; position < total; position++) {
+            if(this.variables[position] < 0)
+                continue;
+
+            for(int side = 0; side < LoopTile.TILE_SIDES; side++) {
+                final int neighbour = this.propagator.getNeighbour(position, side);
+                final int opposite = (side + 2) % LoopTile.TILE_SIDES;
+
+                // Exclude rotations that disagree with the border or a fixed neighbour
+                if(neighbour < 0 || this.variables[neighbour] < 0) {
+                    boolean connected = neighbour >= 0 && this.propagator.getSupport(neighbour, opposite, true) > 0;
+                    if(!excludeEdge(position, side, connected))
+                        return false;
+                    continue;
+                }
+
+                // Encode the edge between two open tiles once, from the tile at its top or left
+                if(side == LoopTileSide.RIGHT.side() || side == LoopTileSide.BOTTOM.side()) {
+                    int edge = this.sat.newVariable();
+                    if(!encodeEdge(position, side, edge) || !encodeEdge(neighbour, opposite, edge))
+                        return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Encode that every remaining rotation of a tile agrees with the variable of an edge.
+     *
+     * @param position The tile position.
+     * @param side The side of the edge.
+     * @param edge The variable of the edge, true if the edge connects.
+     *
+     * @return False if the encoding became unsatisfiable, true otherwise.
+     */
+    private boolean encodeEdge(int position, int side, int edge) {
+        final int connects = this.propagator.getConnecting(position, side);
+        int domain = this.propagator.getDomain(position);
+        for(int variable = this.variables[position]; domain != 0; variable++, domain &= domain - 1) {
+            // The rotation implies the edge value
+            boolean connected = (connects & (1 << Integer.numberOfTrailingZeros(domain))) != 0;
+            if(!this.sat.addClause(CdclSolver.negative(variable),
+                    connected ? CdclSolver.positive(edge) : CdclSolver.negative(edge)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Exclude the remaining rotations of a tile that disagree with an edge of known value.
+     * Used for edges at the border of the grid and edges to fixed tiles.
+     *
+     * @param position The tile position.
+     * @param side The side of the edge.
+     * @param connected True if the edge must connect, false if it must not connect.
+     *
+     * @return False if the encoding became unsatisfiable, true otherwise.
+     */
+    private boolean excludeEdge(int position, int side, boolean connected) {
+        final int connects = this.propagator.getConnecting(position, side);
+        int domain = this.propagator.getDomain(position);
+        for(int variable = this.variables[position]; domain != 0; variable++, domain &= domain - 1) {
+            boolean rotationConnects = (connects & (1 << Integer.numberOfTrailingZeros(domain))) != 0;
+            if(rotationConnects != connected && !this.sat.addClause(CdclSolver.negative(variable)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fix every tile that wasn't fixed to the rotation of the solution.
+     */
+    private void decode() {
+        final int total = this.grid.getTotal();
+        for(int position = 0; position < total; position++) {
+            if(this.variables[position] < 0)
+                continue;
+
+            int domain = this.propagator.getDomain(position);
+            for(int variable = this.variables[position]; domain != 0; variable++, domain &= domain - 1) {
+                if(this.sat.getValue(variable)) {
+                    this.propagator.restrict(position, 1 << Integer.numberOfTrailingZeros(domain));
+                    break;
+                }
+            }
+        }
+        this.propagator.clearQueue();
+    }
+}
@@ -0,0 +1,480 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.tile.LoopTile;
+import com.timvisee.loopsolver.tile.LoopTileMask;
+
+import java.util.Arrays;
+
+public class Search {
+
+    /** Number of search nodes between two checks of the cancellation token, minus one. */
+    private static final int CANCEL_CHECK_MASK = 0xFF;
+
+    /** The propagator holding the domains to search. */
+    private final Propagator propagator;
+
+    /** Positions of the tiles that may be branched on. */
+    private final int[] candidates;
+
+    /** Token to check for cancellation, or null. */
+    private final CancellationToken token;
+    /** True if the search was stopped because it was cancelled. */
+    private boolean cancelled = false;
+
+    /** For each search depth, the position of the tile that is branched on. */
+    private final int[] stackPosition;
+    /** For each search depth, the rotations that haven't been tried yet, two bits each in the order to try them. */
+    private final int[] stackValues;
+    /** For each search depth, the number of rotations that haven't been tried yet. */
+    private final int[] stackCount;
+    /** For each search depth, the number of rotations of the tile when it was pushed. */
+    private final int[] stackTotal;
+    /** For each search depth, the trail mark before the tile was assigned. */
+    private final int[] stackMark;
+    /** For each search depth, the index of the first candidate that might not be fixed. */
+    private final int[] stackCursor;
+    /** For each search depth, the trail index below which all changed tiles and their neighbours are fixed. */
+    private final int[] stackFloor;
+
+    /** Buffer used to sort the rotations of a tile. */
+    private final int[] sortBuffer = new int[Propagator.ROTATIONS];
+
+    /** Queue used to walk over a region of tiles. */
+    private final int[] regionQueue;
+    /** For each tile, true while the current region walk has visited it. Cleared after every walk. */
+    private final boolean[] regionVisited;
+    /** The current search depth, -1 if the stack is empty. */
+    private int depth = -1;
+
+    /** True if the search has been started. */
+    private boolean started = false;
+
+    /** Number of rotations that were assigned. */
+    private long nodes = 0;
+    /** Number of times the search backtracked from a tile. */
+    private long backtracks = 0;
+    /** The maximum search depth that was reached. */
+    private int maxDepth = 0;
+
+    /** Estimated fraction of the search tree that was explored, updated when the token is checked. */
+    private volatile double progress = 0;
+
+    /**
+     * Constructor.
+     *
+     * The propagator must be at a fixpoint without conflicts. All tiles that aren't fixed yet are branched on.
+     *
+     * @param propagator The propagator holding the domains to search.
+     */
+    public Search(Propagator propagator) {
+        this(propagator, findCandidates(propagator), null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * The propagator must be at a fixpoint without conflicts.
+     *
+     * @param propagator The propagator holding the domains to search.
+     * @param candidates Positions of the tiles that may be branched on, must include all tiles that aren't fixed.
+     *                   The array isn't modified, and may be shared between searches.
+     * @param token Token to check for cancellation, or null.
+     */
+    public Search(Propagator propagator, int[] candidates, CancellationToken token) {
+        this(propagator, candidates, token, new boolean[propagator.getGrid().getTotal()]);
+    }
+
+    /**
+     * Constructor.
+     *
+     * The propagator must be at a fixpoint without conflicts.
+     *
+     * @param propagator The propagator holding the domains to search.
+     * @param candidates Positions of the tiles that may be branched on, must include all tiles that aren't fixed.
+     * @param token Token to check for cancellation, or null.
+     * @param visited Buffer with a cleared flag for every tile, may be shared with other searches on the same thread.
+     */
+    Search(Propagator propagator, int[] candidates, CancellationToken token, boolean[] visited) {
+        this.propagator = propagator;
+        this.candidates = candidates;
+        this.token = token;
+
+        // Allocate the stack
+        final int count = candidates.length;
+        this.stackPosition = new int[count];
+        this.stackValues = new int[count];
+        this.stackCount = new int[count];
+        this.stackTotal = new int[count];
+        this.stackMark = new int[count];
+        this.stackCursor = new int[count];
+        this.stackFloor = new int[count];
+        this.regionQueue = new int[count];
+        this.regionVisited = visited;
+    }
+
+    /**
+     * Find the positions of all tiles that aren't fixed.
+     *
+     * @param propagator The propagator.
+     *
+     * @return The tile positions.
+     */
+    public static int[] findCandidates(Propagator propagator) {
+        final int total = propagator.getGrid().getTotal();
+        int count = 0;
+        int[] candidates = new int[total];
+        for(int i = 0; i < total; i++)
+            if(!propagator.isFixed(i))
+                candidates[count++] = i;
+        return count == total ? candidates : Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Get the propagator.
+     *
+     * @return The propagator.
+     */
+    public Propagator getPropagator() {
+        return this.propagator;
+    }
+
+    /**
+     * Get the number of tiles that may be branched on.
+     *
+     * @return Number of candidate tiles.
+     */
+    public int getCandidateCount() {
+        return this.candidates.length;
+    }
+
+    /**
+     * Search the next solution.
+     *
+     * When a solution is found, every tile in the propagator is fixed to its rotation in that solution. Calling this
+     * method again continues the search after that solution. When no solution is left the propagator is back at its
+     * state before the search. When the search is cancelled, the propagator is left in an intermediate state.
+     *
+     * @return True if a solution was found, false if there are no more solutions or if the search was cancelled.
+     */
+    public boolean next() {
+        // Start the search, the current state is a solution if there's nothing to branch on
+        if(!this.started) {
+            this.started = true;
+            if(!push())
+                return true;
+        }
+
+        // Get the grid, to show the progress
+        final LoopGrid grid = this.propagator.getGrid();
+
+        while(this.depth >= 0) {
+            // Update the progress, and stop if the search is cancelled
+            if((this.nodes & CANCEL_CHECK_MASK) == 0) {
+                updateProgress();
+                if(this.token != null && this.token.isCancelled()) {
+                    this.cancelled = true;
+                    return false;
+                }
+            }
+
+            // Undo the previous rotation of the tile at the current depth
+            this.propagator.undo(this.stackMark[this.depth]);
+
+            // Backtrack if all rotations have been tried
+            if(this.stackCount[this.depth] == 0) {
+                this.depth--;
+                this.backtracks++;
+                continue;
+            }
+
+            // Take the next rotation
+            int values = this.stackValues[this.depth];
+            int rotation = values & (Propagator.ROTATIONS - 1);
+            this.stackValues[this.depth] = values >>> 2;
+            this.stackCount[this.depth]--;
+            int position = this.stackPosition[this.depth];
+            this.nodes++;
+
+            // Show the tile that is worked on
+            if(this.propagator.isObserved())
+                grid.setWorkingTile(grid.getTile(position));
+
+            // Assign the rotation, and only revise the tiles around it
+            if(!this.propagator.restrict(position, 1 << rotation) || !this.propagator.propagate()) {
+                this.propagator.clearQueue();
+                continue;
+            }
+
+            // Branch on the next tile, all tiles are fixed and fit if there's none
+            if(!push())
+                return true;
+        }
+
+        // No solutions left
+        this.progress = 1;
+        return false;
+    }
+
+    /**
+     * Estimate the fraction of the search tree that was explored.
+     * Every rotation at a depth covers an equal part of the subtree of the depth above it. Rotations that were
+     * finished count as explored, which assumes that their subtrees are about as large as the remaining subtrees.
+     */
+    private void updateProgress() {
+        double explored = 0;
+        double weight = 1;
+        for(int i = 0; i <= this.depth; i++) {
+            // The rotation at the current depth was finished, the rotations above it are still being explored
+            int total = this.stackTotal[i];
+            int finished = total - this.stackCount[i] - (i < this.depth ? 1 : 0);
+            explored += weight * finished / total;
+            weight /= total;
+        }
+        this.progress = explored;
+    }
+
+    /**
+     * Get the estimated fraction of the search tree that was explored.
+     * The estimate is updated every few hundred search nodes, and may be read from any thread.
+     *
+     * @return The fraction, from 0 to 1.
+     */
+    public double getProgress() {
+        return this.progress;
+    }
+
+    /**
+     * Check whether the search was stopped because it was cancelled.
+     *
+     * @return True if cancelled, false if not.
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Select the tile the search would branch on first, without changing the search state.
+     *
+     * @return The tile position, or -1 if all tiles are fixed.
+     */
+    public int selectTile() {
+        for(int position : this.candidates)
+            if(!this.propagator.isFixed(position))
+                return selectInRegion(position);
+        return -1;
+    }
+
+    /**
+     * Get the rotations of a tile, in the order the search would try them.
+     *
+     * @param position The tile position.
+     *
+     * @return The rotations, two bits each in the order to try them.
+     */
+    public int getOrderedRotations(int position) {
+        return orderRotations(position);
+    }
+
+    /**
+     * Push the most constrained tile that isn't fixed onto the stack.
+     *
+     * @return True if a tile was pushed, false if all tiles are fixed.
+     */
+    private boolean push() {
+        // Skip the candidates that are fixed
+        int cursor = this.depth >= 0 ? this.stackCursor[this.depth] : 0;
+        while(cursor < this.candidates.length && this.propagator.isFixed(this.candidates[cursor]))
+            cursor++;
+
+        // Select the tile to branch on, return false if all tiles are fixed
+        if(cursor >= this.candidates.length)
+            return false;
+        int floor = this.depth >= 0 ? this.stackFloor[this.depth] : this.propagator.getTrailMark();
+        int position = select(floor);
+        if(position < 0) {
+            // All changed tiles are surrounded by fixed tiles, continue in the region of the first candidate
+            floor = this.propagator.getTrailMark();
+            position = selectInRegion(this.candidates[cursor]);
+        }
+
+        // Push the tile
+        this.depth++;
+        this.stackPosition[this.depth] = position;
+        this.stackValues[this.depth] = orderRotations(position);
+        this.stackCount[this.depth] = this.propagator.getDomainSize(position);
+        this.stackTotal[this.depth] = this.stackCount[this.depth];
+        this.stackMark[this.depth] = this.propagator.getTrailMark();
+        this.stackCursor[this.depth] = cursor;
+        this.stackFloor[this.depth] = floor;
+        this.maxDepth = Math.max(this.maxDepth, this.depth + 1);
+        return true;
+    }
+
+    /**
+     * Select the tile to branch on.
+     *
+     * The search stays in the regions of connected tiles that aren't fixed, that were changed by the most recent
+     * assignments, until these regions are fully fixed. This way a wrong rotation is found before the search moves on
+     * to a different part of the grid. Within the region, the tile with the fewest remaining rotations is selected, preferring tiles
+     * with the most fixed neighbours.
+     *
+     * @param floor The trail index to look down to, changed tiles below it are surrounded by fixed tiles.
+     *
+     * @return The tile position, or -1 if the assignments didn't leave any region to continue in.
+     */
+    private int select(int floor) {
+        // Find a tile that isn't fixed around the tiles changed by the assignments, the most recent first
+        for(int i = this.propagator.getTrailMark() - 1; i >= floor; i--) {
+            int changed = this.propagator.getTrailPosition(i);
+            if(!this.propagator.isFixed(changed))
+                return selectInRegion(changed);
+
+            for(int side = 0; side < LoopTile.TILE_SIDES; side++) {
+                int neighbour = this.propagator.getNeighbour(changed, side);
+                if(neighbour >= 0 && !this.propagator.isFixed(neighbour))
+                    return selectInRegion(neighbour);
+            }
+        }
+
+        // No region to continue in
+        return -1;
+    }
+
+    /**
+     * Select the tile to branch on, from the region of connected tiles that aren't fixed.
+     *
+     * @param start A tile in the region that isn't fixed.
+     *
+     * @return The tile position.
+     */
+    private int selectInRegion(int start) {
+        // Start a new walk
+        int head = 0;
+        int size = 0;
+        this.regionQueue[size++] = start;
+        this.regionVisited[start] = true;
+
+        int best = start;
+        int bestSize = Integer.MAX_VALUE;
+        int bestFixed = -1;
+        while(head < size) {
+            int position = this.regionQueue[head++];
+
+            // Prefer fewer rotations, and then more fixed neighbours
+            int domainSize = this.propagator.getDomainSize(position);
+            if(domainSize <= bestSize) {
+                int fixed = countFixedNeighbours(position);
+                if(domainSize < bestSize || fixed > bestFixed) {
+                    best = position;
+                    bestSize = domainSize;
+                    bestFixed = fixed;
+                }
+            }
+
+            // Walk to the neighbours that aren't fixed
+            for(int side = 0; side < LoopTile.TILE_SIDES; side++) {
+                int neighbour = this.propagator.getNeighbour(position, side);
+                if(neighbour < 0 || this.regionVisited[neighbour] || this.propagator.isFixed(neighbour))
+                    continue;
+                this.regionVisited[neighbour] = true;
+                this.regionQueue[size++] = neighbour;
+            }
+        }
+
+        // Clear the visited flags for the next walk
+        for(int i = 0; i < size; i++)
+            this.regionVisited[this.regionQueue[i]] = false;
+
+        return best;
+    }
+
+    /**
+     * Count the neighbours of a tile that are fixed. The border of the grid counts as fixed neighbour.
+     *
+     * @param position The tile position.
+     *
+     * @return Number of fixed neighbours.
+     */
+    private int countFixedNeighbours(int position) {
+        int fixed = 0;
+        for(int side = 0; side < LoopTile.TILE_SIDES; side++) {
+            int neighbour = this.propagator.getNeighbour(position, side);
+            if(neighbour < 0 || this.propagator.isFixed(neighbour))
+                fixed++;
+        }
+        return fixed;
+    }
+
+    /**
+     * Order the remaining rotations of a tile, so the rotations that leave the most rotations of the neighbours
+     * intact are tried first.
+     *
+     * @param position The tile position.
+     *
+     * @return The rotations, two bits each in the order to try them.
+     */
+    private int orderRotations(int position) {
+        // Get the tile state
+        final int mask = this.propagator.getBaseMask(position);
+        final int domain = this.propagator.getDomain(position);
+
+        // Score every rotation, the rotation is stored in the lowest bits
+        int count = 0;
+        for(int rotation = 0; rotation < Propagator.ROTATIONS; rotation++) {
+            if((domain & (1 << rotation)) == 0)
+                continue;
+
+            // Count the rotations of the neighbours that fit this rotation
+            int rotated = LoopTileMask.rotate(mask, rotation);
+            int score = 0;
+            for(int side = 0; side < LoopTile.TILE_SIDES; side++) {
+                int neighbour = this.propagator.getNeighbour(position, side);
+                if(neighbour >= 0)
+                    score += this.propagator.getSupport(neighbour, (side + 2) % LoopTile.TILE_SIDES, (rotated & (1 << side)) != 0);
+            }
+
+            // Insert the rotation, sorted by descending score
+            int key = (score << 2) | (Propagator.ROTATIONS - 1 - rotation);
+            int i = count++;
+            while(i > 0 && this.sortBuffer[i - 1] < key) {
+                this.sortBuffer[i] = this.sortBuffer[i - 1];
+                i--;
+            }
+            this.sortBuffer[i] = key;
+        }
+
+        // Pack the rotations in order
+        int values = 0;
+        for(int i = count - 1; i >= 0; i--)
+            values = (values << 2) | (Propagator.ROTATIONS - 1 - (this.sortBuffer[i] & (Propagator.ROTATIONS - 1)));
+        return values;
+    }
+
+    /**
+     * Get the number of rotations that were assigned.
+     *
+     * @return Number of search nodes.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Get the number of times the search backtracked from a tile.
+     *
+     * @return Number of backtracks.
+     */
+    public long getBacktracks() {
+        return this.backtracks;
+    }
+
+    /**
+     * Get the maximum search depth that was reached.
+     *
+     * @return Maximum depth.
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+}
@@ -1,20 +1,36 @@
 package com.timvisee.loopsolver.solver;
 
-import com.timvisee.loopsolver.App;
 import com.timvisee.loopsolver.grid.LoopGrid;
 import com.timvisee.loopsolver.tile.LoopTile;
+import com.timvisee.loopsolver.tile.LoopTileMask;
 import com.timvisee.loopsolver.tile.LoopTileSide;
-import com.timvisee.loopsolver.util.ArrayUtils;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
-public class Solver implements Runnable {
+public class Solver implements SolverEngine {
 
     /** The grid to solve. */
     private LoopGrid grid;
 
+    /** Number of tile orientations that were tried. */
+    private long nodes = 0;
+
+    /** Propagator holding the remaining rotations of each tile. */
+    private Propagator propagator;
+    /** Search over the remaining rotations, region by region. */
+    private volatile RegionSearch search;
+
+    /** Number of threads to search with, 1 to search on the solver thread. */
+    private int parallelism = 1;
+
+    /** Statistics of the last run, or null if the solver hasn't run yet. */
+    private SolverStats stats;
+
+    /** Token to check for cancellation, or null. */
+    private CancellationToken token;
+    /** The status of the solver. */
+    private volatile SolverStatus status = SolverStatus.RUNNING;
+
     /**
      * Constructor.
      *
@@ -29,85 +45,156 @@ public class Solver implements Runnable {
      *
      * @return The grid.
      */
+    @Override
     public LoopGrid getGrid() {
         return this.grid;
     }
 
+    /**
+     * Get the number of search nodes that were visited.
+     * Every tile orientation that is tried, either while checking for a single fit or while searching, counts as one node.
+     *
+     * @return Number of search nodes.
+     */
     @Override
-    public void run() {
-        // Loop through all tiles and try to solve them
-        for(int i = 0; i < this.grid.getTotal(); i++)
-            solveTile(this.grid.getTile(i));
-
-        // List of unsolved tiles
-        List<LoopTile> unsolved = new ArrayList<>();
-
-        // Get all tiles that haven't been solved yet
-        for(int i = 0; i < this.grid.getTotal(); i++) {
-            // Get the tile
-            LoopTile tile = this.grid.getTile(i);
-
-            // Make sure this tile isn't solved yet
-            if(tile.isSolved())
-                continue;
-
-            // Make sure it isn't solved yet
-            if(tile.isCorrect()) {
-                tile.setSolved(true);
-                continue;
-            }
-
-            // Add the tile as unsolved
-            unsolved.add(tile);
-        }
+    public long getNodes() {
+        return this.nodes + (this.search != null ? this.search.getNodes() : 0);
+    }
 
-        // Brute force tiles that couldn't be solved
-        bruteForceTiles(unsolved);
+    /**
+     * Get the number of threads to search with.
+     *
+     * @return Number of threads.
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
 
-        // Reset the working and checking tile
-        this.grid.setWorkingTile(null);
-        this.grid.setCheckingTile(null);
+    /**
+     * Set the number of threads to search with.
+     * The worker threads search on copies of the domains that don't notify the observer, so the observer only hears
+     * from the solver thread. While searching in parallel it doesn't show the working tile, the solved tiles are shown
+     * once the search is finished.
+     *
+     * @param parallelism Number of threads, 1 to search on the solver thread.
+     */
+    public void setParallelism(int parallelism) {
+        if(parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        this.parallelism = parallelism;
     }
 
-    public boolean bruteForceTiles(List<LoopTile> tiles) {
-        // Make sure there's any item in the list
-        if(tiles.size() == 0)
-            return false;
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
 
-        // Get the current tile
-        LoopTile tile = tiles.get(0);
+    @Override
+    public SolverStatus getStatus() {
+        return this.status;
+    }
 
-        // Get the other tiles
-        List<LoopTile> otherTiles = tiles.subList(1, tiles.size());
+    /**
+     * Get the estimated fraction of the search that is done.
+     * The estimate is based on the part of the search tree of every region that was explored, and may be read from any
+     * thread while solving.
+     *
+     * @return The fraction, from 0 to 1.
+     */
+    public double getProgress() {
+        if(this.status != SolverStatus.RUNNING)
+            return 1;
+        RegionSearch search = this.search;
+        return search != null ? search.getProgress() : 0;
+    }
 
-        for(int i = 0; i < 4; i++) {
-            // Make sure this tile isn't solved already
-            if(!tile.isSolved()) {
-                // Set the working tile
-                this.grid.setWorkingTile(tile);
+    /**
+     * Get the observer that is notified about the solver progress.
+     *
+     * @return Solver observer.
+     */
+    public SolverObserver getObserver() {
+        return this.grid.getObserver();
+    }
 
-                // Rotate
-                tile.rotateClockwise();
+    /**
+     * Get the search over the remaining rotations.
+     *
+     * @return The search, or null if the solver didn't search.
+     */
+    public RegionSearch getSearch() {
+        return this.search;
+    }
 
-                // Make sure the tile fits in tiles that are already solved
-                if(!tile.fitInSolvedCurrentState())
-                    continue;
+    /**
+     * Get the propagator holding the remaining rotations of each tile.
+     *
+     * @return The propagator, or null if the solver hasn't run yet.
+     */
+    public Propagator getPropagator() {
+        return this.propagator;
+    }
 
-                // Check whether the thing is solved
-                if(doesAllFit())
-                    return true;
-            }
+    @Override
+    public SolverStats getStats() {
+        return this.stats;
+    }
 
-            // Set the working tile
-            this.grid.setCheckingTile(tile);
+    @Override
+    public void run() {
+        // Start propagating
+        this.status = SolverStatus.RUNNING;
+        getObserver().onPhaseChanged(SolverPhase.PROPAGATION);
+        long start = System.nanoTime();
+
+        // Reduce the rotations of all tiles until nothing changes anymore, and rotate tiles that are fixed
+        this.propagator = new Propagator(this.grid);
+        final int initiallyFixed = this.propagator.countFixed();
+        this.propagator.enqueueAll();
+        boolean consistent = this.propagator.propagate();
+        final long propagatedTiles = this.propagator.getRevisions();
+        final int fixedTiles = consistent ? this.propagator.countFixed() - initiallyFixed : 0;
+        this.propagator.apply();
+
+        // The search never undoes the propagation of the whole grid, so don't keep its changes on the trail
+        this.propagator.clearTrail();
+        long propagated = System.nanoTime();
+
+        // Search the rotations of the tiles that couldn't be solved, keeping the regions that were solved if cancelled
+        boolean solved = false;
+        SolverStatus status = SolverStatus.UNSOLVABLE;
+        if(consistent) {
+            getObserver().onPhaseChanged(SolverPhase.SEARCH);
+            this.search = new RegionSearch(this.propagator, this.parallelism, this.token);
+            solved = this.search.search();
+            if(!this.search.isUnsolvable())
+                this.propagator.apply();
+            if(!solved && !this.search.isUnsolvable())
+                status = this.token != null && this.token.isTimedOut() ? SolverStatus.TIMED_OUT : SolverStatus.CANCELLED;
+        }
+        long searched = System.nanoTime();
 
-            // Brute force the rest
-            if(bruteForceTiles(otherTiles))
-                return true;
+        // Verify the solution
+        if(solved) {
+            solved = doesAllFit();
+            status = solved ? SolverStatus.SOLVED : SolverStatus.UNSOLVABLE;
         }
+        long verified = System.nanoTime();
+
+        // Keep the statistics of this run
+        this.stats = new SolverStats(solved, propagatedTiles, fixedTiles, getNodes(),
+                this.search != null ? this.search.getBacktracks() : 0,
+                this.search != null ? this.search.getMaxDepth() : 0,
+                propagated - start, searched - propagated, verified - searched);
+        SolverMetrics.getInstance().record(this.stats);
+
+        // Reset the working and checking tile
+        this.grid.setWorkingTile(null);
+        this.grid.setCheckingTile(null);
 
-        // Check if everything fits
-        return doesAllFit();
+        // The solver has finished
+        this.status = status;
+        getObserver().onPhaseChanged(SolverPhase.FINISHED);
     }
 
     public void solveTiles(List<LoopTile> tiles) {
@@ -125,12 +212,6 @@ public class Solver implements Runnable {
 
     public boolean rotateIfOnePossible(LoopTile tile) {
         this.grid.setWorkingTile(tile);
-        App.instance.getGridFrame().repaint();
-        try {
-            Thread.sleep(15);
-        } catch(InterruptedException e) {
-            e.printStackTrace();
-        }
 
         // Make sure the tile isn't solved already
         if(tile.isSolved())
@@ -142,18 +223,19 @@ public class Solver implements Runnable {
             return true;
         }
 
-        // Get the current array of sides
-        boolean[] sidesOriginal = tile.getSides();
-        boolean[] sides = sidesOriginal.clone();
+        // Get the current connector mask
+        int mask = tile.getMask();
 
         // Check whether there is just one rotation this tile fits in
         int rotate = -1;
         boolean rotateMust = false;
-        boolean[] sidesRotated = new boolean[sides.length];
-        for(int i = 0; i < 4; i++) {
-            // Shift the array by one
-            if(i > 0)
-                sides = ArrayUtils.shiftArrayDown(sides);
+        int maskRotated = LoopTileMask.MASK_EMPTY;
+        for(int i : LoopTileMask.orientations(mask)) {
+            // Count the node
+            this.nodes++;
+
+            // Rotate the mask
+            int sides = LoopTileMask.rotate(mask, i);
 
             // Check whether it fits
             boolean fits = true;
@@ -164,7 +246,7 @@ public class Solver implements Runnable {
 
                 // Check whether it exists
                 if(neighbour == null) {
-                    if(sides[side.side()]) {
+                    if(LoopTileMask.hasSide(sides, side)) {
                         fits = false;
                         break;
                     } else
@@ -172,13 +254,13 @@ public class Solver implements Runnable {
                 }
 
                 // Check whether it can't fit
-                if(neighbour.getSideCanNotConnectSelf(side.opposite()) && sides[side.side()]) {
+                if(neighbour.getSideCanNotConnectSelf(side.opposite()) && LoopTileMask.hasSide(sides, side)) {
                     fits = false;
                     break;
                 }
 
                 // Check whether it can't fit
-                if(neighbour.getSideMustConnectSelf(side.opposite()) && !sides[side.side()]) {
+                if(neighbour.getSideMustConnectSelf(side.opposite()) && !LoopTileMask.hasSide(sides, side)) {
                     fits = false;
                     break;
                 }
@@ -193,10 +275,10 @@ public class Solver implements Runnable {
             if(fits) {
                 if(rotate < 0 || (!rotateMust && fitsMust)) {
                     rotate = i;
-                    sidesRotated = sides.clone();
+                    maskRotated = sides;
                     rotateMust = fitsMust || rotateMust;
 
-                } else if(!Arrays.equals(sides, sidesRotated))
+                } else if(sides != maskRotated)
                     return false;
             }
         }
@@ -216,19 +298,34 @@ public class Solver implements Runnable {
     }
 
     public boolean doesAllFit() {
-        // Check all tiles
-        for(int i = this.grid.getTotal() - 1; i >= 0; i--) {
-            // Ge the tile
-            LoopTile tile = this.grid.getTile(i);
-            this.grid.setCheckingTile(tile);
-
-            if(!tile.fitInCurrentState())
-                return false;
+        // Get the grid size
+        final int width = this.grid.getWidth();
+        final int height = this.grid.getHeight();
+
+        // Scan the grid state, checking the right and bottom edge of every tile and the grid border
+        for(int y = 0, position = 0; y < height; y++) {
+            for(int x = 0; x < width; x++, position++) {
+                // Get the tile mask
+                int mask = this.grid.getMask(position);
+
+                // Tiles on the top and left border must not connect outwards
+                if((y == 0 && LoopTileMask.hasSide(mask, LoopTileSide.TOP)) || (x == 0 && LoopTileMask.hasSide(mask, LoopTileSide.LEFT)))
+                    return false;
+
+                // Check the right edge
+                boolean right = LoopTileMask.hasSide(mask, LoopTileSide.RIGHT);
+                if(x + 1 < width ? right != LoopTileMask.hasSide(this.grid.getMask(position + 1), LoopTileSide.LEFT) : right)
+                    return false;
+
+                // Check the bottom edge
+                boolean bottom = LoopTileMask.hasSide(mask, LoopTileSide.BOTTOM);
+                if(y + 1 < height ? bottom != LoopTileMask.hasSide(this.grid.getMask(position + width), LoopTileSide.TOP) : bottom)
+                    return false;
+            }
         }
 
         // TODO: Move this to a different method!
-        for(LoopTile tile : this.grid.getTiles())
-            tile.setSolved(true);
+        this.grid.setAllSolved(true);
 
         // All tiles seem to fit
         return true;
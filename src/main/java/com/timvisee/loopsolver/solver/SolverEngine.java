@@ -0,0 +1,55 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+
+public interface SolverEngine extends Runnable {
+
+    /**
+     * Get the grid.
+     *
+     * @return The grid.
+     */
+    LoopGrid getGrid();
+
+    /**
+     * Get the number of search nodes that were visited.
+     * What counts as node depends on the engine.
+     *
+     * @return Number of search nodes.
+     */
+    long getNodes();
+
+    /**
+     * Set the token to check for cancellation while solving.
+     * A token with a deadline, see {@link CancellationToken#withTimeout(long, java.util.concurrent.TimeUnit)}, limits
+     * the time the engine may take. The token is checked cheaply every few hundred search nodes.
+     *
+     * @param token The token, or null to solve until finished.
+     */
+    void setCancellationToken(CancellationToken token);
+
+    /**
+     * Get the status of the solver.
+     * If the solver was cancelled or timed out, the grid holds the tiles that were solved so far.
+     *
+     * @return The status, {@link SolverStatus#RUNNING} if the solver hasn't finished.
+     */
+    SolverStatus getStatus();
+
+    /**
+     * Get the statistics of the last run.
+     * Every engine adds the statistics of each run to the {@link SolverMetrics} of this process. Statistics that don't
+     * apply to an engine are zero.
+     *
+     * @return The statistics, or null if the engine hasn't run yet.
+     */
+    SolverStats getStats();
+
+    /**
+     * Solve the grid.
+     * Tiles are rotated into their solved orientation and marked as solved. The grid observer is notified about the
+     * progress.
+     */
+    @Override
+    void run();
+}
@@ -0,0 +1,199 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.tile.LoopTile;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SolverEventBuffer implements SolverObserver {
+
+    /** Event type of a tile that was focused, the position is -1 if no tile is focused anymore. */
+    public static final int EVENT_FOCUSED = 0;
+    /** Event type of a tile that was checked, the position is -1 if no tile is checked anymore. */
+    public static final int EVENT_CHECKED = 1;
+    /** Event type of a tile that got a new mask or solved state, the cell holds the state. */
+    public static final int EVENT_CELL = 2;
+    /** Event type of a solver phase change, the position holds the ordinal of the phase. */
+    public static final int EVENT_PHASE = 3;
+
+    /** Default number of events the buffer holds. */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** Shift of the event type in an event. */
+    private static final int TYPE_SHIFT = 56;
+    /** Shift of the cell state in an event. */
+    private static final int CELL_SHIFT = 32;
+    /** Bits of the cell state in an event, after shifting. */
+    private static final int CELL_BITS = 0xFF;
+
+    /** The events, used as a ring. */
+    private final long[] events;
+    /** Mask to wrap a sequence number to an index in the ring. */
+    private final int indexMask;
+
+    /** Sequence number of the next event to write, only written by the producer. */
+    private final AtomicLong tail = new AtomicLong();
+    /** Sequence number of the next event to read, only written by the consumer. */
+    private final AtomicLong head = new AtomicLong();
+    /** The last head the producer has seen, so it doesn't have to read the head for every event. */
+    private long cachedHead = 0;
+
+    /** True if events were dropped because the buffer was full. */
+    private final AtomicBoolean overflowed = new AtomicBoolean(false);
+
+    /**
+     * Constructor, using the default capacity.
+     */
+    public SolverEventBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     * The buffer has a single producer, the solver thread that notifies it, and a single consumer that drains it. Use
+     * it with solvers that observe the grid from one thread, such as a {@link Solver} with a parallelism of 1.
+     *
+     * @param capacity Number of events the buffer holds, must be a power of two.
+     */
+    public SolverEventBuffer(int capacity) {
+        if(capacity < 1 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a positive power of two, got " + capacity);
+        this.events = new long[capacity];
+        this.indexMask = capacity - 1;
+    }
+
+    /**
+     * Get the number of events the buffer holds.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return this.events.length;
+    }
+
+    /**
+     * Publish an event.
+     * This never blocks. If the buffer is full, the event is dropped and the buffer is marked as overflowed, so the
+     * consumer knows it has to read the state from the grid again.
+     * Must only be called from the producer thread.
+     *
+     * @param type The event type.
+     * @param position The tile position, or the phase ordinal.
+     * @param cell The cell state, see {@link LoopGrid#CELL_MASK}.
+     *
+     * @return True if the event was published, false if it was dropped.
+     */
+    public boolean offer(int type, int position, int cell) {
+        // Make sure there is room, only read the head of the consumer if the last known head says there isn't
+        final long tail = this.tail.get();
+        if(tail - this.cachedHead >= this.events.length) {
+            this.cachedHead = this.head.get();
+            if(tail - this.cachedHead >= this.events.length) {
+                this.overflowed.lazySet(true);
+                return false;
+            }
+        }
+
+        // Write the event, and publish it together with everything the producer wrote before
+        this.events[(int) tail & this.indexMask] = encode(type, position, cell);
+        this.tail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Take the published events.
+     * Must only be called from the consumer thread.
+     *
+     * @param out The array to copy the events into, in the order they were published.
+     *
+     * @return The number of events copied, at most the length of the array.
+     */
+    public int drain(long[] out) {
+        // Determine the number of events to take
+        final long head = this.head.get();
+        final int count = (int) Math.min(this.tail.get() - head, out.length);
+
+        // Copy the events, and free their slots for the producer
+        for(int i = 0; i < count; i++)
+            out[i] = this.events[(int) (head + i) & this.indexMask];
+        this.head.lazySet(head + count);
+        return count;
+    }
+
+    /**
+     * Check whether events were dropped since the last call, and reset the flag.
+     * If so, the consumer should read the whole state from the grid again after draining the buffer.
+     *
+     * @return True if events were dropped.
+     */
+    public boolean pollOverflow() {
+        return this.overflowed.getAndSet(false);
+    }
+
+    /**
+     * Encode an event.
+     *
+     * @param type The event type.
+     * @param position The tile position, or the phase ordinal.
+     * @param cell The cell state, or 0 if the event type has no cell state.
+     *
+     * @return The event.
+     */
+    public static long encode(int type, int position, int cell) {
+        return ((long) type << TYPE_SHIFT) | ((long) (cell & CELL_BITS) << CELL_SHIFT) | (position & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the type of an event.
+     *
+     * @param event The event.
+     *
+     * @return The event type.
+     */
+    public static int getType(long event) {
+        return (int) (event >>> TYPE_SHIFT);
+    }
+
+    /**
+     * Get the tile position of an event, or the phase ordinal of a phase event.
+     *
+     * @param event The event.
+     *
+     * @return The position.
+     */
+    public static int getPosition(long event) {
+        return (int) event;
+    }
+
+    /**
+     * Get the cell state of a cell event.
+     *
+     * @param event The event.
+     *
+     * @return The cell state, holding the mask and the solved bit.
+     */
+    public static int getCell(long event) {
+        return (int) (event >>> CELL_SHIFT) & CELL_BITS;
+    }
+
+    @Override
+    public void onTileFocused(LoopTile tile) {
+        offer(EVENT_FOCUSED, tile != null ? tile.getPosition() : -1, 0);
+    }
+
+    @Override
+    public void onTileChecked(LoopTile tile) {
+        offer(EVENT_CHECKED, tile != null ? tile.getPosition() : -1, 0);
+    }
+
+    @Override
+    public void onTileSolved(LoopTile tile, boolean solved) {
+        offer(EVENT_CELL, tile.getPosition(), tile.getMask() | (solved ? LoopGrid.CELL_SOLVED : 0));
+    }
+
+    @Override
+    public void onPhaseChanged(SolverPhase phase) {
+        offer(EVENT_PHASE, phase.ordinal(), 0);
+    }
+}
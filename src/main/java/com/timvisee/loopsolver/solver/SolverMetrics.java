@@ -0,0 +1,144 @@
+package com.timvisee.loopsolver.solver;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SolverMetrics implements SolverMetricsMBean {
+
+    /** Name the metrics are published under. */
+    public static final String OBJECT_NAME = "com.timvisee.loopsolver:type=SolverMetrics";
+
+    /** Metrics of all solves in this process. */
+    private static final SolverMetrics INSTANCE = new SolverMetrics();
+
+    /** Number of solves. */
+    private final LongAdder solves = new LongAdder();
+    /** Number of solved grids. */
+    private final LongAdder solved = new LongAdder();
+    /** Number of tile revisions while propagating. */
+    private final LongAdder propagatedTiles = new LongAdder();
+    /** Number of tiles that were fixed by propagating. */
+    private final LongAdder fixedTiles = new LongAdder();
+    /** Number of search nodes. */
+    private final LongAdder nodes = new LongAdder();
+    /** Number of search backtracks. */
+    private final LongAdder backtracks = new LongAdder();
+    /** Maximum search depth. */
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    /** Time spent propagating, in nanoseconds. */
+    private final LongAdder propagationNanos = new LongAdder();
+    /** Time spent searching, in nanoseconds. */
+    private final LongAdder searchNanos = new LongAdder();
+    /** Time spent verifying solutions, in nanoseconds. */
+    private final LongAdder verificationNanos = new LongAdder();
+
+    /**
+     * Get the metrics of all solves in this process.
+     *
+     * @return The metrics.
+     */
+    public static SolverMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Publish the metrics of all solves through the platform MBean server, under {@link #OBJECT_NAME}.
+     * Nothing happens if they're published already.
+     *
+     * @throws JMException If the metrics couldn't be published.
+     */
+    public static synchronized void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if(!server.isRegistered(name))
+            server.registerMBean(INSTANCE, name);
+    }
+
+    /**
+     * Add the statistics of a solve.
+     * This may be called from any thread, the counters are striped and only summed when they're read.
+     *
+     * @param stats The statistics of the solve.
+     */
+    public void record(SolverStats stats) {
+        this.solves.increment();
+        if(stats.isSolved())
+            this.solved.increment();
+        this.propagatedTiles.add(stats.getPropagatedTiles());
+        this.fixedTiles.add(stats.getFixedTiles());
+        this.nodes.add(stats.getNodes());
+        this.backtracks.add(stats.getBacktracks());
+        this.maxDepth.accumulate(stats.getMaxDepth());
+        this.propagationNanos.add(stats.getPropagationNanos());
+        this.searchNanos.add(stats.getSearchNanos());
+        this.verificationNanos.add(stats.getVerificationNanos());
+    }
+
+    @Override
+    public long getSolveCount() {
+        return this.solves.sum();
+    }
+
+    @Override
+    public long getSolvedCount() {
+        return this.solved.sum();
+    }
+
+    @Override
+    public long getPropagatedTiles() {
+        return this.propagatedTiles.sum();
+    }
+
+    @Override
+    public long getFixedTiles() {
+        return this.fixedTiles.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return this.nodes.sum();
+    }
+
+    @Override
+    public long getBacktracks() {
+        return this.backtracks.sum();
+    }
+
+    @Override
+    public long getMaxDepth() {
+        return this.maxDepth.get();
+    }
+
+    @Override
+    public double getPropagationTime() {
+        return this.propagationNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getSearchTime() {
+        return this.searchNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getVerificationTime() {
+        return this.verificationNanos.sum() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        this.solves.reset();
+        this.solved.reset();
+        this.propagatedTiles.reset();
+        this.fixedTiles.reset();
+        this.nodes.reset();
+        this.backtracks.reset();
+        this.maxDepth.reset();
+        this.propagationNanos.reset();
+        this.searchNanos.reset();
+        this.verificationNanos.reset();
+    }
+}
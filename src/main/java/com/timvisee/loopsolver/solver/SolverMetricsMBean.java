@@ -0,0 +1,79 @@
+package com.timvisee.loopsolver.solver;
+
+public interface SolverMetricsMBean {
+
+    /**
+     * Get the number of runs of any solver engine.
+     *
+     * @return Number of solves.
+     */
+    long getSolveCount();
+
+    /**
+     * Get the number of grids that were solved.
+     *
+     * @return Number of solved grids.
+     */
+    long getSolvedCount();
+
+    /**
+     * Get the number of tile revisions while propagating.
+     *
+     * @return Number of revisions.
+     */
+    long getPropagatedTiles();
+
+    /**
+     * Get the number of tiles that were fixed by propagating.
+     *
+     * @return Number of tiles.
+     */
+    long getFixedTiles();
+
+    /**
+     * Get the number of search nodes.
+     *
+     * @return Number of search nodes.
+     */
+    long getNodes();
+
+    /**
+     * Get the number of search backtracks.
+     *
+     * @return Number of backtracks.
+     */
+    long getBacktracks();
+
+    /**
+     * Get the maximum search depth of any solve.
+     *
+     * @return Maximum depth.
+     */
+    long getMaxDepth();
+
+    /**
+     * Get the total time spent propagating.
+     *
+     * @return Time in milliseconds.
+     */
+    double getPropagationTime();
+
+    /**
+     * Get the total time spent searching.
+     *
+     * @return Time in milliseconds.
+     */
+    double getSearchTime();
+
+    /**
+     * Get the total time spent verifying solutions.
+     *
+     * @return Time in milliseconds.
+     */
+    double getVerificationTime();
+
+    /**
+     * Reset all metrics to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,38 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.tile.LoopTile;
+
+public interface SolverObserver {
+
+    /** Observer that ignores all events. */
+    SolverObserver NONE = new SolverObserver() { };
+
+    /**
+     * Called when the solver starts working on a tile.
+     *
+     * @param tile The tile that is worked on, or null.
+     */
+    default void onTileFocused(LoopTile tile) { }
+
+    /**
+     * Called when the solver checks a tile.
+     *
+     * @param tile The tile that is checked, or null.
+     */
+    default void onTileChecked(LoopTile tile) { }
+
+    /**
+     * Called when the solved state of a tile is changed.
+     *
+     * @param tile The tile.
+     * @param solved True if the tile is solved, false if not.
+     */
+    default void onTileSolved(LoopTile tile, boolean solved) { }
+
+    /**
+     * Called when the solver enters a new phase.
+     *
+     * @param phase The new phase.
+     */
+    default void onPhaseChanged(SolverPhase phase) { }
+}
@@ -0,0 +1,13 @@
+package com.timvisee.loopsolver.solver;
+
+public enum SolverPhase {
+
+    /** Tiles are solved by looking at their neighbours. */
+    PROPAGATION,
+
+    /** Remaining tiles are brute forced. */
+    SEARCH,
+
+    /** The solver has finished. */
+    FINISHED
+}
@@ -0,0 +1,141 @@
+package com.timvisee.loopsolver.solver;
+
+import java.util.Locale;
+
+public class SolverStats {
+
+    /** True if the grid was solved. */
+    private final boolean solved;
+    /** Number of tile revisions while propagating. */
+    private final long propagatedTiles;
+    /** Number of tiles that were fixed by propagating, without searching. */
+    private final long fixedTiles;
+    /** Number of search nodes. */
+    private final long nodes;
+    /** Number of search backtracks. */
+    private final long backtracks;
+    /** Maximum search depth. */
+    private final int maxDepth;
+    /** Time spent propagating, in nanoseconds. */
+    private final long propagationNanos;
+    /** Time spent searching, in nanoseconds. */
+    private final long searchNanos;
+    /** Time spent verifying the solution, in nanoseconds. */
+    private final long verificationNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param solved True if the grid was solved.
+     * @param propagatedTiles Number of tile revisions while propagating.
+     * @param fixedTiles Number of tiles that were fixed by propagating.
+     * @param nodes Number of search nodes.
+     * @param backtracks Number of search backtracks.
+     * @param maxDepth Maximum search depth.
+     * @param propagationNanos Time spent propagating, in nanoseconds.
+     * @param searchNanos Time spent searching, in nanoseconds.
+     * @param verificationNanos Time spent verifying the solution, in nanoseconds.
+     */
+    public SolverStats(boolean solved, long propagatedTiles, long fixedTiles, long nodes, long backtracks, int maxDepth,
+                       long propagationNanos, long searchNanos, long verificationNanos) {
+        this.solved = solved;
+        this.propagatedTiles = propagatedTiles;
+        this.fixedTiles = fixedTiles;
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.maxDepth = maxDepth;
+        this.propagationNanos = propagationNanos;
+        this.searchNanos = searchNanos;
+        this.verificationNanos = verificationNanos;
+    }
+
+    /**
+     * Check whether the grid was solved.
+     *
+     * @return True if solved, false if not.
+     */
+    public boolean isSolved() {
+        return this.solved;
+    }
+
+    /**
+     * Get the number of tile revisions while propagating, before the search started.
+     *
+     * @return Number of revisions.
+     */
+    public long getPropagatedTiles() {
+        return this.propagatedTiles;
+    }
+
+    /**
+     * Get the number of tiles that were fixed by propagating, without searching.
+     * Tiles that were solved before the solver started aren't included.
+     *
+     * @return Number of tiles.
+     */
+    public long getFixedTiles() {
+        return this.fixedTiles;
+    }
+
+    /**
+     * Get the number of search nodes.
+     *
+     * @return Number of search nodes.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Get the number of search backtracks.
+     *
+     * @return Number of backtracks.
+     */
+    public long getBacktracks() {
+        return this.backtracks;
+    }
+
+    /**
+     * Get the maximum search depth.
+     *
+     * @return Maximum depth.
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * Get the time spent propagating.
+     *
+     * @return Time in nanoseconds.
+     */
+    public long getPropagationNanos() {
+        return this.propagationNanos;
+    }
+
+    /**
+     * Get the time spent searching.
+     *
+     * @return Time in nanoseconds.
+     */
+    public long getSearchNanos() {
+        return this.searchNanos;
+    }
+
+    /**
+     * Get the time spent verifying the solution.
+     *
+     * @return Time in nanoseconds.
+     */
+    public long getVerificationNanos() {
+        return this.verificationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "solved=%b propagated=%d fixed=%d nodes=%d backtracks=%d maxDepth=%d "
+                        + "propagation=%.3fms search=%.3fms verification=%.3fms", this.solved, this.propagatedTiles,
+                this.fixedTiles, this.nodes, this.backtracks, this.maxDepth, this.propagationNanos / 1e6,
+                this.searchNanos / 1e6, this.verificationNanos / 1e6);
+    }
+}
@@ -0,0 +1,22 @@
+package com.timvisee.loopsolver.solver;
+
+public enum SolverStatus {
+
+    /** The solver hasn't finished yet. */
+    RUNNING,
+
+    /** All tiles are rotated into a solution. */
+    SOLVED,
+
+    /** The grid has no solution. */
+    UNSOLVABLE,
+
+    /** The solver was cancelled, the grid holds the tiles that were solved so far. */
+    CANCELLED,
+
+    /** The time budget ran out, the grid holds the tiles that were solved so far. */
+    TIMED_OUT,
+
+    /** The solver gave up without knowing whether the grid has a solution. */
+    UNKNOWN
+}
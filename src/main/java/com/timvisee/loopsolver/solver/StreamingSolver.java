@@ -0,0 +1,327 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.tile.LoopTileMask;
+import com.timvisee.loopsolver.tile.LoopTileSide;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class StreamingSolver {
+
+    /** Default number of rows that are solved together. */
+    public static final int DEFAULT_BAND_HEIGHT = 16;
+    /** Default number of rows the band may grow to, if no row can be solved in a smaller band. */
+    public static final int DEFAULT_MAX_BAND_HEIGHT = 256;
+
+    /** Grid width. */
+    private final int width;
+    /** Grid height. */
+    private final int height;
+    /** The source to read the rows of the puzzle from. */
+    private final RowSource source;
+    /** The sink to write the solved rows to. */
+    private final RowSink sink;
+
+    /** Number of rows that are solved together at first. */
+    private int bandHeight = DEFAULT_BAND_HEIGHT;
+    /** Number of rows the band may grow to. */
+    private int maxBandHeight = DEFAULT_MAX_BAND_HEIGHT;
+
+    /** Token to check for cancellation, or null. */
+    private CancellationToken token;
+    /** The status of the solver. */
+    private volatile SolverStatus status = SolverStatus.RUNNING;
+
+    /** Number of rows written to the sink. */
+    private volatile long writtenRows = 0;
+    /** Number of rows that were written as found by a search of the band, not knowing the rows below it. */
+    private long guessedRows = 0;
+    /** Largest number of rows that were in the band at once. */
+    private int peakBandHeight = 0;
+    /** Number of search nodes visited. */
+    private long nodes = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param width Grid width.
+     * @param height Grid height.
+     * @param source The source to read the rows of the puzzle from, from top to bottom.
+     * @param sink The sink to write the solved rows to, from top to bottom.
+     */
+    public StreamingSolver(int width, int height, RowSource source, RowSink sink) {
+        if(width < 1 || height < 1)
+            throw new IllegalArgumentException("Grid size must be at least 1x1, got " + width + "x" + height);
+        this.width = width;
+        this.height = height;
+        this.source = source;
+        this.sink = sink;
+    }
+
+    /**
+     * Get the number of rows that are solved together at first.
+     *
+     * @return Number of rows.
+     */
+    public int getBandHeight() {
+        return this.bandHeight;
+    }
+
+    /**
+     * Set the number of rows that are solved together at first.
+     *
+     * @param bandHeight Number of rows, at least 1.
+     */
+    public void setBandHeight(int bandHeight) {
+        if(bandHeight < 1)
+            throw new IllegalArgumentException("Band height must be at least 1, got " + bandHeight);
+        this.bandHeight = bandHeight;
+        this.maxBandHeight = Math.max(this.maxBandHeight, bandHeight);
+    }
+
+    /**
+     * Get the number of rows the band may grow to.
+     *
+     * @return Number of rows.
+     */
+    public int getMaxBandHeight() {
+        return this.maxBandHeight;
+    }
+
+    /**
+     * Set the number of rows the band may grow to.
+     * Memory use grows with the width of the grid times this number of rows.
+     *
+     * @param maxBandHeight Number of rows, at least the band height.
+     */
+    public void setMaxBandHeight(int maxBandHeight) {
+        if(maxBandHeight < this.bandHeight)
+            throw new IllegalArgumentException("Maximum band height must be at least " + this.bandHeight + ", got "
+                    + maxBandHeight);
+        this.maxBandHeight = maxBandHeight;
+    }
+
+    /**
+     * Set the token to check for cancellation.
+     * The rows that were written before the solver was cancelled are part of the solution.
+     *
+     * @param token The token, or null.
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Get the status of the solver.
+     *
+     * @return The status.
+     */
+    public SolverStatus getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Get the number of rows written to the sink.
+     *
+     * @return Number of rows.
+     */
+    public long getWrittenRows() {
+        return this.writtenRows;
+    }
+
+    /**
+     * Get the number of rows that had to be written before the rows below them were known.
+     * These rows are taken from a solution of the band. If it doesn't continue into a solution of the rows below, the
+     * solver can't go back, and ends with {@link SolverStatus#UNKNOWN}.
+     *
+     * @return Number of rows.
+     */
+    public long getGuessedRows() {
+        return this.guessedRows;
+    }
+
+    /**
+     * Get the largest number of rows that were in the band at once.
+     *
+     * @return Number of rows.
+     */
+    public int getPeakBandHeight() {
+        return this.peakBandHeight;
+    }
+
+    /**
+     * Get the number of search nodes that were visited.
+     *
+     * @return Number of search nodes.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Solve the puzzle, reading and writing it row by row.
+     *
+     * Only a band of rows below the last written row is kept in memory. The band is propagated with the last written
+     * row fixed above it, and with an open bottom border because the rows below aren't known yet. Propagation only
+     * removes rotations that can't be part of any solution, so tiles that end up fixed are final. The final rows at the
+     * top of the band are written right away, and the band then moves down and is filled up with new rows.
+     *
+     * Tiles that aren't fixed form regions. A region that doesn't reach the bottom of the band is surrounded by fixed
+     * tiles, so the rows below can't change it, and it's searched right away. The rows above the first region that
+     * does reach the bottom are final. The last band has a closed bottom, so all of its regions are searched.
+     *
+     * If no row is final, the band is doubled up to the maximum band height. If that doesn't help, the whole band is
+     * searched and the top half of its solution is written, see {@link #getGuessedRows()}.
+     *
+     * @return The status.
+     *
+     * @throws IOException If reading or writing a row failed.
+     */
+    public SolverStatus solve() throws IOException {
+        this.status = SolverStatus.RUNNING;
+        final int width = this.width;
+
+        // The bottom sides of the last written row, which are fixed above the band. Empty tiles above the grid never
+        // connect. Only the bottom sides constrain the band, and the rest of the row is already solved
+        byte[] boundary = new byte[width];
+        final int bottom = LoopTileMask.bit(LoopTileSide.BOTTOM);
+
+        // The rows that were read but not written yet
+        int band = this.bandHeight;
+        byte[] rows = new byte[band * width];
+        int rowCount = 0;
+        long readRows = 0;
+
+        while(this.writtenRows < this.height) {
+            // Stop if cancelled, the rows that were written so far are part of the solution
+            if(this.token != null && this.token.isCancelled())
+                return finish(this.token.isTimedOut() ? SolverStatus.TIMED_OUT : SolverStatus.CANCELLED);
+
+            // Fill the band with new rows
+            final int wanted = (int) Math.min(band, this.height - this.writtenRows);
+            if(rows.length < wanted * width)
+                rows = Arrays.copyOf(rows, wanted * width);
+            for(; rowCount < wanted; rowCount++, readRows++)
+                this.source.readRow(rows, rowCount * width);
+            final boolean last = readRows == this.height;
+            this.peakBandHeight = Math.max(this.peakBandHeight, rowCount);
+
+            // Propagate the band, below the last written row
+            LoopGrid grid = new LoopGrid(width, rowCount + 1);
+            for(int x = 0; x < width; x++) {
+                grid.setMask(x, boundary[x]);
+                grid.setSolved(x, true);
+            }
+            for(int i = 0; i < rowCount * width; i++)
+                grid.setMask(width + i, rows[i]);
+            Propagator propagator = new Propagator(grid);
+            propagator.setOpenBottom(!last);
+            propagator.enqueueAll();
+            if(!propagator.propagate())
+                return finish(unsolvable());
+
+            // Find the regions of tiles that aren't fixed. A region that doesn't reach the open bottom is surrounded by
+            // fixed tiles, so it can be solved now. The rows above the first region that does reach it are final
+            int[][] regions = RegionSearch.findRegions(propagator);
+            int fixedRows = rowCount;
+            for(int[] region : regions)
+                if(isOpen(region, rowCount, last))
+                    fixedRows = Math.min(fixedRows, region[0] / width - 1);
+
+            // Grow the band if no row is final, and search all regions of the band if it can't grow
+            if(fixedRows == 0 && band < this.maxBandHeight) {
+                band = Math.min(band * 2, this.maxBandHeight);
+                continue;
+            }
+            final boolean guess = fixedRows == 0;
+            if(guess) {
+                // Write the top half of the solution, keeping the rest in the band to be solved with the next rows
+                fixedRows = Math.max(rowCount / 2, 1);
+                this.guessedRows += fixedRows;
+                band = this.bandHeight;
+            }
+
+            // Solve the regions in the rows that are written
+            boolean[] visited = new boolean[grid.getTotal()];
+            for(int[] region : regions) {
+                if(region[0] / width > fixedRows || (!guess && isOpen(region, rowCount, last)))
+                    continue;
+                SolverStatus failed = searchRegion(propagator, region, visited);
+                if(failed != null)
+                    return finish(failed);
+            }
+
+            // Write the fixed rows, and keep the last one as the boundary of the next band
+            propagator.apply();
+            for(int y = 0; y < fixedRows; y++) {
+                for(int x = 0; x < width; x++)
+                    rows[y * width + x] = (byte) grid.getMask((y + 1) * width + x);
+                this.sink.writeRow(rows, y * width);
+            }
+            for(int x = 0; x < width; x++)
+                boundary[x] = (byte) (rows[(fixedRows - 1) * width + x] & bottom);
+
+            // Move the rows that weren't written to the top of the band
+            System.arraycopy(rows, fixedRows * width, rows, 0, (rowCount - fixedRows) * width);
+            rowCount -= fixedRows;
+            this.writtenRows += fixedRows;
+        }
+
+        return finish(SolverStatus.SOLVED);
+    }
+
+    /**
+     * Check whether a region of tiles reaches the open bottom of the band.
+     *
+     * @param region The positions of the tiles in the region, in grid order.
+     * @param rowCount Number of rows in the band, below the boundary row.
+     * @param last True if the band holds the last rows of the grid, its bottom is closed then.
+     *
+     * @return True if the region reaches the open bottom.
+     */
+    private boolean isOpen(int[] region, int rowCount, boolean last) {
+        return !last && region[region.length - 1] / this.width == rowCount;
+    }
+
+    /**
+     * Search a region of tiles that aren't fixed, and keep its solution in the propagator.
+     *
+     * @param propagator The propagator of the band.
+     * @param region The positions of the tiles in the region.
+     * @param visited Buffer with a cleared flag for every tile, see {@link Search}.
+     *
+     * @return Null if a solution was found, or the status to finish with otherwise.
+     */
+    private SolverStatus searchRegion(Propagator propagator, int[] region, boolean[] visited) {
+        Search search = new Search(propagator, region, this.token, visited);
+        boolean found = search.next();
+        this.nodes += search.getNodes();
+        if(found)
+            return null;
+        if(search.isCancelled())
+            return this.token.isTimedOut() ? SolverStatus.TIMED_OUT : SolverStatus.CANCELLED;
+        return unsolvable();
+    }
+
+    /**
+     * Get the status if a band has no solution.
+     *
+     * @return {@link SolverStatus#UNSOLVABLE}, or {@link SolverStatus#UNKNOWN} if rows were guessed before.
+     */
+    private SolverStatus unsolvable() {
+        return this.guessedRows > 0 ? SolverStatus.UNKNOWN : SolverStatus.UNSOLVABLE;
+    }
+
+    /**
+     * Set the final status.
+     *
+     * @param status The status.
+     *
+     * @return The status.
+     */
+    private SolverStatus finish(SolverStatus status) {
+        this.status = status;
+        return status;
+    }
+}
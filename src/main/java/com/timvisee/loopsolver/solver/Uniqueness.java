@@ -0,0 +1,13 @@
+package com.timvisee.loopsolver.solver;
+
+public enum Uniqueness {
+
+    /** The grid has exactly one solution. */
+    UNIQUE,
+
+    /** The grid has more than one solution. */
+    MULTIPLE,
+
+    /** The grid has no solution. */
+    UNSOLVABLE
+}
@@ -0,0 +1,269 @@
+package com.timvisee.loopsolver.solver;
+
+import com.timvisee.loopsolver.grid.LoopGrid;
+import com.timvisee.loopsolver.tile.LoopTileMask;
+
+public class UniquenessCheck implements SolverEngine {
+
+    /** The grid to check. */
+    private final LoopGrid grid;
+
+    /** Propagator holding the remaining rotations of each tile. */
+    private Propagator propagator;
+
+    /** The result, or null if the check hasn't run yet. */
+    private Uniqueness result;
+    /** The first solution that was found, or null if there is none. */
+    private Propagator firstSolution;
+    /** A second solution that differs from the first, or null if there is none. */
+    private Propagator secondSolution;
+
+    /** Number of search nodes visited in all regions. */
+    private long nodes = 0;
+    /** Number of search backtracks in all regions. */
+    private long backtracks = 0;
+    /** Maximum search depth in any region. */
+    private int maxDepth = 0;
+
+    /** Statistics of the last run, or null if the check hasn't run yet. */
+    private SolverStats stats;
+
+    /** Token to check for cancellation, or null. */
+    private CancellationToken token;
+    /** The status of the check. */
+    private volatile SolverStatus status = SolverStatus.RUNNING;
+
+    /**
+     * Constructor.
+     *
+     * @param grid The grid to check.
+     */
+    public UniquenessCheck(LoopGrid grid) {
+        this.grid = grid;
+    }
+
+    /**
+     * Get the grid.
+     *
+     * @return The grid.
+     */
+    @Override
+    public LoopGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Get the number of search nodes that were visited.
+     *
+     * @return Number of search nodes.
+     */
+    @Override
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Get the status of the check.
+     * The grid is solved if it has a solution, whether it's unique or not.
+     *
+     * @return The status, {@link SolverStatus#RUNNING} if the check hasn't finished.
+     */
+    @Override
+    public SolverStatus getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Get the statistics of the last run.
+     * The search includes looking for a second solution.
+     *
+     * @return The statistics, or null if the check hasn't run yet.
+     */
+    @Override
+    public SolverStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Get the result of the check.
+     *
+     * @return The result, or null if the check hasn't finished or was cancelled.
+     */
+    public Uniqueness getResult() {
+        return this.result;
+    }
+
+    /**
+     * Get the propagator holding the remaining rotations of each tile.
+     *
+     * @return The propagator, or null if the check hasn't run yet.
+     */
+    public Propagator getPropagator() {
+        return this.propagator;
+    }
+
+    /**
+     * Get the first solution that was found.
+     *
+     * @return A solved copy of the grid, or null if the grid has no solution.
+     */
+    public LoopGrid getFirstSolution() {
+        return this.firstSolution != null ? createSolvedGrid(this.firstSolution) : null;
+    }
+
+    /**
+     * Get a second solution, that differs from the first solution.
+     *
+     * @return A solved copy of the grid, or null if the grid doesn't have multiple solutions.
+     */
+    public LoopGrid getSecondSolution() {
+        return this.secondSolution != null ? createSolvedGrid(this.secondSolution) : null;
+    }
+
+    /**
+     * Check whether the grid has a unique solution.
+     * The grid is solved like the {@link Solver} does, propagating first, and searching the regions of tiles that
+     * couldn't be solved one by one. The search of each region continues after its first solution. Regions don't
+     * constrain each other, so the grid has multiple solutions if and only if a region has, and the check stops at the
+     * first region with a second solution. For a unique grid, the extra cost is proving that the search tree of every
+     * region has no other solution.
+     *
+     * The grid is left in the first solution.
+     */
+    @Override
+    public void run() {
+        // Start propagating
+        this.status = SolverStatus.RUNNING;
+        this.result = null;
+        this.nodes = 0;
+        this.backtracks = 0;
+        this.maxDepth = 0;
+        this.grid.getObserver().onPhaseChanged(SolverPhase.PROPAGATION);
+        long start = System.nanoTime();
+
+        // Reduce the rotations of all tiles like the solver does. Tiles that were solved before are not pinned, as a
+        // solved grid has the same solutions as the puzzle it came from
+        this.propagator = new Propagator(this.grid, false);
+        final int initiallyFixed = this.propagator.countFixed();
+        this.propagator.enqueueAll();
+        final boolean consistent = this.propagator.propagate();
+        final long propagatedTiles = this.propagator.getRevisions();
+        final int fixedTiles = consistent ? this.propagator.countFixed() - initiallyFixed : 0;
+        this.propagator.clearTrail();
+        long propagated = System.nanoTime();
+        if(consistent)
+            this.result = searchRegions();
+        else
+            this.result = Uniqueness.UNSOLVABLE;
+        this.propagator.apply();
+        long searched = System.nanoTime();
+
+        // Keep the statistics of this run
+        this.stats = new SolverStats(this.result == Uniqueness.UNIQUE || this.result == Uniqueness.MULTIPLE,
+                propagatedTiles, fixedTiles, this.nodes, this.backtracks, this.maxDepth,
+                propagated - start, searched - propagated, 0);
+        SolverMetrics.getInstance().record(this.stats);
+
+        // Reset the working and checking tile
+        this.grid.setWorkingTile(null);
+        this.grid.setCheckingTile(null);
+
+        // The check has finished
+        if(this.result == null)
+            this.status = this.token != null && this.token.isTimedOut() ? SolverStatus.TIMED_OUT : SolverStatus.CANCELLED;
+        else
+            this.status = this.result == Uniqueness.UNSOLVABLE ? SolverStatus.UNSOLVABLE : SolverStatus.SOLVED;
+        this.grid.getObserver().onPhaseChanged(SolverPhase.FINISHED);
+    }
+
+    /**
+     * Search the solutions of every region, until a region has a second solution.
+     * When this returns, the propagator holds the first solution if there is one. If the check is cancelled, the
+     * propagator holds the first solution of the regions that were searched.
+     *
+     * @return The result, or null if the check was cancelled.
+     */
+    private Uniqueness searchRegions() {
+        this.grid.getObserver().onPhaseChanged(SolverPhase.SEARCH);
+
+        // Keep the first solution of every region in a copy of the propagated domains
+        int[][] regions = RegionSearch.findRegions(this.propagator);
+        Propagator first = new Propagator(this.propagator);
+        Propagator second = null;
+        int secondRegion = -1;
+
+        boolean[] visited = new boolean[this.grid.getTotal()];
+        for(int i = 0; i < regions.length; i++) {
+            int[] region = regions[i];
+
+            // Find the first solution of the region, the grid has no solution if the region hasn't
+            int mark = this.propagator.getTrailMark();
+            Search search = new Search(this.propagator, region, this.token, visited);
+            boolean found = search.next();
+            if(!found) {
+                addSearch(search);
+                if(!search.isCancelled())
+                    return Uniqueness.UNSOLVABLE;
+                this.propagator.undo(mark);
+                return null;
+            }
+            first.load(this.propagator, region);
+
+            // Look for a second solution, until a region with one is found. The search must still find the first
+            // solution of the remaining regions, to complete both solutions
+            if(second == null && search.next()) {
+                second = new Propagator(this.propagator);
+                secondRegion = i;
+            }
+            addSearch(search);
+            if(search.isCancelled()) {
+                this.propagator.load(first, region);
+                return null;
+            }
+
+            // Restore the first solution, the search either moved to the second solution or undid all its changes
+            this.propagator.load(first, region);
+        }
+
+        // Complete the second solution with the first solution of the regions that were searched after it
+        this.firstSolution = first;
+        if(second == null)
+            return Uniqueness.UNIQUE;
+        for(int i = secondRegion + 1; i < regions.length; i++)
+            second.load(first, regions[i]);
+        this.secondSolution = second;
+        return Uniqueness.MULTIPLE;
+    }
+
+    /**
+     * Add the search nodes, backtracks and depth of the search of a region to the statistics of the check.
+     *
+     * @param search The search.
+     */
+    private void addSearch(Search search) {
+        this.nodes += search.getNodes();
+        this.backtracks += search.getBacktracks();
+        this.maxDepth = Math.max(this.maxDepth, search.getMaxDepth());
+    }
+
+    /**
+     * Create a copy of the grid, with every tile rotated into a solution.
+     *
+     * @param solution The propagator holding the solution, every tile must be fixed.
+     *
+     * @return The solved grid.
+     */
+    private LoopGrid createSolvedGrid(Propagator solution) {
+        LoopGrid solved = new LoopGrid(this.grid.getWidth(), this.grid.getHeight());
+        for(int i = 0; i < solved.getTotal(); i++) {
+            solved.setMask(i, LoopTileMask.rotate(solution.getBaseMask(i), solution.getRotation(i)));
+            solved.setSolved(i, true);
+        }
+        return solved;
+    }
+}
@@ -0,0 +1,849 @@
+package com.timvisee.loopsolver.solver.sat;
+
+import com.timvisee.loopsolver.solver.CancellationToken;
+
+import java.util.Arrays;
+
+public class CdclSolver {
+
+    /** Value of a literal that is true. */
+    private static final byte TRUE = 1;
+    /** Value of a literal that is false. */
+    private static final byte FALSE = -1;
+    /** Value of a literal that isn't assigned. */
+    private static final byte UNASSIGNED = 0;
+
+    /** Reason of a literal that was decided, or assigned at level 0 without a clause. */
+    private static final int NO_REASON = -1;
+
+    /** Number of header words in front of the literals of a clause in the arena. */
+    private static final int CLAUSE_HEADER = 2;
+
+    /** Initial capacity of arrays that grow when needed. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Number of conflicts in one unit of the Luby restart sequence. */
+    private static final int RESTART_UNIT = 100;
+
+    /** Factor the variable activity increment grows with after every conflict, the inverse of the decay. */
+    private static final double ACTIVITY_GROWTH = 1 / 0.95;
+    /** Activity above which all activities are scaled down. */
+    private static final double ACTIVITY_LIMIT = 1e100;
+
+    /** Minimum number of learned clauses to keep before the learned clauses are reduced. */
+    private static final int LEARNED_MIN = 10000;
+    /** Factor the maximum number of learned clauses grows with after every reduction. */
+    private static final double LEARNED_GROWTH = 1.1;
+    /** Learned clauses with at most this many distinct decision levels are never removed. */
+    private static final int LEARNED_KEEP_LBD = 2;
+
+    /** Number of conflicts between two checks of the cancellation token, minus one. */
+    private static final int CANCEL_CHECK_MASK = 0xFF;
+
+    /** Number of variables. */
+    private int variableCount = 0;
+
+    /**
+     * Clause arena. Every clause is stored as its size, its literal block distance (0 for original clauses), and its
+     * literals. A clause is referenced by the index of its size. The first two literals are watched, and the literal
+     * implied by a clause is always its first literal.
+     */
+    private int[] arena = new int[INITIAL_CAPACITY];
+    /** Number of used words in the arena. */
+    private int arenaSize = 0;
+    /** Number of original clauses. */
+    private int clauseCount = 0;
+
+    /** References of the learned clauses. */
+    private int[] learned = new int[INITIAL_CAPACITY];
+    /** Number of learned clauses. */
+    private int learnedCount = 0;
+    /** Number of learned clauses above which the learned clauses are reduced at the next restart. */
+    private int learnedMax = LEARNED_MIN;
+
+    /** For each literal, the references of the clauses watching it. */
+    private int[][] watches = new int[INITIAL_CAPACITY * 2][];
+    /** For each literal, the number of clauses watching it. */
+    private int[] watchCounts = new int[INITIAL_CAPACITY * 2];
+
+    /** For each literal, its value. */
+    private byte[] values = new byte[INITIAL_CAPACITY * 2];
+    /** For each variable, the decision level it was assigned at. */
+    private int[] levels = new int[INITIAL_CAPACITY];
+    /** For each variable, the clause that implied it, or {@link #NO_REASON}. */
+    private int[] reasons = new int[INITIAL_CAPACITY];
+    /** For each variable, the value it had when it was last assigned. */
+    private boolean[] phases = new boolean[INITIAL_CAPACITY];
+    /** For each variable, its activity. */
+    private double[] activity = new double[INITIAL_CAPACITY];
+    /** For each variable, whether it is marked while analyzing a conflict. */
+    private boolean[] seen = new boolean[INITIAL_CAPACITY];
+
+    /** The activity added to a variable that takes part in a conflict. */
+    private double activityIncrement = 1;
+
+    /** Heap of variables, ordered by activity. */
+    private int[] heap = new int[INITIAL_CAPACITY];
+    /** For each variable, its index in the heap, or -1 if it isn't in the heap. */
+    private int[] heapIndex = new int[INITIAL_CAPACITY];
+    /** Number of variables in the heap. */
+    private int heapSize = 0;
+
+    /** Literals that were assigned, in assignment order. */
+    private int[] trail = new int[INITIAL_CAPACITY];
+    /** Number of literals on the trail. */
+    private int trailSize = 0;
+    /** Index of the next literal on the trail to propagate. */
+    private int trailHead = 0;
+    /** For each decision level, the size of the trail before its decision. */
+    private int[] trailLimits = new int[INITIAL_CAPACITY];
+    /** The current decision level. */
+    private int level = 0;
+
+    /** Buffer for the learned clause. */
+    private int[] buffer = new int[INITIAL_CAPACITY];
+
+    /** False if the clauses are known to be unsatisfiable. */
+    private boolean ok = true;
+
+    /** Number of decisions. */
+    private long decisions = 0;
+    /** Number of conflicts. */
+    private long conflicts = 0;
+    /** Number of literals assigned by unit propagation. */
+    private long propagations = 0;
+    /** Number of restarts. */
+    private long restarts = 0;
+
+    /** Token to check for cancellation, or null. */
+    private CancellationToken token;
+
+    /**
+     * Get the positive literal of a variable.
+     *
+     * @param variable The variable.
+     *
+     * @return The literal.
+     */
+    public static int positive(int variable) {
+        return variable << 1;
+    }
+
+    /**
+     * Get the negative literal of a variable.
+     *
+     * @param variable The variable.
+     *
+     * @return The literal.
+     */
+    public static int negative(int variable) {
+        return (variable << 1) | 1;
+    }
+
+    /**
+     * Create a new variable.
+     *
+     * @return The variable.
+     */
+    public int newVariable() {
+        final int variable = this.variableCount++;
+
+        // Grow the variable state
+        if(variable == this.levels.length) {
+            final int capacity = this.levels.length * 2;
+            this.levels = Arrays.copyOf(this.levels, capacity);
+            this.reasons = Arrays.copyOf(this.reasons, capacity);
+            this.phases = Arrays.copyOf(this.phases, capacity);
+            this.activity = Arrays.copyOf(this.activity, capacity);
+            this.seen = Arrays.copyOf(this.seen, capacity);
+            this.heap = Arrays.copyOf(this.heap, capacity);
+            this.heapIndex = Arrays.copyOf(this.heapIndex, capacity);
+            this.trail = Arrays.copyOf(this.trail, capacity);
+            this.trailLimits = Arrays.copyOf(this.trailLimits, capacity);
+            this.buffer = Arrays.copyOf(this.buffer, capacity);
+            this.values = Arrays.copyOf(this.values, capacity * 2);
+            this.watches = Arrays.copyOf(this.watches, capacity * 2);
+            this.watchCounts = Arrays.copyOf(this.watchCounts, capacity * 2);
+        }
+
+        // Initialize the variable, and make it available for decisions
+        this.reasons[variable] = NO_REASON;
+        this.heapIndex[variable] = -1;
+        heapInsert(variable);
+        return variable;
+    }
+
+    /**
+     * Set the value a variable is first tried with when deciding on it.
+     * After that, the solver tries the value the variable had when it was last assigned.
+     *
+     * @param variable The variable.
+     * @param value The value to try first.
+     */
+    public void setPhase(int variable, boolean value) {
+        this.phases[variable] = value;
+    }
+
+    /**
+     * Get the number of variables.
+     *
+     * @return Number of variables.
+     */
+    public int getVariableCount() {
+        return this.variableCount;
+    }
+
+    /**
+     * Get the number of original clauses.
+     * Clauses that were satisfied or unit when they were added aren't counted.
+     *
+     * @return Number of clauses.
+     */
+    public int getClauseCount() {
+        return this.clauseCount;
+    }
+
+    /**
+     * Get the number of decisions.
+     *
+     * @return Number of decisions.
+     */
+    public long getDecisions() {
+        return this.decisions;
+    }
+
+    /**
+     * Get the number of conflicts.
+     *
+     * @return Number of conflicts.
+     */
+    public long getConflicts() {
+        return this.conflicts;
+    }
+
+    /**
+     * Get the number of literals assigned by unit propagation.
+     *
+     * @return Number of propagations.
+     */
+    public long getPropagations() {
+        return this.propagations;
+    }
+
+    /**
+     * Get the number of restarts.
+     *
+     * @return Number of restarts.
+     */
+    public long getRestarts() {
+        return this.restarts;
+    }
+
+    /**
+     * Add a clause.
+     * Clauses can only be added before solving.
+     *
+     * @param literals The literals of the clause.
+     *
+     * @return False if the clauses became unsatisfiable, true otherwise.
+     */
+    public boolean addClause(int... literals) {
+        if(!this.ok)
+            return false;
+
+        // Sort the literals, and drop duplicate and false literals
+        int[] clause = literals.clone();
+        Arrays.sort(clause);
+        int size = 0;
+        for(int i = 0; i < clause.length; i++) {
+            int literal = clause[i];
+            if(this.values[literal] == TRUE || (size > 0 && clause[size - 1] == (literal ^ 1)))
+                return true;
+            if(this.values[literal] == FALSE || (size > 0 && clause[size - 1] == literal))
+                continue;
+            clause[size++] = literal;
+        }
+
+        // An empty clause can't be satisfied, a unit clause is assigned right away
+        if(size == 0)
+            return this.ok = false;
+        if(size == 1) {
+            assign(clause[0], NO_REASON);
+            return this.ok = propagate() == NO_REASON;
+        }
+
+        // Store and watch the clause
+        this.clauseCount++;
+        attach(allocate(clause, size, 0));
+        return true;
+    }
+
+    /**
+     * Get the value of a variable in the solution.
+     *
+     * @param variable The variable.
+     *
+     * @return The value, false if the variable isn't assigned.
+     */
+    public boolean getValue(int variable) {
+        return this.values[positive(variable)] == TRUE;
+    }
+
+    /**
+     * Set the token to check for cancellation while solving.
+     *
+     * @param token The token, or null.
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Solve the clauses.
+     *
+     * @return {@link SatResult#SATISFIABLE} with all variables assigned, {@link SatResult#UNSATISFIABLE}, or
+     * {@link SatResult#UNKNOWN} if the solver was cancelled.
+     */
+    public SatResult solve() {
+        if(!this.ok)
+            return SatResult.UNSATISFIABLE;
+
+        for(int restart = 1; ; restart++) {
+            SatResult result = search((long) luby(restart) * RESTART_UNIT);
+            if(result != SatResult.UNKNOWN || isCancelled())
+                return result;
+
+            // Restart from level 0, and clean up the clauses now that nothing is decided
+            this.restarts++;
+            backtrack(0);
+            if(this.learnedCount > this.learnedMax) {
+                reduceLearned();
+                this.learnedMax = (int) (this.learnedMax * LEARNED_GROWTH);
+            }
+        }
+    }
+
+    /**
+     * Check whether the solver is cancelled.
+     *
+     * @return True if cancelled, false if not.
+     */
+    private boolean isCancelled() {
+        return this.token != null && this.token.isCancelled();
+    }
+
+    /**
+     * Search until a solution is found, the clauses are proven unsatisfiable, or the conflict budget runs out.
+     *
+     * @param budget Number of conflicts after which to give up.
+     *
+     * @return The result, {@link SatResult#UNKNOWN} if the budget ran out or if the solver was cancelled.
+     */
+    private SatResult search(long budget) {
+        long conflicts = 0;
+        while(true) {
+            int conflict = propagate();
+            if(conflict != NO_REASON) {
+                // A conflict without decisions can't be resolved
+                this.conflicts++;
+                conflicts++;
+                if(this.level == 0)
+                    return SatResult.UNSATISFIABLE;
+
+                // Learn a clause from the conflict, and jump back to where it implies a literal
+                int size = analyze(conflict);
+                int backtrackLevel = size == 1 ? 0 : this.levels[this.buffer[1] >>> 1];
+                backtrack(backtrackLevel);
+                if(size == 1)
+                    assign(this.buffer[0], NO_REASON);
+                else {
+                    int clause = allocate(this.buffer, size, literalBlockDistance(size));
+                    attach(clause);
+                    addLearned(clause);
+                    assign(this.buffer[0], clause);
+                }
+
+                // Decay the activities by growing the increment
+                this.activityIncrement *= ACTIVITY_GROWTH;
+
+                // Stop if the solver is cancelled
+                if((this.conflicts & CANCEL_CHECK_MASK) == 0 && isCancelled())
+                    return SatResult.UNKNOWN;
+                continue;
+            }
+
+            // Give up when the budget runs out
+            if(conflicts >= budget)
+                return SatResult.UNKNOWN;
+
+            // Decide on the most active variable that isn't assigned yet
+            int variable = -1;
+            while(this.heapSize > 0) {
+                int candidate = heapRemoveMax();
+                if(this.values[positive(candidate)] == UNASSIGNED) {
+                    variable = candidate;
+                    break;
+                }
+            }
+            if(variable < 0)
+                return SatResult.SATISFIABLE;
+            this.decisions++;
+            this.trailLimits[this.level++] = this.trailSize;
+            assign(this.phases[variable] ? positive(variable) : negative(variable), NO_REASON);
+        }
+    }
+
+    /**
+     * Propagate all assigned literals through the clauses watching their negation.
+     *
+     * @return The reference of a conflicting clause, or {@link #NO_REASON} if there is no conflict.
+     */
+    private int propagate() {
+        while(this.trailHead < this.trailSize) {
+            final int falseLiteral = this.trail[this.trailHead++] ^ 1;
+            final int[] watchers = this.watches[falseLiteral];
+            final int count = this.watchCounts[falseLiteral];
+
+            int kept = 0;
+            for(int i = 0; i < count; i++) {
+                final int clause = watchers[i];
+                final int base = clause + CLAUSE_HEADER;
+
+                // Make sure the false literal is the second watch
+                if(this.arena[base] == falseLiteral) {
+                    this.arena[base] = this.arena[base + 1];
+                    this.arena[base + 1] = falseLiteral;
+                }
+
+                // The clause is satisfied if the other watch is true
+                final int first = this.arena[base];
+                if(this.values[first] == TRUE) {
+                    watchers[kept++] = clause;
+                    continue;
+                }
+
+                // Look for another literal to watch
+                final int end = base + this.arena[clause];
+                boolean moved = false;
+                for(int k = base + 2; k < end; k++) {
+                    int literal = this.arena[k];
+                    if(this.values[literal] != FALSE) {
+                        this.arena[base + 1] = literal;
+                        this.arena[k] = falseLiteral;
+                        watch(literal, clause);
+                        moved = true;
+                        break;
+                    }
+                }
+                if(moved)
+                    continue;
+
+                // The clause is unit or conflicting, and keeps its watch
+                watchers[kept++] = clause;
+                if(this.values[first] == FALSE) {
+                    // Keep the remaining watchers and report the conflict
+                    for(i++; i < count; i++)
+                        watchers[kept++] = watchers[i];
+                    this.watchCounts[falseLiteral] = kept;
+                    this.trailHead = this.trailSize;
+                    return clause;
+                }
+                assign(first, clause);
+                this.propagations++;
+            }
+            this.watchCounts[falseLiteral] = kept;
+        }
+
+        return NO_REASON;
+    }
+
+    /**
+     * Analyze a conflict, and learn a clause at the first unique implication point.
+     * The learned clause is stored in the buffer. Its first literal is the one it implies, and its second literal has
+     * the highest decision level of the others.
+     *
+     * @param conflict The conflicting clause.
+     *
+     * @return The size of the learned clause.
+     */
+    private int analyze(int conflict) {
+        int size = 1;
+        int open = 0;
+        int literal = -1;
+        int index = this.trailSize - 1;
+        int clause = conflict;
+
+        do {
+            // Mark the literals of the clause, skipping the implied literal of reasons
+            final int base = clause + CLAUSE_HEADER;
+            final int end = base + this.arena[clause];
+            for(int k = literal < 0 ? base : base + 1; k < end; k++) {
+                int other = this.arena[k];
+                int variable = other >>> 1;
+                if(this.seen[variable] || this.levels[variable] == 0)
+                    continue;
+                this.seen[variable] = true;
+                bump(variable);
+                if(this.levels[variable] >= this.level)
+                    open++;
+                else
+                    this.buffer[size++] = other;
+            }
+
+            // Continue with the last marked literal on the trail
+            while(!this.seen[this.trail[index] >>> 1])
+                index--;
+            literal = this.trail[index--];
+            clause = this.reasons[literal >>> 1];
+            this.seen[literal >>> 1] = false;
+            open--;
+        } while(open > 0);
+        this.buffer[0] = literal ^ 1;
+
+        // Flag literals that are implied by the other literals of the clause, while they are all still marked
+        for(int i = 1; i < size; i++)
+            if(isRedundant(this.buffer[i]))
+                this.buffer[i] = ~this.buffer[i];
+
+        // Drop the flagged literals, and clear the marks
+        int kept = 1;
+        for(int i = 1; i < size; i++) {
+            int other = this.buffer[i];
+            this.seen[(other < 0 ? ~other : other) >>> 1] = false;
+            if(other >= 0)
+                this.buffer[kept++] = other;
+        }
+        size = kept;
+
+        // Move the literal with the highest level to the second position
+        int highest = 1;
+        for(int i = 2; i < size; i++)
+            if(this.levels[this.buffer[i] >>> 1] > this.levels[this.buffer[highest] >>> 1])
+                highest = i;
+        if(size > 1) {
+            int swap = this.buffer[1];
+            this.buffer[1] = this.buffer[highest];
+            this.buffer[highest] = swap;
+        }
+
+        return size;
+    }
+
+    /**
+     * Check whether a literal of the learned clause is implied by the other literals, because all literals of its reason
+     * are in the clause or assigned at level 0.
+     *
+     * @param literal The literal.
+     *
+     * @return True if the literal can be dropped.
+     */
+    private boolean isRedundant(int literal) {
+        int reason = this.reasons[literal >>> 1];
+        if(reason == NO_REASON)
+            return false;
+
+        final int base = reason + CLAUSE_HEADER;
+        final int end = base + this.arena[reason];
+        for(int k = base + 1; k < end; k++) {
+            int variable = this.arena[k] >>> 1;
+            if(!this.seen[variable] && this.levels[variable] > 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Count the distinct decision levels of the literals in the learned clause.
+     *
+     * @param size The size of the learned clause.
+     *
+     * @return The literal block distance.
+     */
+    private int literalBlockDistance(int size) {
+        int distance = 0;
+        for(int i = 0; i < size; i++) {
+            int level = this.levels[this.buffer[i] >>> 1];
+            boolean counted = false;
+            for(int j = 0; j < i && !counted; j++)
+                counted = this.levels[this.buffer[j] >>> 1] == level;
+            if(!counted)
+                distance++;
+        }
+        return distance;
+    }
+
+    /**
+     * Assign a literal.
+     *
+     * @param literal The literal to make true.
+     * @param reason The clause that implies it, or {@link #NO_REASON}.
+     */
+    private void assign(int literal, int reason) {
+        final int variable = literal >>> 1;
+        this.values[literal] = TRUE;
+        this.values[literal ^ 1] = FALSE;
+        this.levels[variable] = this.level;
+        this.reasons[variable] = reason;
+        this.trail[this.trailSize++] = literal;
+    }
+
+    /**
+     * Undo all assignments above a decision level.
+     *
+     * @param level The decision level to go back to.
+     */
+    private void backtrack(int level) {
+        if(this.level <= level)
+            return;
+
+        final int limit = this.trailLimits[level];
+        for(int i = this.trailSize - 1; i >= limit; i--) {
+            int literal = this.trail[i];
+            int variable = literal >>> 1;
+            this.values[literal] = UNASSIGNED;
+            this.values[literal ^ 1] = UNASSIGNED;
+            this.reasons[variable] = NO_REASON;
+            this.phases[variable] = (literal & 1) == 0;
+            if(this.heapIndex[variable] < 0)
+                heapInsert(variable);
+        }
+        this.trailSize = limit;
+        this.trailHead = limit;
+        this.level = level;
+    }
+
+    /**
+     * Store a clause in the arena.
+     *
+     * @param literals Buffer holding the literals.
+     * @param size Number of literals in the buffer.
+     * @param distance The literal block distance, 0 for original clauses.
+     *
+     * @return The clause reference.
+     */
+    private int allocate(int[] literals, int size, int distance) {
+        final int clause = this.arenaSize;
+        if(clause + CLAUSE_HEADER + size > this.arena.length)
+            this.arena = Arrays.copyOf(this.arena, Math.max(this.arena.length * 2, clause + CLAUSE_HEADER + size));
+        this.arena[clause] = size;
+        this.arena[clause + 1] = distance;
+        System.arraycopy(literals, 0, this.arena, clause + CLAUSE_HEADER, size);
+        this.arenaSize = clause + CLAUSE_HEADER + size;
+        return clause;
+    }
+
+    /**
+     * Watch the first two literals of a clause.
+     *
+     * @param clause The clause reference.
+     */
+    private void attach(int clause) {
+        watch(this.arena[clause + CLAUSE_HEADER], clause);
+        watch(this.arena[clause + CLAUSE_HEADER + 1], clause);
+    }
+
+    /**
+     * Add a clause to the watchers of a literal.
+     *
+     * @param literal The literal.
+     * @param clause The clause reference.
+     */
+    private void watch(int literal, int clause) {
+        int[] watchers = this.watches[literal];
+        final int count = this.watchCounts[literal];
+        if(watchers == null)
+            watchers = this.watches[literal] = new int[4];
+        else if(count == watchers.length)
+            watchers = this.watches[literal] = Arrays.copyOf(watchers, count * 2);
+        watchers[count] = clause;
+        this.watchCounts[literal] = count + 1;
+    }
+
+    /**
+     * Remember a learned clause.
+     *
+     * @param clause The clause reference.
+     */
+    private void addLearned(int clause) {
+        if(this.learnedCount == this.learned.length)
+            this.learned = Arrays.copyOf(this.learned, this.learnedCount * 2);
+        this.learned[this.learnedCount++] = clause;
+    }
+
+    /**
+     * Remove half of the learned clauses, keeping those with the lowest literal block distance.
+     * At the same time, clauses satisfied at level 0 are removed and literals false at level 0 are dropped.
+     * This must be called at level 0, after propagating without conflicts.
+     */
+    private void reduceLearned() {
+        // Determine the literal block distance above which learned clauses are removed
+        int[] distances = new int[this.learnedCount];
+        for(int i = 0; i < this.learnedCount; i++)
+            distances[i] = this.arena[this.learned[i] + 1];
+        Arrays.sort(distances);
+        final int limit = Math.max(distances[this.learnedCount / 2], LEARNED_KEEP_LBD);
+
+        // Mark the learned clauses to remove by clearing their distance
+        int removable = this.learnedCount - this.learnedCount / 2;
+        for(int i = 0; i < this.learnedCount && removable > 0; i++) {
+            int clause = this.learned[i];
+            if(this.arena[clause + 1] >= limit && this.arena[clause + 1] > LEARNED_KEEP_LBD) {
+                this.arena[clause + 1] = -1;
+                removable--;
+            }
+        }
+
+        // Compact the arena, and simplify the clauses that remain
+        int[] compacted = new int[Math.max(this.arenaSize, INITIAL_CAPACITY)];
+        int size = 0;
+        int learnedCount = 0;
+        for(int clause = 0; clause < this.arenaSize; ) {
+            final int length = this.arena[clause];
+            final int distance = this.arena[clause + 1];
+            final int next = clause + CLAUSE_HEADER + length;
+
+            // Keep the clause if it isn't removed and isn't satisfied
+            boolean keep = distance >= 0;
+            int kept = 0;
+            for(int k = clause + CLAUSE_HEADER; k < next && keep; k++) {
+                int literal = this.arena[k];
+                if(this.values[literal] == TRUE)
+                    keep = false;
+                else if(this.values[literal] == UNASSIGNED)
+                    compacted[size + CLAUSE_HEADER + kept++] = literal;
+            }
+            if(keep) {
+                compacted[size] = kept;
+                compacted[size + 1] = distance;
+                if(distance > 0)
+                    this.learned[learnedCount++] = size;
+                size += CLAUSE_HEADER + kept;
+            }
+            clause = next;
+        }
+        this.arena = compacted;
+        this.arenaSize = size;
+        this.learnedCount = learnedCount;
+
+        // Literals at level 0 don't need their reasons anymore
+        for(int i = 0; i < this.trailSize; i++)
+            this.reasons[this.trail[i] >>> 1] = NO_REASON;
+
+        // Rebuild the watches
+        Arrays.fill(this.watchCounts, 0);
+        for(int clause = 0; clause < this.arenaSize; clause += CLAUSE_HEADER + this.arena[clause])
+            attach(clause);
+    }
+
+    /**
+     * Bump the activity of a variable.
+     *
+     * @param variable The variable.
+     */
+    private void bump(int variable) {
+        if((this.activity[variable] += this.activityIncrement) > ACTIVITY_LIMIT) {
+            // Scale all activities down, the order stays the same
+            for(int i = 0; i < this.variableCount; i++)
+                this.activity[i] /= ACTIVITY_LIMIT;
+            this.activityIncrement /= ACTIVITY_LIMIT;
+        }
+        if(this.heapIndex[variable] >= 0)
+            heapUp(this.heapIndex[variable]);
+    }
+
+    /**
+     * Insert a variable into the heap.
+     *
+     * @param variable The variable.
+     */
+    private void heapInsert(int variable) {
+        this.heap[this.heapSize] = variable;
+        this.heapIndex[variable] = this.heapSize;
+        heapUp(this.heapSize++);
+    }
+
+    /**
+     * Remove the most active variable from the heap.
+     *
+     * @return The variable.
+     */
+    private int heapRemoveMax() {
+        final int max = this.heap[0];
+        final int last = this.heap[--this.heapSize];
+        this.heapIndex[max] = -1;
+        if(this.heapSize > 0) {
+            this.heap[0] = last;
+            this.heapIndex[last] = 0;
+            heapDown(0);
+        }
+        return max;
+    }
+
+    /**
+     * Move a heap entry up until its parent is at least as active.
+     *
+     * @param index The heap index.
+     */
+    private void heapUp(int index) {
+        final int variable = this.heap[index];
+        final double value = this.activity[variable];
+        while(index > 0) {
+            int parent = (index - 1) >>> 1;
+            if(this.activity[this.heap[parent]] >= value)
+                break;
+            this.heap[index] = this.heap[parent];
+            this.heapIndex[this.heap[index]] = index;
+            index = parent;
+        }
+        this.heap[index] = variable;
+        this.heapIndex[variable] = index;
+    }
+
+    /**
+     * Move a heap entry down until its children are at most as active.
+     *
+     * @param index The heap index.
+     */
+    private void heapDown(int index) {
+        final int variable = this.heap[index];
+        final double value = this.activity[variable];
+        while(true) {
+            int child = 2 * index + 1;
+            if(child >= this.heapSize)
+                break;
+            if(child + 1 < this.heapSize && this.activity[this.heap[child + 1]] > this.activity[this.heap[child]])
+                child++;
+            if(this.activity[this.heap[child]] <= value)
+                break;
+            this.heap[index] = this.heap[child];
+            this.heapIndex[this.heap[index]] = index;
+            index = child;
+        }
+        this.heap[index] = variable;
+        this.heapIndex[variable] = index;
+    }
+
+    /**
+     * Get an element of the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, ...
+     *
+     * @param index The index, starting at 1.
+     *
+     * @return The element.
+     */
+    private static int luby(int index) {
+        // Find the finite subsequence that contains the index, and the index in it
+        int x = index - 1;
+        int size = 1;
+        int sequence = 0;
+        while(size < x + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        while(size - 1 != x) {
+            size = (size - 1) >>> 1;
+            sequence--;
+            x = x % size;
+        }
+        return 1 << sequence;
+    }
+}
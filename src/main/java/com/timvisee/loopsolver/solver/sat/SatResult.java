@@ -0,0 +1,7 @@
+package com.timvisee.loopsolver.solver.sat;
+
+public enum SatResult {
+    SATISFIABLE,
+    UNSATISFIABLE,
+    UNKNOWN
+}
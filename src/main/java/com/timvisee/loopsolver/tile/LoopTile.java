@@ -1,13 +1,10 @@
 package com.timvisee.loopsolver.tile;
 
-import com.timvisee.loopsolver.App;
 import com.timvisee.loopsolver.grid.LoopGrid;
-import com.timvisee.loopsolver.util.ArrayUtils;
 import com.timvisee.loopsolver.util.MathUtils;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 public class LoopTile {
 
@@ -21,71 +18,28 @@ public class LoopTile {
     /** Number to rotate tile half. */
     public static final int TILE_ROTATE_HALF = 2;
 
-    /** Defines the tile sides, true if a side can connect, false if not. */
-    private boolean[] sides = new boolean[TILE_SIDES];
-
-    /** True if this tile is solved, false if not. */
-    private boolean solved = false;
-
     /** The x and y coordinate of the tile in the grid. */
-    private int x, y;
-    /** The loop grid instance. */
-    private LoopGrid grid;
-
-    /**
-     * Constructor.
-     *
-     * This will create an empty tile.
-     */
-    public LoopTile(LoopGrid grid, int x, int y) {
-        this(grid, x, y, false, false, false, false);
-    }
+    private final int x, y;
+    /** The position of the tile in the grid. */
+    private final int position;
+    /** The loop grid instance that holds the state of this tile. */
+    private final LoopGrid grid;
 
     /**
      * Constructor.
      *
-
-     * @param top True if this side is connectible, false if not.
-     * @param right True if this side is connectible, false if not.
-     * @param bottom True if this side is connectible, false if not.
-     * @param left True if this side is connectible, false if not.
-     */
-    public LoopTile(LoopGrid grid, int x, int y, boolean top, boolean right, boolean bottom, boolean left) {
-        this(grid, x, y, new boolean[]{top, right, bottom, left});
-    }
-
-    /**
-     * Constructor.
+     * This creates a view on the tile at the given coordinate in the grid.
+     * All tile state is stored in the grid, so views are cheap and may be created and dropped freely.
      *
-     * @param sides An array with booleans to specify what sides are connectible.
+     * @param grid The grid the tile is in.
+     * @param x The x coordinate of the tile.
+     * @param y The y coordinate of the tile.
      */
-    public LoopTile(LoopGrid grid, int x, int y, boolean[] sides) {
+    public LoopTile(LoopGrid grid, int x, int y) {
         this.grid = grid;
         this.x = x;
         this.y = y;
-        this.setSides(sides);
-    }
-
-    /**
-     * Create an empty tile.
-     *
-     * @return The empty tile.
-     */
-    public static LoopTile createEmpty(LoopGrid grid, int x, int y) {
-        return new LoopTile(grid, x, y);
-    }
-
-    /**
-     * Create a random tile.
-     *
-     * @return The random tile.
-     */
-    public static LoopTile createRandom(LoopGrid grid, int x, int y) {
-        // Create a random object
-        Random rand = new Random();
-
-        // Create and return the tile
-        return new LoopTile(grid, x, y, rand.nextBoolean(), rand.nextBoolean(), rand.nextBoolean(), rand.nextBoolean());
+        this.position = grid.getTilePosition(x, y);
     }
 
     /**
@@ -96,7 +50,7 @@ public class LoopTile {
      * @return True if it's connectible, false if not.
      */
     public boolean getSide(LoopTileSide side) {
-        return this.sides[side.side()];
+        return (getMask() & (1 << side.side())) != 0;
     }
 
     /**
@@ -107,7 +61,7 @@ public class LoopTile {
      * @return True if it's connectible, false if not.
      */
     public boolean getSide(int side) {
-        return this.sides[MathUtils.realMod(side, TILE_SIDES)];
+        return (getMask() & (1 << MathUtils.realMod(side, TILE_SIDES))) != 0;
     }
 
     /**
@@ -117,8 +71,10 @@ public class LoopTile {
      * @param connectible True if the side is connectible, false if not.
      */
     public void setSide(LoopTileSide side, boolean connectible) {
-        this.sides[side.side()] = connectible;
-        this.setSolved(false);
+        if(connectible)
+            setMask(getMask() | LoopTileMask.bit(side));
+        else
+            setMask(getMask() & ~LoopTileMask.bit(side));
     }
 
     /**
@@ -127,7 +83,35 @@ public class LoopTile {
      * @return Sides.
      */
     public boolean[] getSides() {
-        return this.sides.clone();
+        return LoopTileMask.toSides(getMask());
+    }
+
+    /**
+     * Get the connector mask of this tile. Bit {@code n} is set if the side with number {@code n} is connectible.
+     *
+     * @return Connector mask.
+     */
+    public int getMask() {
+        return this.grid.getMask(this.position);
+    }
+
+    /**
+     * Set the connector mask of this tile.
+     *
+     * @param mask Connector mask.
+     */
+    public void setMask(int mask) {
+        this.grid.setMask(this.position, mask);
+        this.setSolved(false);
+    }
+
+    /**
+     * Get the shape of this tile.
+     *
+     * @return Tile shape.
+     */
+    public LoopTileShape getShape() {
+        return LoopTileMask.shape(getMask());
     }
 
     /**
@@ -136,14 +120,7 @@ public class LoopTile {
      * @return Connectible sides.
      */
     public int getConnectibleSides() {
-        // Count the number of connectible sides
-        int sides = 0;
-        for(boolean side : this.sides)
-            if(side)
-                sides++;
-
-        // Return the number of connectible sides
-        return sides;
+        return LoopTileMask.connectorCount(getMask());
     }
 
     /**
@@ -152,8 +129,7 @@ public class LoopTile {
      * @param sides The sides in an array.
      */
     public void setSides(boolean[] sides) {
-        System.arraycopy(sides, 0, this.sides, 0, TILE_SIDES);
-        this.setSolved(false);
+        setMask(LoopTileMask.of(sides));
     }
 
     /**
@@ -165,8 +141,7 @@ public class LoopTile {
      * @param left True if this side is connectible, false if not.
      */
     public void setSides(boolean top, boolean right, boolean bottom, boolean left) {
-        setSides(new boolean[]{top, right, bottom, left});
-        this.setSolved(false);
+        setMask(LoopTileMask.of(top, right, bottom, left));
     }
 
     /**
@@ -183,13 +158,7 @@ public class LoopTile {
      * @return True if the tile is empty, false otherwise.
      */
     public boolean isEmpty() {
-        // Loop through the sides array, return false if any side is true
-        for(boolean side : this.sides)
-            if(side)
-                return false;
-
-        // The tile seems to be empty, return true
-        return true;
+        return getMask() == LoopTileMask.MASK_EMPTY;
     }
 
     /**
@@ -198,11 +167,8 @@ public class LoopTile {
      * @param amount Number of quarters to rotate.
      */
     public void rotate(int amount) {
-        // Shift the array
-        this.sides = ArrayUtils.shiftArrayDown(this.sides, amount);
-
-        // Reset the solved flag
-        this.setSolved(false);
+        // Rotate the mask, this resets the solved flag
+        setMask(LoopTileMask.rotate(getMask(), amount));
     }
 
     /**
@@ -218,8 +184,7 @@ public class LoopTile {
      * @return True if the tile is a straight piece.
      */
     public boolean isStraight() {
-        return (getSide(LoopTileSide.TOP) && getSide(LoopTileSide.BOTTOM) && !(getSide(LoopTileSide.LEFT) || getSide(LoopTileSide.RIGHT)) ||
-                getSide(LoopTileSide.LEFT) && getSide(LoopTileSide.RIGHT) && !(getSide(LoopTileSide.TOP) || getSide(LoopTileSide.BOTTOM)));
+        return getShape() == LoopTileShape.STRAIGHT;
     }
 
     /**
@@ -256,7 +221,7 @@ public class LoopTile {
      * @return True if the tile is a corner piece, false if not.
      */
     public boolean isCorner() {
-        return getConnectibleSides() == 2 && !isStraight();
+        return getShape() == LoopTileShape.CORNER;
     }
 
     /**
@@ -265,7 +230,7 @@ public class LoopTile {
      * @return True if the tile is an end piece, false if not.
      */
     public boolean isEnd() {
-        return getConnectibleSides() == 1;
+        return getShape() == LoopTileShape.END;
     }
 
     /**
@@ -274,7 +239,7 @@ public class LoopTile {
      * @return True if the tile is T-shaped, false if not.
      */
     public boolean isTShape() {
-        return getConnectibleSides() == 3;
+        return getShape() == LoopTileShape.T_SHAPE;
     }
 
     /**
@@ -283,7 +248,7 @@ public class LoopTile {
      * @return True if the tile is cross shaped, false if not.
      */
     public boolean isCross() {
-        return getConnectibleSides() == 4;
+        return getMask() == LoopTileMask.MASK_ALL;
     }
 
     /**
@@ -292,7 +257,7 @@ public class LoopTile {
      * @return True if this tile is solved.
      */
     public boolean isSolved() {
-        return this.solved;
+        return this.grid.isSolved(this.position);
     }
 
     /**
@@ -301,12 +266,10 @@ public class LoopTile {
      * @param solved True if solved, false if not.
      */
     public void setSolved(boolean solved) {
-        this.solved = solved;
+        this.grid.setSolved(this.position, solved);
 
-        // TODO: Improve this!
-        // Redraw the drawable grid
-        if(App.instance.getDrawableGrid() != null)
-            App.instance.getDrawableGrid().repaint();
+        // Notify the observer
+        this.grid.getObserver().onTileSolved(this, solved);
     }
 
     /**
@@ -368,6 +331,15 @@ public class LoopTile {
         return y;
     }
 
+    /**
+     * Get the position of this tile in the grid.
+     *
+     * @return The position.
+     */
+    public int getPosition() {
+        return position;
+    }
+
     /**
      * Get the loop grid.
      *
@@ -390,14 +362,9 @@ public class LoopTile {
         LoopTile relativeTile = this.grid.getTile(getX() + rx, getY() + ry);
 
         // Set the checking tile
-        if(relativeTile != null && !relativeTile.isSolved()) {
+        if(relativeTile != null && !relativeTile.isSolved())
             this.grid.setCheckingTile(relativeTile);
-            try {
-                Thread.sleep(25);
-            } catch(InterruptedException e) {
-                e.printStackTrace();
-            }
-        } else
+        else
             this.grid.setCheckingTile(null);
 
         // Return the relative tile
@@ -745,4 +712,20 @@ public class LoopTile {
         // The tile seems to fit, return true
         return true;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        // Tiles are equal if they're a view on the same tile
+        if(this == o)
+            return true;
+        if(!(o instanceof LoopTile))
+            return false;
+        LoopTile other = (LoopTile) o;
+        return this.grid == other.grid && this.position == other.position;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this.grid) * 31 + this.position;
+    }
 }
@@ -0,0 +1,204 @@
+package com.timvisee.loopsolver.tile;
+
+public final class LoopTileMask {
+
+    /** Number of distinct tile masks. */
+    public static final int MASK_COUNT = 1 << LoopTile.TILE_SIDES;
+
+    /** Mask with all sides connectible. */
+    public static final int MASK_ALL = MASK_COUNT - 1;
+
+    /** Mask without any connectible side. */
+    public static final int MASK_EMPTY = 0;
+
+    /** The shape of each mask. */
+    private static final LoopTileShape[] SHAPES = new LoopTileShape[MASK_COUNT];
+
+    /** The rotations that result in a distinct orientation, for each mask. */
+    private static final int[][] ORIENTATIONS = new int[MASK_COUNT][];
+    /** The rotations that result in a distinct orientation as bitset, for each mask. */
+    private static final int[] ORIENTATION_DOMAINS = new int[MASK_COUNT];
+
+    static {
+        // Determine the shape for each mask
+        for(int mask = 0; mask < MASK_COUNT; mask++) {
+            switch(connectorCount(mask)) {
+                case 0:
+                    SHAPES[mask] = LoopTileShape.EMPTY;
+                    break;
+                case 1:
+                    SHAPES[mask] = LoopTileShape.END;
+                    break;
+                case 2:
+                    SHAPES[mask] = rotate(mask, LoopTile.TILE_ROTATE_HALF) == mask ? LoopTileShape.STRAIGHT : LoopTileShape.CORNER;
+                    break;
+                case 3:
+                    SHAPES[mask] = LoopTileShape.T_SHAPE;
+                    break;
+                default:
+                    SHAPES[mask] = LoopTileShape.CROSS;
+            }
+        }
+
+        // Determine the distinct orientations for each mask, based on the symmetry of its shape
+        for(int mask = 0; mask < MASK_COUNT; mask++) {
+            switch(SHAPES[mask]) {
+                case EMPTY:
+                case CROSS:
+                    ORIENTATIONS[mask] = new int[]{0};
+                    break;
+                case STRAIGHT:
+                    ORIENTATIONS[mask] = new int[]{0, LoopTile.TILE_ROTATE_CLOCKWISE};
+                    break;
+                default:
+                    ORIENTATIONS[mask] = new int[]{0, LoopTile.TILE_ROTATE_CLOCKWISE, LoopTile.TILE_ROTATE_HALF, LoopTile.TILE_ROTATE_COUNTERCLOCKWISE};
+            }
+
+            // Build the bitset of orientations
+            for(int rotation : ORIENTATIONS[mask])
+                ORIENTATION_DOMAINS[mask] |= 1 << rotation;
+        }
+    }
+
+    /**
+     * Private constructor, utility class.
+     */
+    private LoopTileMask() { }
+
+    /**
+     * Get the mask bit for a side.
+     *
+     * @param side The side.
+     *
+     * @return The mask bit.
+     */
+    public static int bit(LoopTileSide side) {
+        return 1 << side.side();
+    }
+
+    /**
+     * Create a mask.
+     *
+     * @param top True if this side is connectible, false if not.
+     * @param right True if this side is connectible, false if not.
+     * @param bottom True if this side is connectible, false if not.
+     * @param left True if this side is connectible, false if not.
+     *
+     * @return The mask.
+     */
+    public static int of(boolean top, boolean right, boolean bottom, boolean left) {
+        return (top ? 1 : 0) | (right ? 2 : 0) | (bottom ? 4 : 0) | (left ? 8 : 0);
+    }
+
+    /**
+     * Create a mask from an array of sides.
+     *
+     * @param sides An array with booleans to specify what sides are connectible.
+     *
+     * @return The mask.
+     */
+    public static int of(boolean[] sides) {
+        return of(sides[0], sides[1], sides[2], sides[3]);
+    }
+
+    /**
+     * Convert a mask into an array of sides.
+     *
+     * @param mask The mask.
+     *
+     * @return An array with booleans specifying what sides are connectible.
+     */
+    public static boolean[] toSides(int mask) {
+        boolean[] sides = new boolean[LoopTile.TILE_SIDES];
+        for(int i = 0; i < LoopTile.TILE_SIDES; i++)
+            sides[i] = (mask & (1 << i)) != 0;
+        return sides;
+    }
+
+    /**
+     * Check whether a side is connectible in a mask.
+     *
+     * @param mask The mask.
+     * @param side The side.
+     *
+     * @return True if it's connectible, false if not.
+     */
+    public static boolean hasSide(int mask, LoopTileSide side) {
+        return (mask & (1 << side.side())) != 0;
+    }
+
+    /**
+     * Rotate a mask clockwise by the given number of quarters.
+     *
+     * @param mask The mask.
+     * @param amount Number of quarters to rotate, may be negative.
+     *
+     * @return The rotated mask.
+     */
+    public static int rotate(int mask, int amount) {
+        amount &= LoopTile.TILE_SIDES - 1;
+        return ((mask << amount) | (mask >>> (LoopTile.TILE_SIDES - amount))) & MASK_ALL;
+    }
+
+    /**
+     * Get the smallest clockwise rotation that turns one mask into another.
+     *
+     * @param from The mask to rotate.
+     * @param to The mask to get.
+     *
+     * @return Number of quarter turns, or -1 if no rotation of the first mask equals the second.
+     */
+    public static int rotationBetween(int from, int to) {
+        for(int amount = 0; amount < LoopTile.TILE_SIDES; amount++)
+            if(rotate(from, amount) == to)
+                return amount;
+        return -1;
+    }
+
+    /**
+     * Get the number of connectible sides in a mask.
+     *
+     * @param mask The mask.
+     *
+     * @return Connectible sides.
+     */
+    public static int connectorCount(int mask) {
+        return Integer.bitCount(mask);
+    }
+
+    /**
+     * Get the shape of a mask.
+     *
+     * @param mask The mask.
+     *
+     * @return The shape.
+     */
+    public static LoopTileShape shape(int mask) {
+        return SHAPES[mask];
+    }
+
+    /**
+     * Get the rotations of a mask that result in a distinct orientation.
+     * Rotations that are left out result in a mask that equals one of the returned rotations.
+     * Note: The returned array is shared and must not be modified.
+     *
+     * @param mask The mask.
+     *
+     * @return The distinct rotations, starting with the current orientation.
+     */
+    public static int[] orientations(int mask) {
+        return ORIENTATIONS[mask];
+    }
+
+    /**
+     * Get the rotations of a mask that result in a distinct orientation, as bitset.
+     * Bit {@code n} is set if rotating the mask by {@code n} quarters results in a distinct orientation.
+     *
+     * @param mask The mask.
+     *
+     * @return The distinct rotations as bitset.
+     */
+    public static int orientationDomain(int mask) {
+        return ORIENTATION_DOMAINS[mask];
+    }
+}
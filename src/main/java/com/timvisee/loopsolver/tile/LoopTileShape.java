@@ -0,0 +1,22 @@
+package com.timvisee.loopsolver.tile;
+
+public enum LoopTileShape {
+
+    /** Tile without any connectible side. */
+    EMPTY,
+
+    /** Tile with one connectible side. */
+    END,
+
+    /** Tile with two connectible sides next to each other. */
+    CORNER,
+
+    /** Tile with two connectible sides opposite of each other. */
+    STRAIGHT,
+
+    /** Tile with three connectible sides. */
+    T_SHAPE,
+
+    /** Tile with four connectible sides. */
+    CROSS
+}